@@ -19,11 +19,13 @@
 package io.github.retrooper.packetevents;
 
 import io.github.retrooper.packetevents.bstats.Metrics;
+import io.github.retrooper.packetevents.capture.PacketCapture;
 import io.github.retrooper.packetevents.event.impl.PostPlayerInjectEvent;
 import io.github.retrooper.packetevents.event.manager.EventManager;
 import io.github.retrooper.packetevents.event.manager.PEEventManager;
 import io.github.retrooper.packetevents.exceptions.PacketEventsLoadFailureException;
 import io.github.retrooper.packetevents.injector.GlobalChannelInjector;
+import io.github.retrooper.packetevents.injector.modern.EntityMovementCoalescer;
 import io.github.retrooper.packetevents.packettype.PacketType;
 import io.github.retrooper.packetevents.packettype.PacketTypeClasses;
 import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
@@ -31,16 +33,23 @@ import io.github.retrooper.packetevents.packetwrappers.play.out.entityequipment.
 import io.github.retrooper.packetevents.processor.BukkitEventProcessorInternal;
 import io.github.retrooper.packetevents.processor.PacketProcessorInternal;
 import io.github.retrooper.packetevents.settings.PacketEventsSettings;
+import io.github.retrooper.packetevents.transformer.AsyncTransformerManager;
 import io.github.retrooper.packetevents.updatechecker.UpdateChecker;
+import io.github.retrooper.packetevents.utils.effect.EffectPolicy;
 import io.github.retrooper.packetevents.utils.entityfinder.EntityFinderUtils;
 import io.github.retrooper.packetevents.utils.guava.GuavaUtils;
+import io.github.retrooper.packetevents.utils.latency.LatencyProbeTask;
 import io.github.retrooper.packetevents.utils.netty.bytebuf.ByteBufUtil;
 import io.github.retrooper.packetevents.utils.netty.bytebuf.ByteBufUtil_7;
 import io.github.retrooper.packetevents.utils.netty.bytebuf.ByteBufUtil_8;
+import io.github.retrooper.packetevents.utils.nms.ConversionCache;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.player.PlayerUtils;
 import io.github.retrooper.packetevents.utils.server.ServerUtils;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.server.StatusResponseCache;
+import io.github.retrooper.packetevents.utils.traffic.TrafficMetricsServer;
+import io.github.retrooper.packetevents.utils.traffic.TrafficStatistics;
 import io.github.retrooper.packetevents.utils.version.PEVersion;
 import org.bukkit.Bukkit;
 import org.bukkit.World;
@@ -50,7 +59,9 @@ import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -64,6 +75,12 @@ public final class PacketEvents implements Listener, EventManager {
     private final PacketProcessorInternal packetProcessorInternal = new PacketProcessorInternal();
     private final BukkitEventProcessorInternal bukkitEventProcessorInternal = new BukkitEventProcessorInternal();
     private final GlobalChannelInjector injector = new GlobalChannelInjector();
+    private final AsyncTransformerManager asyncTransformerManager = new AsyncTransformerManager();
+    private final EffectPolicy effectPolicy = new EffectPolicy();
+    private final PacketCapture packetCapture = new PacketCapture();
+    private final TrafficStatistics trafficStatistics = new TrafficStatistics();
+    private final TrafficMetricsServer trafficMetricsServer = new TrafficMetricsServer(trafficStatistics);
+    private final StatusResponseCache statusResponseCache = new StatusResponseCache();
     private final AtomicBoolean injectorReady = new AtomicBoolean();
     private String handlerName;
     private PacketEventsSettings settings = new PacketEventsSettings();
@@ -72,6 +89,11 @@ public final class PacketEvents implements Listener, EventManager {
     private volatile boolean loading, loaded;
     private boolean initialized, initializing, terminating;
     private boolean lateBind = false;
+    private BukkitTask latencyProbeTask;
+    private BukkitTask clientAckTask;
+    private BukkitTask entityDestroyTask;
+    private BukkitTask movementCoalescingTask;
+    private BukkitTask trafficSampleTask;
 
     public static PacketEvents create(final Plugin plugin) {
         if (Bukkit.isPrimaryThread()) {
@@ -187,6 +209,11 @@ public final class PacketEvents implements Listener, EventManager {
             settings = packetEventsSettings;
             settings.lock();
 
+            NMSUtils.conversionCache.setCapacity(settings.getConversionCacheSize());
+            effectPolicy.configure(settings.getEffectCullingDistance(), settings.getEffectBudgetPerTick());
+            trafficStatistics.setEnabled(settings.shouldTrackTraffic());
+            statusResponseCache.setCacheTime(settings.getStatusResponseCacheTime());
+
             if (settings.shouldCheckForUpdates()) {
                 handleUpdateCheck();
             }
@@ -217,6 +244,29 @@ public final class PacketEvents implements Listener, EventManager {
                 }
             };
 
+            clientAckTask = Bukkit.getScheduler().runTaskTimer(plugin, playerUtils::flushClientAcks, 1L, 1L);
+            entityDestroyTask = Bukkit.getScheduler().runTaskTimer(plugin, playerUtils::flushEntityDestroys, 1L, 1L);
+
+            if (settings.shouldCoalesceEntityMovement()) {
+                movementCoalescingTask = Bukkit.getScheduler().runTaskTimer(plugin, EntityMovementCoalescer::flushPendingChannels, 1L, 1L);
+            }
+
+            if (settings.shouldTrackTraffic()) {
+                trafficSampleTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, trafficStatistics::sample, 20L, 20L);
+                if (settings.getTrafficMetricsPort() > 0) {
+                    try {
+                        trafficMetricsServer.start(settings.getTrafficMetricsPort());
+                    } catch (IOException ex) {
+                        plugin.getLogger().severe("[packetevents] Failed to start the traffic metrics endpoint on port " + settings.getTrafficMetricsPort() + ": " + ex.getMessage());
+                    }
+                }
+            }
+
+            if (settings.getLatencyProbeInterval() > 0) {
+                int interval = settings.getLatencyProbeInterval();
+                latencyProbeTask = Bukkit.getScheduler().runTaskTimer(plugin, new LatencyProbeTask(), interval, interval);
+            }
+
             if (lateBind) {
                 //If late-bind is enabled, we still need to inject (after all plugins enabled).
                 Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, injector::inject);
@@ -246,6 +296,30 @@ public final class PacketEvents implements Listener, EventManager {
             for (Player p : Bukkit.getOnlinePlayers()) {
                 injector.ejectPlayer(p);
             }
+            if (latencyProbeTask != null) {
+                latencyProbeTask.cancel();
+                latencyProbeTask = null;
+            }
+            if (clientAckTask != null) {
+                clientAckTask.cancel();
+                clientAckTask = null;
+            }
+            if (entityDestroyTask != null) {
+                entityDestroyTask.cancel();
+                entityDestroyTask = null;
+            }
+            if (movementCoalescingTask != null) {
+                movementCoalescingTask.cancel();
+                movementCoalescingTask = null;
+            }
+            if (trafficSampleTask != null) {
+                trafficSampleTask.cancel();
+                trafficSampleTask = null;
+            }
+            trafficMetricsServer.stop();
+            statusResponseCache.setCacheTime(0);
+            asyncTransformerManager.shutdown();
+            packetCapture.stopAll();
             //Eject the injector if needed
             injector.eject();
             //Unregister all our listeners
@@ -326,6 +400,30 @@ public final class PacketEvents implements Listener, EventManager {
         return serverUtils;
     }
 
+    public ConversionCache getConversionCache() {
+        return NMSUtils.conversionCache;
+    }
+
+    public AsyncTransformerManager getAsyncTransformerManager() {
+        return asyncTransformerManager;
+    }
+
+    public EffectPolicy getEffectPolicy() {
+        return effectPolicy;
+    }
+
+    public PacketCapture getPacketCapture() {
+        return packetCapture;
+    }
+
+    public TrafficStatistics getTrafficStatistics() {
+        return trafficStatistics;
+    }
+
+    public StatusResponseCache getStatusResponseCache() {
+        return statusResponseCache;
+    }
+
     public ByteBufUtil getByteBufUtil() {
         return byteBufUtil;
     }
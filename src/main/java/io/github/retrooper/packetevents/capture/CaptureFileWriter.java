@@ -0,0 +1,130 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Writes capture records into memory-mapped files of a fixed size.
+ * Once a file is full the next one is created, only the newest capture files in the directory are kept.
+ * File names start with the time the writer was created, so they sort by age, existing files are never overwritten.
+ * Only accessed by the capture thread.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class CaptureFileWriter implements Closeable {
+    private final File directory;
+    private final String prefix;
+    private final int fileSize;
+    private final int maxFiles;
+    private final int protocolVersion;
+    private MappedByteBuffer mapped;
+    private int fileIndex;
+
+    CaptureFileWriter(File directory, int fileSize, int maxFiles, int protocolVersion) {
+        this.directory = directory;
+        this.prefix = "capture-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Write one record.
+     *
+     * @param record Record, from its position to its limit.
+     * @return Has the record been written? False if it is larger than a capture file.
+     * @throws IOException We failed to create the next file.
+     */
+    boolean write(ByteBuffer record) throws IOException {
+        int size = record.remaining();
+        //Keep space for the end marker
+        if (size + 4 > fileSize - CaptureFormat.FILE_HEADER_SIZE) {
+            return false;
+        }
+        if (mapped == null || mapped.remaining() < size + 4) {
+            rotate();
+        }
+        mapped.put(record);
+        return true;
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the capture directory " + directory);
+        }
+        while (mapped == null) {
+            File file = new File(directory, prefix + "-" + String.format("%04d", fileIndex++) + CaptureFormat.FILE_EXTENSION);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                //The mapping stays valid after the channel is closed
+                mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            } catch (FileAlreadyExistsException ex) {
+                //Another writer started within the same millisecond, take the next index
+            }
+        }
+        mapped.putInt(CaptureFormat.MAGIC);
+        mapped.putInt(CaptureFormat.VERSION);
+        mapped.putInt(protocolVersion);
+        mapped.putLong(System.currentTimeMillis());
+        mapped.putLong(System.nanoTime());
+        deleteOldFiles();
+    }
+
+    /**
+     * Delete the oldest capture files of the directory, including the ones of earlier captures.
+     */
+    private void deleteOldFiles() {
+        File[] captureFiles = directory.listFiles((dir, name) -> name.startsWith("capture-") && name.endsWith(CaptureFormat.FILE_EXTENSION));
+        if (captureFiles == null || captureFiles.length <= maxFiles) {
+            return;
+        }
+        //The names start with the time, so they sort from the oldest to the newest
+        Arrays.sort(captureFiles);
+        for (int i = 0; i < captureFiles.length - maxFiles; i++) {
+            if (!captureFiles[i].delete()) {
+                captureFiles[i].deleteOnExit();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (mapped != null) {
+            //New files are filled with zeros, so the end marker is already there
+            mapped.force();
+            mapped = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeFile();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+/**
+ * Binary layout of the capture files, all numbers are big endian.
+ * <pre>
+ * File header:
+ *   int  magic
+ *   int  format version
+ *   int  protocol version of the server
+ *   long wall clock time the file has been created at (milliseconds)
+ *   long {@link System#nanoTime()} the file has been created at
+ * Records, until a record length of zero:
+ *   int  record length (bytes after this field)
+ *   long {@link System#nanoTime()} of the packet
+ *   long most significant bits of the player UUID
+ *   long least significant bits of the player UUID
+ *   int  packet ID of the protocol, -1 if it couldn't be read
+ *   int  original length of the packet
+ *   byte direction, see {@link CaptureDirection}
+ *   byte state, see {@link io.github.retrooper.packetevents.packettype.PacketState}
+ *   ...  packet bytes, truncated to the record length
+ * </pre>
+ * The ring buffers use the record layout too, so records are copied into the files as they are.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class CaptureFormat {
+    static final int MAGIC = 0x50454350;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 28;
+    static final int RECORD_HEADER_SIZE = 34;
+    static final int END = 0;
+    static final String FILE_EXTENSION = ".pecap";
+
+    private CaptureFormat() {
+    }
+}
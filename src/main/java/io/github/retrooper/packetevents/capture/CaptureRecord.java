@@ -0,0 +1,101 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.github.retrooper.packetevents.packettype.PacketState;
+
+import java.util.UUID;
+
+/**
+ * One captured packet.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class CaptureRecord {
+    private final long nanoTime;
+    private final UUID uuid;
+    private final CaptureDirection direction;
+    private final PacketState state;
+    private final int packetID;
+    private final int length;
+    private final byte[] data;
+
+    public CaptureRecord(long nanoTime, UUID uuid, CaptureDirection direction, PacketState state, int packetID, int length, byte[] data) {
+        this.nanoTime = nanoTime;
+        this.uuid = uuid;
+        this.direction = direction;
+        this.state = state;
+        this.packetID = packetID;
+        this.length = length;
+        this.data = data;
+    }
+
+    /**
+     * {@link System#nanoTime()} we captured the packet at.
+     * Use {@link PacketCaptureReader#toMillis(long)} to get the wall clock time.
+     *
+     * @return Nano time
+     */
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public UUID getUUID() {
+        return uuid;
+    }
+
+    public CaptureDirection getDirection() {
+        return direction;
+    }
+
+    public PacketState getState() {
+        return state;
+    }
+
+    /**
+     * Packet ID of the protocol, these are not the {@link io.github.retrooper.packetevents.packettype.PacketType} IDs.
+     *
+     * @return Protocol packet ID, -1 if it couldn't be read.
+     */
+    public int getPacketId() {
+        return packetID;
+    }
+
+    /**
+     * Length of the packet before it was truncated.
+     *
+     * @return Original length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Uncompressed packet bytes, starting with the packet ID.
+     *
+     * @return Packet bytes
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public boolean isTruncated() {
+        return data.length < length;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.github.retrooper.packetevents.packettype.PacketState;
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Off-heap ring buffer of capture records.
+ * There is one buffer per event loop, so a single thread writes into it and the capture thread reads from it.
+ * Records never wrap around the end of the buffer, the rest of the buffer is skipped instead.
+ * Records that don't fit are dropped, capturing never blocks the event loop.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class CaptureRingBuffer {
+    private static final int PADDING = -1;
+    private final ByteBuffer buffer;
+    private final ByteBuffer producerView;
+    private final ByteBuffer consumerView;
+    private final int capacity;
+    private final int mask;
+    //Bytes written and read since the creation of the buffer
+    private volatile long head, tail;
+    private volatile long dropped;
+
+    /**
+     * Create a ring buffer.
+     *
+     * @param capacity Size in bytes, a power of two.
+     */
+    CaptureRingBuffer(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        this.producerView = buffer.duplicate();
+        this.consumerView = buffer.duplicate();
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    private static int align(int size) {
+        return (size + 3) & ~3;
+    }
+
+    /**
+     * Add a record, only call this from the event loop that owns the buffer.
+     *
+     * @return Has the record been added? False if the buffer is full.
+     */
+    boolean offer(long nanoTime, UUID uuid, CaptureDirection direction, PacketState state, int packetID, ByteBuf packet, int maxPacketBytes) {
+        int length = packet.readableBytes();
+        int captured = Math.min(length, maxPacketBytes);
+        int recordLength = CaptureFormat.RECORD_HEADER_SIZE + captured;
+        int size = align(4 + recordLength);
+        long head = this.head;
+        int position = (int) (head & mask);
+        int contiguous = capacity - position;
+        long required = size <= contiguous ? size : contiguous + size;
+        if (size > capacity || head + required - tail > capacity) {
+            dropped++;
+            return false;
+        }
+        if (size > contiguous) {
+            buffer.putInt(position, PADDING);
+            head += contiguous;
+            position = 0;
+        }
+        buffer.putInt(position, recordLength);
+        buffer.putLong(position + 4, nanoTime);
+        buffer.putLong(position + 12, uuid.getMostSignificantBits());
+        buffer.putLong(position + 20, uuid.getLeastSignificantBits());
+        buffer.putInt(position + 28, packetID);
+        buffer.putInt(position + 32, length);
+        buffer.put(position + 36, (byte) direction.ordinal());
+        buffer.put(position + 37, (byte) state.ordinal());
+        ((Buffer) producerView).limit(position + 4 + recordLength);
+        ((Buffer) producerView).position(position + 4 + CaptureFormat.RECORD_HEADER_SIZE);
+        packet.getBytes(packet.readerIndex(), producerView);
+        //Publish the record
+        this.head = head + size;
+        return true;
+    }
+
+    /**
+     * Move all records into a capture file, only call this from the capture thread.
+     *
+     * @param writer Capture file writer.
+     * @return Amount of records.
+     * @throws IOException The writer failed.
+     */
+    int drainTo(CaptureFileWriter writer) throws IOException {
+        long tail = this.tail;
+        long head = this.head;
+        int records = 0;
+        try {
+            while (tail < head) {
+                int position = (int) (tail & mask);
+                int recordLength = buffer.getInt(position);
+                if (recordLength == PADDING) {
+                    tail += capacity - position;
+                    continue;
+                }
+                ((Buffer) consumerView).limit(position + 4 + recordLength);
+                ((Buffer) consumerView).position(position);
+                writer.write(consumerView);
+                tail += align(4 + recordLength);
+                records++;
+            }
+        } finally {
+            this.tail = tail;
+        }
+        return records;
+    }
+
+    boolean isEmpty() {
+        return head == tail;
+    }
+
+    long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.github.retrooper.packetevents.packettype.PacketState;
+import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Follows the protocol state of a captured connection, so the records of 1.20.2+ reconfiguration are tagged with the configuration state.
+ * It sits behind the decoder and in front of the encoder, so it sees the packets the state switches on.
+ * The switching packet itself still belongs to the old state, we switch once it passed the capture handlers.
+ * The packets are matched by their Mojang names, which Spigot keeps for them as well.
+ * Only accessed by the event loop of the channel.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class CaptureStateTracker extends ChannelDuplexHandler {
+    //We only capture players, they are in the play state once we are installed
+    PacketState inboundState = PacketState.PLAY;
+    PacketState outboundState = PacketState.PLAY;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        //The inbound capture handler has already seen the bytes of this packet
+        switch (ClassUtil.getClassSimpleName(msg.getClass())) {
+            case "ServerboundConfigurationAcknowledgedPacket":
+                inboundState = PacketState.CONFIG;
+                break;
+            case "ServerboundFinishConfigurationPacket":
+                inboundState = PacketState.PLAY;
+                break;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        //The encoder and the outbound capture handler run during the write
+        super.write(ctx, msg, promise);
+        switch (ClassUtil.getClassSimpleName(msg.getClass())) {
+            case "ClientboundStartConfigurationPacket":
+                outboundState = PacketState.CONFIG;
+                break;
+            case "ClientboundFinishConfigurationPacket":
+                outboundState = PacketState.PLAY;
+                break;
+        }
+    }
+}
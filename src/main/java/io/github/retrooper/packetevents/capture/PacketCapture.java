@@ -0,0 +1,314 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Captures the encoded packets of players into files, for debugging protocol issues on live servers.
+ * The event loops copy the packets into off-heap ring buffers, one per event loop.
+ * A background thread moves them into rotating memory-mapped files, read them with {@link PacketCaptureReader}.
+ * If the background thread can't keep up, packets are dropped instead of slowing down the event loops.
+ * Capturing requires 1.8 or newer.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see CaptureFormat
+ */
+public final class PacketCapture {
+    static final int MAX_PACKET_BYTES = 1 << 16;
+    private static final int RING_BUFFER_SIZE = 1 << 22;
+    private static final int FILE_SIZE = 1 << 26;
+    private static final int MAX_FILES = 8;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private final Set<UUID> players = ConcurrentHashMap.newKeySet();
+    private final Map<EventLoop, CaptureRingBuffer> ringBuffers = new ConcurrentHashMap<>();
+    //Guards the capture thread, we never hold it while waiting for the thread.
+    private final Object threadLock = new Object();
+    private volatile boolean capturingAll;
+    private volatile boolean running;
+    private Thread thread;
+    private File directory;
+
+    /**
+     * Capture the packets of all players, including the ones that join later.
+     */
+    public synchronized void captureAll() {
+        checkSupported();
+        capturingAll = true;
+        start();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            install(player);
+        }
+    }
+
+    /**
+     * Capture the packets of a player.
+     *
+     * @param player Player
+     */
+    public synchronized void capture(Player player) {
+        checkSupported();
+        players.add(player.getUniqueId());
+        start();
+        install(player);
+    }
+
+    /**
+     * Stop capturing the packets of a player.
+     * This doesn't affect {@link #captureAll()}.
+     * If it was the last player, the capture thread is told to stop, we don't wait for it.
+     *
+     * @param player Player
+     */
+    public synchronized void stopCapturing(Player player) {
+        if (!players.remove(player.getUniqueId()) || capturingAll) {
+            return;
+        }
+        uninstall(player);
+        if (players.isEmpty()) {
+            stop();
+        }
+    }
+
+    /**
+     * Stop capturing any packets.
+     * The capture files are complete once this returns.
+     */
+    public synchronized void stopAll() {
+        capturingAll = false;
+        players.clear();
+        Thread stopping = stop();
+        if (stopping == null) {
+            return;
+        }
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            uninstall(player);
+        }
+        try {
+            stopping.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isCapturingAll() {
+        return capturingAll;
+    }
+
+    public boolean isCapturing(Player player) {
+        return shouldCapture(player.getUniqueId());
+    }
+
+    /**
+     * Directory of the capture files, it is used the next time capturing starts.
+     *
+     * @param directory Directory, null for the captures folder of the plugin.
+     */
+    public synchronized void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    public synchronized File getDirectory() {
+        return directory != null ? directory : new File(PacketEvents.get().getPlugin().getDataFolder(), "captures");
+    }
+
+    /**
+     * Amount of packets we dropped because the ring buffers were full.
+     *
+     * @return Dropped packets
+     */
+    public long getDroppedPackets() {
+        long dropped = 0;
+        for (CaptureRingBuffer ringBuffer : ringBuffers.values()) {
+            dropped += ringBuffer.getDropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Install the capture handlers if we capture the player.
+     * Called once the player joined.
+     *
+     * @param player Player
+     */
+    public void onJoin(Player player) {
+        if (shouldCapture(player.getUniqueId())) {
+            install(player);
+        }
+    }
+
+    boolean shouldCapture(UUID uuid) {
+        return capturingAll || players.contains(uuid);
+    }
+
+    CaptureRingBuffer getRingBuffer(EventLoop eventLoop) {
+        return ringBuffers.computeIfAbsent(eventLoop, loop -> new CaptureRingBuffer(RING_BUFFER_SIZE));
+    }
+
+    private static void checkSupported() {
+        if (PacketEvents.get().getServerUtils().getVersion() == ServerVersion.v_1_7_10) {
+            throw new UnsupportedOperationException("Packet capturing requires 1.8 or newer!");
+        }
+    }
+
+    private static String getHandlerName(CaptureDirection direction) {
+        return PacketEvents.get().getHandlerName() + "-capture-" + direction.name().toLowerCase();
+    }
+
+    private static String getStateHandlerName() {
+        return PacketEvents.get().getHandlerName() + "-capture-state";
+    }
+
+    private void install(Player player) {
+        Channel channel = (Channel) PacketEvents.get().getPlayerUtils().getChannel(player);
+        if (channel == null) {
+            return;
+        }
+        UUID uuid = player.getUniqueId();
+        channel.eventLoop().execute(() -> {
+            ChannelPipeline pipeline = channel.pipeline();
+            String stateName = getStateHandlerName();
+            if (pipeline.get("decoder") == null || pipeline.get("encoder") == null) {
+                return;
+            }
+            CaptureStateTracker stateTracker = (CaptureStateTracker) pipeline.get(stateName);
+            if (stateTracker == null) {
+                stateTracker = new CaptureStateTracker();
+                pipeline.addAfter("encoder", stateName, stateTracker);
+            }
+            String inboundName = getHandlerName(CaptureDirection.INBOUND);
+            //Compression is set up once we are in the play state, so the decompressor comes before us and the compressor after us
+            if (pipeline.get(inboundName) == null) {
+                pipeline.addBefore("decoder", inboundName, new PacketCaptureHandler(this, uuid, CaptureDirection.INBOUND, stateTracker));
+            }
+            String outboundName = getHandlerName(CaptureDirection.OUTBOUND);
+            if (pipeline.get(outboundName) == null) {
+                pipeline.addBefore("encoder", outboundName, new PacketCaptureHandler(this, uuid, CaptureDirection.OUTBOUND, stateTracker));
+            }
+        });
+    }
+
+    private void uninstall(Player player) {
+        Channel channel = (Channel) PacketEvents.get().getPlayerUtils().getChannel(player);
+        if (channel == null) {
+            return;
+        }
+        channel.eventLoop().execute(() -> {
+            ChannelPipeline pipeline = channel.pipeline();
+            for (CaptureDirection direction : CaptureDirection.values()) {
+                if (pipeline.get(getHandlerName(direction)) != null) {
+                    pipeline.remove(getHandlerName(direction));
+                }
+            }
+            if (pipeline.get(getStateHandlerName()) != null) {
+                pipeline.remove(getStateHandlerName());
+            }
+        });
+    }
+
+    private void start() {
+        synchronized (threadLock) {
+            running = true;
+            if (thread != null) {
+                //The thread hasn't exited yet, it just carries on
+                return;
+            }
+            CaptureFileWriter writer = new CaptureFileWriter(getDirectory(), FILE_SIZE, MAX_FILES,
+                    PacketEvents.get().getServerUtils().getVersion().getProtocolVersion());
+            thread = new Thread(() -> run(writer), "packetevents-capture");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Tell the capture thread to stop once it has written the captured packets.
+     *
+     * @return Capture thread to wait for, null if there is none.
+     */
+    private Thread stop() {
+        synchronized (threadLock) {
+            running = false;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+            return thread;
+        }
+    }
+
+    /**
+     * Called by the capture thread once it has nothing left to write.
+     *
+     * @return May the thread exit? False if capturing has been started again meanwhile.
+     */
+    private boolean exit() {
+        synchronized (threadLock) {
+            if (running) {
+                return false;
+            }
+            thread = null;
+            return true;
+        }
+    }
+
+    private void run(CaptureFileWriter writer) {
+        try {
+            while (true) {
+                if (drain(writer) == 0) {
+                    if (!running && exit()) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (threadLock) {
+                if (thread == Thread.currentThread()) {
+                    thread = null;
+                }
+            }
+            writer.close();
+        }
+    }
+
+    private int drain(CaptureFileWriter writer) throws IOException {
+        int records = 0;
+        for (CaptureRingBuffer ringBuffer : ringBuffers.values()) {
+            records += ringBuffer.drainTo(writer);
+        }
+        return records;
+    }
+}
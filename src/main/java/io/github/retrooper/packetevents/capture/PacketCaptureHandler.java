@@ -0,0 +1,91 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.UUID;
+
+/**
+ * Copies the encoded packets of one direction into the ring buffer of the event loop.
+ * The inbound handler sits in front of the decoder, the outbound handler behind the encoder,
+ * so both see uncompressed packets without the length prefix.
+ * The protocol state of the packets comes from the {@link CaptureStateTracker} of the channel.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class PacketCaptureHandler extends ChannelDuplexHandler {
+    private final PacketCapture capture;
+    private final UUID uuid;
+    private final CaptureDirection direction;
+    private final CaptureStateTracker stateTracker;
+    private CaptureRingBuffer ringBuffer;
+
+    PacketCaptureHandler(PacketCapture capture, UUID uuid, CaptureDirection direction, CaptureStateTracker stateTracker) {
+        this.capture = capture;
+        this.uuid = uuid;
+        this.direction = direction;
+        this.stateTracker = stateTracker;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (direction == CaptureDirection.INBOUND && msg instanceof ByteBuf) {
+            capture(ctx, (ByteBuf) msg);
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (direction == CaptureDirection.OUTBOUND && msg instanceof ByteBuf) {
+            capture(ctx, (ByteBuf) msg);
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    private void capture(ChannelHandlerContext ctx, ByteBuf packet) {
+        if (!packet.isReadable() || !capture.shouldCapture(uuid)) {
+            return;
+        }
+        if (ringBuffer == null) {
+            ringBuffer = capture.getRingBuffer(ctx.channel().eventLoop());
+        }
+        ringBuffer.offer(System.nanoTime(), uuid, direction,
+                direction == CaptureDirection.INBOUND ? stateTracker.inboundState : stateTracker.outboundState,
+                readPacketID(packet), packet, PacketCapture.MAX_PACKET_BYTES);
+    }
+
+    private static int readPacketID(ByteBuf packet) {
+        int index = packet.readerIndex();
+        int end = Math.min(packet.writerIndex(), index + 5);
+        int value = 0;
+        for (int shift = 0; index < end; shift += 7) {
+            byte b = packet.getByte(index++);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.capture;
+
+import io.github.retrooper.packetevents.packettype.PacketState;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the records of a capture file, for offline analysis.
+ * This doesn't need a running server.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see PacketCapture
+ */
+public final class PacketCaptureReader implements Closeable {
+    private static final CaptureDirection[] DIRECTIONS = CaptureDirection.values();
+    private static final PacketState[] STATES = PacketState.values();
+    private final MappedByteBuffer buffer;
+    private final int protocolVersion;
+    private final long startMillis;
+    private final long startNanoTime;
+    private boolean ended;
+
+    public PacketCaptureReader(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < CaptureFormat.FILE_HEADER_SIZE || buffer.getInt() != CaptureFormat.MAGIC) {
+            throw new IOException(file + " is not a packet capture file!");
+        }
+        int version = buffer.getInt();
+        if (version != CaptureFormat.VERSION) {
+            throw new IOException("Unsupported capture format version " + version + " in " + file);
+        }
+        protocolVersion = buffer.getInt();
+        startMillis = buffer.getLong();
+        startNanoTime = buffer.getLong();
+    }
+
+    /**
+     * Capture files in a directory, oldest first.
+     *
+     * @param directory Capture directory
+     * @return Capture files
+     */
+    public static List<File> listFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(CaptureFormat.FILE_EXTENSION));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        //The file names start with the date and end with the index
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Protocol version of the server that wrote the file.
+     *
+     * @return Protocol version
+     */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * Convert the nano time of a record into wall clock time.
+     *
+     * @param nanoTime Nano time of a record.
+     * @return Milliseconds since the epoch.
+     */
+    public long toMillis(long nanoTime) {
+        return startMillis + (nanoTime - startNanoTime) / 1000000L;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return Record, null once we reached the end of the file.
+     */
+    @Nullable
+    public CaptureRecord next() {
+        if (ended || buffer.remaining() < 4) {
+            ended = true;
+            return null;
+        }
+        int recordLength = buffer.getInt();
+        if (recordLength == CaptureFormat.END || recordLength < CaptureFormat.RECORD_HEADER_SIZE
+                || recordLength > buffer.remaining()) {
+            ended = true;
+            return null;
+        }
+        long nanoTime = buffer.getLong();
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        int packetID = buffer.getInt();
+        int length = buffer.getInt();
+        CaptureDirection direction = DIRECTIONS[buffer.get()];
+        PacketState state = STATES[buffer.get()];
+        byte[] data = new byte[recordLength - CaptureFormat.RECORD_HEADER_SIZE];
+        buffer.get(data);
+        return new CaptureRecord(nanoTime, uuid, direction, state, packetID, length, data);
+    }
+
+    /**
+     * Read all remaining records.
+     *
+     * @return Records
+     */
+    public List<CaptureRecord> readAll() {
+        List<CaptureRecord> records = new ArrayList<>();
+        CaptureRecord record;
+        while ((record = next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+    }
+}
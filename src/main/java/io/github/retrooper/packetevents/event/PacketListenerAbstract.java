@@ -107,6 +107,15 @@ public abstract class PacketListenerAbstract {
     public void onPlayerEject(PlayerEjectEvent event) {
     }
 
+    /**
+     * Called on the asynchronous thread that samples the traffic statistics, not on the main thread.
+     * Schedule a task if you need to use the Bukkit API, for example to kick the player.
+     *
+     * @param event Traffic threshold event
+     */
+    public void onTrafficThreshold(TrafficThresholdEvent event) {
+    }
+
     public void onPacketEventExternal(PacketEvent event) {
     }
 
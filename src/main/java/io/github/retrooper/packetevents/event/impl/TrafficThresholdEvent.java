@@ -0,0 +1,95 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.event.impl;
+
+import io.github.retrooper.packetevents.event.PacketEvent;
+import io.github.retrooper.packetevents.event.PacketListenerAbstract;
+import io.github.retrooper.packetevents.event.eventtypes.PlayerEvent;
+import io.github.retrooper.packetevents.utils.traffic.ConnectionTraffic;
+import io.github.retrooper.packetevents.utils.traffic.TrafficCounter;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The {@code TrafficThresholdEvent} event is fired when the traffic of a player rises above a configured threshold.
+ * It is fired once when the threshold is crossed, and again if the rate drops below it and crosses it another time.
+ * This event is always called asynchronously.
+ *
+ * @author retrooper
+ * @see io.github.retrooper.packetevents.utils.traffic.TopTalkers#setThreshold(TrafficCounter, long)
+ * @since 1.8.4
+ */
+public final class TrafficThresholdEvent extends PacketEvent implements PlayerEvent {
+    private final Player player;
+    private final ConnectionTraffic traffic;
+    private final TrafficCounter counter;
+    private final long rate;
+    private final long threshold;
+
+    public TrafficThresholdEvent(Player player, ConnectionTraffic traffic, TrafficCounter counter, long rate, long threshold) {
+        this.player = player;
+        this.traffic = traffic;
+        this.counter = counter;
+        this.rate = rate;
+        this.threshold = threshold;
+    }
+
+    @NotNull
+    @Override
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Traffic of the player's connection, use it to find the packet types responsible.
+     *
+     * @return Connection traffic
+     */
+    @NotNull
+    public ConnectionTraffic getTraffic() {
+        return traffic;
+    }
+
+    @NotNull
+    public TrafficCounter getCounter() {
+        return counter;
+    }
+
+    /**
+     * Rate per second that crossed the threshold.
+     *
+     * @return Rate
+     */
+    public long getRate() {
+        return rate;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    @Override
+    public void call(PacketListenerAbstract listener) {
+        listener.onTrafficThreshold(this);
+    }
+
+    @Override
+    public boolean isInbuilt() {
+        return true;
+    }
+}
@@ -23,6 +23,8 @@ import io.github.retrooper.packetevents.event.PacketEvent;
 import io.github.retrooper.packetevents.event.PacketListener;
 import io.github.retrooper.packetevents.event.PacketListenerAbstract;
 import io.github.retrooper.packetevents.event.PacketListenerDynamic;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This is the event manager interface.
@@ -53,6 +55,18 @@ public interface EventManager {
         return this;
     }
 
+    /**
+     * Call a packet event on all listeners and on the listeners registered for one connection.
+     *
+     * @param event           {@link PacketEvent}
+     * @param scopedListeners {@link ScopedListeners} of the connection, may be null.
+     * @return Same event manager instance.
+     */
+    default EventManager callEvent(PacketEvent event, @Nullable ScopedListeners scopedListeners) {
+        PEEventManager.EVENT_MANAGER_MODERN.callEvent(event, scopedListeners);
+        return this;
+    }
+
     /**
      * Register a deprecated event listener.
      * Not recommended to use the deprecated event listener.
@@ -180,6 +194,97 @@ public interface EventManager {
         return this;
     }
 
+    /**
+     * Register a PacketListenerAbstract listener that only receives the events of one player.
+     * The listener is stored with the player's connection and is removed automatically once the player disconnects.
+     *
+     * @param player   Player
+     * @param listener {@link PacketListenerAbstract}
+     * @return Same event manager instance.
+     * @throws IllegalStateException If the player isn't injected.
+     */
+    default EventManager registerListener(Player player, PacketListenerAbstract listener) {
+        return registerChannelListener(PacketEvents.get().getPlayerUtils().getChannel(player), listener);
+    }
+
+    /**
+     * Unregister a PacketListenerAbstract listener of one player.
+     *
+     * @param player   Player
+     * @param listener {@link PacketListenerAbstract}
+     * @return Same event manager instance.
+     */
+    default EventManager unregisterListener(Player player, PacketListenerAbstract listener) {
+        return unregisterChannelListener(PacketEvents.get().getPlayerUtils().getChannel(player), listener);
+    }
+
+    /**
+     * Register a PacketListenerAbstract listener that only receives the events of one connection.
+     * Unlike {@link #registerListener(Player, PacketListenerAbstract)} this works before the player has joined,
+     * for example for the login packets.
+     *
+     * @param channel  Netty channel
+     * @param listener {@link PacketListenerAbstract}
+     * @return Same event manager instance.
+     * @throws IllegalStateException If the channel isn't injected.
+     */
+    default EventManager registerChannelListener(Object channel, PacketListenerAbstract listener) {
+        ScopedListeners scopedListeners = channel != null ? PacketEvents.get().getInjector().getScopedListeners(channel) : null;
+        if (scopedListeners == null) {
+            throw new IllegalStateException("Cannot register a listener for a connection that isn't injected.");
+        }
+        scopedListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Unregister a PacketListenerAbstract listener of one connection.
+     *
+     * @param channel  Netty channel
+     * @param listener {@link PacketListenerAbstract}
+     * @return Same event manager instance.
+     */
+    default EventManager unregisterChannelListener(Object channel, PacketListenerAbstract listener) {
+        ScopedListeners scopedListeners = channel != null ? PacketEvents.get().getInjector().getScopedListeners(channel) : null;
+        if (scopedListeners != null) {
+            scopedListeners.remove(listener);
+        }
+        return this;
+    }
+
+    /**
+     * Measure how long every PacketListenerAbstract listener takes.
+     * Only one profiler can be set at a time.
+     *
+     * @param profiler {@link ListenerProfiler}, null to stop measuring.
+     * @return Same event manager instance.
+     */
+    default EventManager setListenerProfiler(ListenerProfiler profiler) {
+        PEEventManager.EVENT_MANAGER_MODERN.setProfiler(profiler);
+        return this;
+    }
+
+    /**
+     * Exceptions and circuit breaker state of a PacketListenerAbstract listener.
+     *
+     * @param listener {@link PacketListenerAbstract}
+     * @return {@link ListenerHealth}, null if the listener has never thrown an exception.
+     */
+    default ListenerHealth getListenerHealth(PacketListenerAbstract listener) {
+        return PEEventManager.EVENT_MANAGER_MODERN.getListenerHealth(listener);
+    }
+
+    /**
+     * Call a bypassed PacketListenerAbstract listener again and forget its failures.
+     *
+     * @param listener {@link PacketListenerAbstract}
+     * @return Same event manager instance.
+     */
+    default EventManager resetListenerHealth(PacketListenerAbstract listener) {
+        PEEventManager.EVENT_MANAGER_MODERN.resetListenerHealth(listener);
+        return this;
+    }
+
     /**
      * Unregister all registered event listeners.
      * All the deprecated and the dynamic listeners will be unregistered.
@@ -24,14 +24,23 @@ import io.github.retrooper.packetevents.event.PacketListenerAbstract;
 import io.github.retrooper.packetevents.event.eventtypes.CancellableEvent;
 import io.github.retrooper.packetevents.event.priority.PacketEventPriority;
 import io.github.retrooper.packetevents.event.PacketListenerPriority;
+import io.github.retrooper.packetevents.settings.PacketEventsSettings;
 
 import java.util.HashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 class EventManagerModern {
     private final Map<Byte, HashSet<PacketListenerAbstract>> listenersMap = new ConcurrentHashMap<>();
+    private final Map<PacketListenerAbstract, ListenerHealth> healthMap = new ConcurrentHashMap<>();
+    /**
+     * Amount of listeners whose circuit breaker isn't closed, we only look up the health of listeners if there are any.
+     */
+    private final AtomicInteger unhealthyListeners = new AtomicInteger();
+    private volatile ListenerProfiler profiler;
 
     /**
      * Call the PacketEvent.
@@ -45,29 +54,127 @@ class EventManagerModern {
      * @see EventManagerLegacy#callEvent(PacketEvent, byte)
      */
     public void callEvent(final PacketEvent event) {
+        callEvent(event, null);
+    }
+
+    /**
+     * Call the PacketEvent on the global listeners and the listeners of a connection.
+     * At every priority the global listeners are called first.
+     *
+     * @param event           {@link PacketEvent}
+     * @param scopedListeners Listeners of the connection, may be null.
+     * @see #callEvent(PacketEvent)
+     */
+    public void callEvent(final PacketEvent event, final ScopedListeners scopedListeners) {
         byte highestReachedPriority = (byte) (PacketListenerPriority.LOWEST.getId() - 1);
+        ListenerProfiler profiler = this.profiler;
+        boolean scoped = scopedListeners != null && !scopedListeners.isEmpty();
         for (byte priority = PacketListenerPriority.LOWEST.getId(); priority <= PacketListenerPriority.MONITOR.getId(); priority++) {
             HashSet<PacketListenerAbstract> listeners = listenersMap.get(priority);
+            boolean called = false;
             if (listeners != null) {
                 for (PacketListenerAbstract listener : listeners) {
-                    try {
-                        event.call(listener);
-                    } catch (Exception ex) {
-                        PacketEvents.get().getPlugin().getLogger()
-                                .log(Level.SEVERE, "PacketEvents found an exception while calling a packet listener.", ex);
-                    }
-                    //TODO Remove, because its redundant. We are only keeping it for compatibility with the legacy event manager.
-                    if (event instanceof CancellableEvent) {
-                        if (priority > highestReachedPriority) {
-                            highestReachedPriority = priority;
-                        }
-                    }
+                    called |= callListener(listener, event, profiler);
+                }
+            }
+            if (scoped) {
+                for (PacketListenerAbstract listener : scopedListeners.getListeners(priority)) {
+                    called |= callListener(listener, event, profiler);
                 }
             }
+            //TODO Remove, because its redundant. We are only keeping it for compatibility with the legacy event manager.
+            if (called && event instanceof CancellableEvent) {
+                highestReachedPriority = priority;
+            }
         }
         PEEventManager.EVENT_MANAGER_LEGACY.callEvent(event, highestReachedPriority);
     }
 
+    /**
+     * Call the event on one listener.
+     *
+     * @return False if the listener was bypassed by its circuit breaker.
+     */
+    private boolean callListener(PacketListenerAbstract listener, PacketEvent event, ListenerProfiler profiler) {
+        ListenerHealth health = null;
+        if (unhealthyListeners.get() > 0) {
+            health = healthMap.get(listener);
+            if (health != null && !health.tryEnter(System.nanoTime())) {
+                //The circuit breaker is open
+                return false;
+            }
+        }
+        long start = profiler != null ? System.nanoTime() : 0L;
+        try {
+            event.call(listener);
+            if (health != null && health.onSuccess()) {
+                unhealthyListeners.decrementAndGet();
+                PacketEvents.get().getPlugin().getLogger().info("[packetevents] The packet listener "
+                        + listener.getClass().getName() + " recovered and is called again.");
+            }
+        } catch (Exception ex) {
+            onListenerFailure(listener, ex);
+        }
+        if (profiler != null) {
+            profiler.onListenerCalled(listener, event, System.nanoTime() - start);
+        }
+        return true;
+    }
+
+    private void onListenerFailure(PacketListenerAbstract listener, Exception ex) {
+        long now = System.nanoTime();
+        ListenerHealth health = healthMap.computeIfAbsent(listener, ListenerHealth::new);
+        PacketEventsSettings settings = PacketEvents.get().getSettings();
+        int threshold = settings.getListenerBreakerThreshold();
+        long cooldown = TimeUnit.SECONDS.toNanos(settings.getListenerBreakerCooldown());
+        if (health.onFailure(now, threshold, TimeUnit.SECONDS.toNanos(settings.getListenerBreakerWindow()), cooldown)) {
+            unhealthyListeners.incrementAndGet();
+            PacketEvents.get().getPlugin().getLogger().warning("[packetevents] The packet listener " + listener.getClass().getName()
+                    + " failed " + threshold + " times within " + settings.getListenerBreakerWindow()
+                    + " seconds, it won't be called for " + settings.getListenerBreakerCooldown() + " seconds.");
+        }
+        //Logging every stack trace synchronously can take the server down when a listener fails on every packet
+        long suppressed = health.shouldLog(ex, now);
+        if (suppressed == 0) {
+            PacketEvents.get().getPlugin().getLogger().log(Level.SEVERE, "PacketEvents found an exception while calling the packet listener "
+                    + listener.getClass().getName() + ".", ex);
+        } else if (suppressed > 0) {
+            PacketEvents.get().getPlugin().getLogger().log(Level.SEVERE, "PacketEvents found an exception while calling the packet listener "
+                    + listener.getClass().getName() + ", " + suppressed + " similar exceptions were not logged.", ex);
+        }
+    }
+
+    /**
+     * Exceptions and circuit breaker state of a listener.
+     *
+     * @param listener {@link PacketListenerAbstract}
+     * @return Listener health, null if the listener has never thrown an exception.
+     */
+    public ListenerHealth getListenerHealth(PacketListenerAbstract listener) {
+        return healthMap.get(listener);
+    }
+
+    /**
+     * Close the circuit breaker of a listener and forget its failures.
+     *
+     * @param listener {@link PacketListenerAbstract}
+     */
+    public void resetListenerHealth(PacketListenerAbstract listener) {
+        ListenerHealth health = healthMap.get(listener);
+        if (health != null && health.reset()) {
+            unhealthyListeners.decrementAndGet();
+        }
+    }
+
+    /**
+     * Measure the listener calls.
+     *
+     * @param profiler Profiler, null to stop measuring.
+     */
+    public void setProfiler(ListenerProfiler profiler) {
+        this.profiler = profiler;
+    }
+
     /**
      * Register the dynamic packet event listener.
      *
@@ -105,6 +212,10 @@ class EventManagerModern {
         if (listenerSet != null) {
             listenerSet.remove(listener);
         }
+        ListenerHealth health = healthMap.remove(listener);
+        if (health != null && health.getState() != ListenerHealth.State.CLOSED) {
+            unhealthyListeners.decrementAndGet();
+        }
     }
 
     /**
@@ -123,5 +234,7 @@ class EventManagerModern {
      */
     public synchronized void unregisterAllListeners() {
         listenersMap.clear();
+        healthMap.clear();
+        unhealthyListeners.set(0);
     }
 }
\ No newline at end of file
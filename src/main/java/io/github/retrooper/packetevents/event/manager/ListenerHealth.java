@@ -0,0 +1,240 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.event.manager;
+
+import io.github.retrooper.packetevents.event.PacketListenerAbstract;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Exceptions of one packet listener and the state of its circuit breaker.
+ * After too many failures within a window the breaker opens and the listener is bypassed until the cooldown is over.
+ * The first call after the cooldown is a trial: if it fails the breaker opens again right away, if it succeeds the breaker closes.
+ * Only that call is let through, the listener stays bypassed for every other call until the trial is over.
+ * <p>
+ * Exceptions with the same signature (exception type and throwing frame) are logged with an exponential backoff,
+ * starting at one second and growing to five minutes.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EventManager#getListenerHealth(PacketListenerAbstract)
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#listenerBreakerThreshold(int)
+ */
+public final class ListenerHealth {
+    private static final long MIN_LOG_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_LOG_BACKOFF = TimeUnit.MINUTES.toNanos(5);
+    private final PacketListenerAbstract listener;
+    private final LongAdder failures = new LongAdder();
+    private final Map<String, LogBackoff> logBackoff = new ConcurrentHashMap<>();
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private volatile long openUntil;
+    private long windowStart;
+    private int windowFailures;
+    private int trips;
+
+    ListenerHealth(PacketListenerAbstract listener) {
+        this.listener = listener;
+    }
+
+    public PacketListenerAbstract getListener() {
+        return listener;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Is the listener currently bypassed?
+     *
+     * @return Is the breaker open?
+     */
+    public boolean isBypassed() {
+        return state.get() == State.OPEN && System.nanoTime() - openUntil < 0;
+    }
+
+    /**
+     * Amount of exceptions the listener has thrown since it was registered.
+     *
+     * @return Failures
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * How often the breaker has opened.
+     *
+     * @return Trips
+     */
+    public synchronized int getTrips() {
+        return trips;
+    }
+
+    /**
+     * Remaining time until a bypassed listener is called again.
+     *
+     * @param unit Time unit
+     * @return Remaining time, zero if the breaker isn't open.
+     */
+    public long getRemainingCooldown(TimeUnit unit) {
+        long remaining = openUntil - System.nanoTime();
+        return state.get() == State.OPEN && remaining > 0 ? unit.convert(remaining, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * May the listener be called?
+     * Moves an open breaker to the trial state once the cooldown is over.
+     * Concurrent callers race for the trial, only the one that wins the compare-and-set calls the listener.
+     *
+     * @param now Current {@link System#nanoTime()}
+     * @return Should the listener be called?
+     */
+    boolean tryEnter(long now) {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN || now - openUntil < 0) {
+            //Another call is on trial or the cooldown isn't over yet
+            return false;
+        }
+        return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * The listener processed an event without throwing.
+     *
+     * @return Did the breaker close?
+     */
+    boolean onSuccess() {
+        if (state.get() != State.HALF_OPEN) {
+            return false;
+        }
+        synchronized (this) {
+            if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                windowFailures = 0;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The listener threw an exception.
+     *
+     * @param now         Current {@link System#nanoTime()}
+     * @param threshold   Failures within the window that open the breaker, zero if the breaker is disabled.
+     * @param windowNanos Length of the window
+     * @param cooldown    How long the breaker stays open
+     * @return Was the breaker closed before and opened now?
+     */
+    synchronized boolean onFailure(long now, int threshold, long windowNanos, long cooldown) {
+        failures.increment();
+        if (state.get() == State.HALF_OPEN) {
+            //The trial failed, even if the breaker was disabled since, otherwise it would stay on trial forever
+            open(now, cooldown);
+            return false;
+        }
+        if (threshold <= 0) {
+            return false;
+        }
+        if (windowFailures == 0 || now - windowStart > windowNanos) {
+            windowStart = now;
+            windowFailures = 0;
+        }
+        if (++windowFailures >= threshold && state.get() == State.CLOSED) {
+            open(now, cooldown);
+            return true;
+        }
+        return false;
+    }
+
+    private void open(long now, long cooldown) {
+        openUntil = now + cooldown;
+        state.set(State.OPEN);
+        windowFailures = 0;
+        trips++;
+    }
+
+    /**
+     * Decide if an exception should be logged.
+     *
+     * @param ex  Exception
+     * @param now Current {@link System#nanoTime()}
+     * @return Amount of similar exceptions suppressed since the last time we logged it, -1 if this one should be suppressed too.
+     */
+    long shouldLog(Throwable ex, long now) {
+        StackTraceElement[] stackTrace = ex.getStackTrace();
+        String signature = stackTrace.length > 0 ? ex.getClass().getName() + '@' + stackTrace[0] : ex.getClass().getName();
+        LogBackoff backoff = logBackoff.computeIfAbsent(signature, key -> new LogBackoff());
+        synchronized (backoff) {
+            if (backoff.nextLog != 0 && now - backoff.nextLog < 0) {
+                backoff.suppressed++;
+                return -1;
+            }
+            long suppressed = backoff.suppressed;
+            backoff.suppressed = 0;
+            //Back off further while the exception keeps coming, start over once it went quiet
+            backoff.delay = backoff.nextLog != 0 && now - backoff.nextLog < backoff.delay
+                    ? Math.min(backoff.delay << 1, MAX_LOG_BACKOFF) : MIN_LOG_BACKOFF;
+            backoff.nextLog = now + backoff.delay;
+            return suppressed;
+        }
+    }
+
+    /**
+     * Close the breaker and forget the failures.
+     *
+     * @return Was the breaker open or on trial?
+     */
+    synchronized boolean reset() {
+        boolean closed = state.getAndSet(State.CLOSED) == State.CLOSED;
+        failures.reset();
+        logBackoff.clear();
+        windowFailures = 0;
+        trips = 0;
+        return !closed;
+    }
+
+    public enum State {
+        /**
+         * The listener is called.
+         */
+        CLOSED,
+        /**
+         * The listener failed too often and is bypassed.
+         */
+        OPEN,
+        /**
+         * The cooldown is over and one call is on trial, it decides if the listener stays enabled.
+         * Every other call bypasses the listener until then.
+         */
+        HALF_OPEN
+    }
+
+    private static final class LogBackoff {
+        private long nextLog;
+        private long delay;
+        private long suppressed;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.event.manager;
+
+import io.github.retrooper.packetevents.event.PacketEvent;
+import io.github.retrooper.packetevents.event.PacketListenerAbstract;
+
+/**
+ * Measures how long the packet listeners take.
+ * The profiler is called on the thread of the event, after every listener call.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EventManager#setListenerProfiler(ListenerProfiler)
+ */
+@FunctionalInterface
+public interface ListenerProfiler {
+    /**
+     * A listener processed an event.
+     *
+     * @param listener Listener
+     * @param event    Event
+     * @param nanos    Time the listener took in nanoseconds.
+     */
+    void onListenerCalled(PacketListenerAbstract listener, PacketEvent event, long nanos);
+}
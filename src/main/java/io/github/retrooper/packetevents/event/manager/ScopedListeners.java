@@ -0,0 +1,120 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.event.manager;
+
+import io.github.retrooper.packetevents.event.PacketListenerAbstract;
+import io.github.retrooper.packetevents.event.PacketListenerPriority;
+
+import java.util.Arrays;
+
+/**
+ * Listeners registered for a single connection, kept by the channel handler of that connection.
+ * When an event of the connection is called they are merged with the global listeners by priority,
+ * global listeners of a priority are called before the connection's listeners of that priority.
+ * The listeners are gone with the channel handler once the connection is closed.
+ * Registering is copy-on-write, calling events doesn't need any locks.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EventManager#registerListener(org.bukkit.entity.Player, PacketListenerAbstract)
+ */
+public final class ScopedListeners {
+    private static final int PRIORITIES = PacketListenerPriority.MONITOR.getId() - PacketListenerPriority.LOWEST.getId() + 1;
+    private static final PacketListenerAbstract[] EMPTY = new PacketListenerAbstract[0];
+    private volatile PacketListenerAbstract[][] listeners;
+
+    public boolean isEmpty() {
+        return listeners == null;
+    }
+
+    /**
+     * Register a listener for this connection.
+     *
+     * @param listener Listener
+     * @return False if the listener was already registered.
+     */
+    public synchronized boolean add(PacketListenerAbstract listener) {
+        PacketListenerAbstract[][] listeners = this.listeners;
+        int index = listener.getPriority().getId() - PacketListenerPriority.LOWEST.getId();
+        if (listeners == null) {
+            listeners = new PacketListenerAbstract[PRIORITIES][];
+            Arrays.fill(listeners, EMPTY);
+        } else {
+            for (PacketListenerAbstract registered : listeners[index]) {
+                if (registered == listener) {
+                    return false;
+                }
+            }
+            listeners = listeners.clone();
+        }
+        PacketListenerAbstract[] priorityListeners = Arrays.copyOf(listeners[index], listeners[index].length + 1);
+        priorityListeners[priorityListeners.length - 1] = listener;
+        listeners[index] = priorityListeners;
+        this.listeners = listeners;
+        return true;
+    }
+
+    /**
+     * Unregister a listener of this connection.
+     *
+     * @param listener Listener
+     * @return False if the listener wasn't registered.
+     */
+    public synchronized boolean remove(PacketListenerAbstract listener) {
+        PacketListenerAbstract[][] listeners = this.listeners;
+        if (listeners == null) {
+            return false;
+        }
+        int index = listener.getPriority().getId() - PacketListenerPriority.LOWEST.getId();
+        PacketListenerAbstract[] priorityListeners = listeners[index];
+        for (int i = 0; i < priorityListeners.length; i++) {
+            if (priorityListeners[i] == listener) {
+                PacketListenerAbstract[] remaining = new PacketListenerAbstract[priorityListeners.length - 1];
+                System.arraycopy(priorityListeners, 0, remaining, 0, i);
+                System.arraycopy(priorityListeners, i + 1, remaining, i, remaining.length - i);
+                listeners = listeners.clone();
+                listeners[index] = remaining;
+                boolean empty = true;
+                for (PacketListenerAbstract[] registered : listeners) {
+                    if (registered.length != 0) {
+                        empty = false;
+                        break;
+                    }
+                }
+                this.listeners = empty ? null : listeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        listeners = null;
+    }
+
+    /**
+     * Listeners of a priority.
+     *
+     * @param priority Priority ID
+     * @return Listeners, don't modify the array.
+     */
+    PacketListenerAbstract[] getListeners(byte priority) {
+        PacketListenerAbstract[][] listeners = this.listeners;
+        return listeners == null ? EMPTY : listeners[priority - PacketListenerPriority.LOWEST.getId()];
+    }
+}
@@ -18,6 +18,7 @@
 
 package io.github.retrooper.packetevents.injector;
 
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import org.bukkit.entity.Player;
 
 public interface ChannelInjector {
@@ -40,4 +41,12 @@ public interface ChannelInjector {
     void flushPackets(Object channel);
 
     void sendPacket(Object channel, Object rawNMSPacket);
+
+    /**
+     * Listeners registered for a single connection.
+     *
+     * @param channel Netty channel
+     * @return Listeners kept by our channel handler, null if the channel isn't injected.
+     */
+    ScopedListeners getScopedListeners(Object channel);
 }
@@ -21,6 +21,7 @@ package io.github.retrooper.packetevents.injector;
 import io.github.retrooper.packetevents.PacketEvents;
 import io.github.retrooper.packetevents.event.impl.PlayerEjectEvent;
 import io.github.retrooper.packetevents.event.impl.PlayerInjectEvent;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.injector.legacy.early.EarlyChannelInjectorLegacy;
 import io.github.retrooper.packetevents.injector.legacy.late.LateChannelInjectorLegacy;
 import io.github.retrooper.packetevents.injector.modern.early.EarlyChannelInjectorModern;
@@ -95,4 +96,8 @@ public class GlobalChannelInjector {
     public void sendPacket(Object ch, Object rawNMSPacket) {
         injector.sendPacket(ch, rawNMSPacket);
     }
+
+    public ScopedListeners getScopedListeners(Object ch) {
+        return injector.getScopedListeners(ch);
+    }
 }
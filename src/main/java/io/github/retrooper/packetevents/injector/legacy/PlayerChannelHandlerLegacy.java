@@ -19,7 +19,9 @@
 package io.github.retrooper.packetevents.injector.legacy;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.processor.PacketProcessorInternal;
+import io.github.retrooper.packetevents.utils.visibility.EntityVisibilityFilter;
 import net.minecraft.util.io.netty.buffer.ByteBuf;
 import net.minecraft.util.io.netty.channel.ChannelDuplexHandler;
 import net.minecraft.util.io.netty.channel.ChannelHandler;
@@ -33,13 +35,17 @@ public class PlayerChannelHandlerLegacy extends ChannelDuplexHandler {
      * This is null until we inject the player.
      */
     public volatile Player player;
+    /**
+     * Listeners registered for this connection only.
+     */
+    public final ScopedListeners scopedListeners = new ScopedListeners();
 
     @Override
     public void channelRead(final ChannelHandlerContext ctx, Object packet) throws Exception {
-        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().read(player, ctx.channel(), packet);
+        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().read(player, ctx.channel(), packet, scopedListeners);
         if (data.packet != null) {
             super.channelRead(ctx, data.packet);
-            PacketEvents.get().getInternalPacketProcessor().postRead(player, ctx.channel(), data.packet);
+            PacketEvents.get().getInternalPacketProcessor().postRead(player, ctx.channel(), data.packet, scopedListeners);
         }
     }
 
@@ -50,7 +56,18 @@ public class PlayerChannelHandlerLegacy extends ChannelDuplexHandler {
             super.write(ctx, packet, promise);
             return;
         }
-        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().write(player, ctx.channel(), packet);
+        Player player = this.player;
+        if (player != null) {
+            EntityVisibilityFilter filter = PacketEvents.get().getPlayerUtils().entityVisibilityMap.get(player.getUniqueId());
+            if (filter != null) {
+                packet = filter.filter(packet);
+                if (packet == null) {
+                    promise.trySuccess();
+                    return;
+                }
+            }
+        }
+        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().write(player, ctx.channel(), packet, scopedListeners);
         if (data.postAction != null) {
             promise.addListener(f -> {
                 data.postAction.run();
@@ -58,7 +75,7 @@ public class PlayerChannelHandlerLegacy extends ChannelDuplexHandler {
         }
         if (data.packet != null) {
             super.write(ctx, data.packet, promise);
-            PacketEvents.get().getInternalPacketProcessor().postWrite(player, ctx.channel(), data.packet);
+            PacketEvents.get().getInternalPacketProcessor().postWrite(player, ctx.channel(), data.packet, scopedListeners);
         }
     }
 }
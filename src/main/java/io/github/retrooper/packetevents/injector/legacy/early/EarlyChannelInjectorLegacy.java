@@ -19,6 +19,7 @@
 package io.github.retrooper.packetevents.injector.legacy.early;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.injector.EarlyInjector;
 import io.github.retrooper.packetevents.injector.legacy.PlayerChannelHandlerLegacy;
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
@@ -323,6 +324,12 @@ public class EarlyChannelInjectorLegacy implements EarlyInjector {
         }
     }
 
+    @Override
+    public ScopedListeners getScopedListeners(Object rawChannel) {
+        PlayerChannelHandlerLegacy handler = rawChannel != null ? getHandler(rawChannel) : null;
+        return handler != null ? handler.scopedListeners : null;
+    }
+
     @Override
     public void updatePlayerObject(Player player, Object rawChannel) {
         PlayerChannelHandlerLegacy handler = getHandler(rawChannel);
@@ -19,10 +19,12 @@
 package io.github.retrooper.packetevents.injector.legacy.late;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.injector.LateInjector;
 import io.github.retrooper.packetevents.injector.legacy.PlayerChannelHandlerLegacy;
 import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
 import net.minecraft.util.io.netty.channel.Channel;
+import net.minecraft.util.io.netty.channel.ChannelHandler;
 import org.bukkit.entity.Player;
 
 public class LateChannelInjectorLegacy implements LateInjector {
@@ -98,4 +100,13 @@ public class LateChannelInjectorLegacy implements LateInjector {
         }
         channel.pipeline().writeAndFlush(packet);
     }
-}
\ No newline at end of file
+
+    @Override
+    public ScopedListeners getScopedListeners(Object rawChannel) {
+        if (rawChannel == null) {
+            return null;
+        }
+        ChannelHandler handler = ((Channel) rawChannel).pipeline().get(PacketEvents.get().getHandlerName());
+        return handler instanceof PlayerChannelHandlerLegacy ? ((PlayerChannelHandlerLegacy) handler).scopedListeners : null;
+    }
+}
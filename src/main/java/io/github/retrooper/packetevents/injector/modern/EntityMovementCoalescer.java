@@ -0,0 +1,354 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.injector.modern;
+
+import io.github.retrooper.packetevents.packettype.PacketType;
+import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.packetwrappers.play.out.entity.WrappedPacketOutEntity;
+import io.github.retrooper.packetevents.packetwrappers.play.out.entityteleport.WrappedPacketOutEntityTeleport;
+import io.github.retrooper.packetevents.utils.collection.IntObjectMap;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.Vector3d;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Buffers the outgoing entity movement packets of one channel and merges the packets of the same entity.
+ * Relative moves are summed up, a teleport absorbs the moves after it and only the latest head rotation and velocity are kept.
+ * The buffer is written before any packet of the channel we can't merge and at the start of every server tick.
+ * Flushes don't write it, otherwise the buffer would never hold more than one packet.
+ * Packets are only read through wrappers when they are merged, a single packet per entity is sent as it is.
+ * Only accessed by the event loop of the channel, except for {@link #flushPendingChannels()}.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class EntityMovementCoalescer {
+    private static final Set<EntityMovementCoalescer> PENDING_CHANNELS = ConcurrentHashMap.newKeySet();
+    private static final float ROTATION_FACTOR = 256.0F / 360.0F;
+    private static final int MAX_POOLED_STATES = 64;
+    private final PlayerChannelHandlerModern handler;
+    private final IntObjectMap<EntityState> states = new IntObjectMap<>();
+    //Entities in the order we buffered their first packet
+    private final List<EntityState> order = new ArrayList<>();
+    private final ArrayDeque<EntityState> pool = new ArrayDeque<>();
+    private final boolean legacyDeltas;
+    private final double deltaDivisor;
+    private final int maxDelta, minDelta;
+    private volatile ChannelHandlerContext context;
+
+    EntityMovementCoalescer(PlayerChannelHandlerModern handler) {
+        this.handler = handler;
+        this.legacyDeltas = WrappedPacket.version.isOlderThan(ServerVersion.v_1_9);
+        //Bytes in 1/32 blocks before 1.9, shorts in 1/4096 blocks since then
+        this.deltaDivisor = legacyDeltas ? 32.0 : 4096.0;
+        this.maxDelta = legacyDeltas ? Byte.MAX_VALUE : Short.MAX_VALUE;
+        this.minDelta = legacyDeltas ? Byte.MIN_VALUE : Short.MIN_VALUE;
+    }
+
+    /**
+     * Write the buffered packets of all channels.
+     * Called at the start of every server tick.
+     */
+    public static void flushPendingChannels() {
+        for (EntityMovementCoalescer coalescer : PENDING_CHANNELS) {
+            PENDING_CHANNELS.remove(coalescer);
+            ChannelHandlerContext ctx = coalescer.context;
+            if (ctx != null) {
+                ctx.executor().execute(() -> {
+                    if (coalescer.writeBuffered(ctx)) {
+                        ctx.flush();
+                    }
+                });
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return order.isEmpty();
+    }
+
+    /**
+     * Buffer a packet if it is a movement packet.
+     *
+     * @param packetID Packet type ID the processor found for the packet.
+     * @return Has the packet been buffered?
+     */
+    boolean offer(ChannelHandlerContext ctx, Object packet, byte packetID, ChannelPromise promise) {
+        EntityState state;
+        switch (packetID) {
+            case PacketType.Play.Server.REL_ENTITY_MOVE:
+            case PacketType.Play.Server.REL_ENTITY_MOVE_LOOK:
+            case PacketType.Play.Server.ENTITY_LOOK:
+                state = getState(ctx, PacketType.entityIdOf(packet));
+                if (!state.teleporting && state.movePackets == 0) {
+                    //A single movement packet is sent as it is, we only read it once another one is merged into it.
+                    state.movePacket = packet;
+                    state.movePacketID = packetID;
+                    state.movePackets = 1;
+                    break;
+                }
+                if (state.movePacket != null) {
+                    Object firstPacket = state.movePacket;
+                    state.movePacket = null;
+                    merge(ctx, state, firstPacket, state.movePacketID);
+                }
+                if (state.teleportPacket != null) {
+                    readTeleport(state, state.teleportPacket);
+                    state.teleportPacket = null;
+                }
+                merge(ctx, state, packet, packetID);
+                state.movePackets++;
+                break;
+            case PacketType.Play.Server.ENTITY_TELEPORT:
+                state = getState(ctx, PacketType.entityIdOf(packet));
+                //The teleport overrides all movement before it, we only read it once movement is merged into it.
+                state.teleporting = true;
+                state.teleportPacket = packet;
+                state.moving = false;
+                state.rotating = false;
+                state.deltaX = state.deltaY = state.deltaZ = 0;
+                state.movePackets = 0;
+                state.movePacket = null;
+                break;
+            case PacketType.Play.Server.ENTITY_HEAD_ROTATION:
+                state = getState(ctx, PacketType.entityIdOf(packet));
+                state.headRotationPacket = packet;
+                break;
+            case PacketType.Play.Server.ENTITY_VELOCITY:
+                state = getState(ctx, PacketType.entityIdOf(packet));
+                state.velocityPacket = packet;
+                break;
+            default:
+                return false;
+        }
+        state.promises.add(promise);
+        return true;
+    }
+
+    /**
+     * Add a movement packet to the buffered movement of its entity.
+     */
+    private void merge(ChannelHandlerContext ctx, EntityState state, Object packet, byte packetID) {
+        WrappedPacketOutEntity move = new WrappedPacketOutEntity(new NMSPacket(packet));
+        boolean moving = packetID != PacketType.Play.Server.ENTITY_LOOK;
+        boolean rotating = packetID != PacketType.Play.Server.REL_ENTITY_MOVE;
+        long dx = 0, dy = 0, dz = 0;
+        if (moving) {
+            dx = Math.round(move.getDeltaX() * deltaDivisor);
+            dy = Math.round(move.getDeltaY() * deltaDivisor);
+            dz = Math.round(move.getDeltaZ() * deltaDivisor);
+        }
+        if (moving && !state.teleporting && state.moving
+                && (overflows(state.deltaX + dx) || overflows(state.deltaY + dy) || overflows(state.deltaZ + dz))) {
+            //The sum doesn't fit into one packet, send what we have and start again with this packet.
+            writeState(ctx, state);
+            state.reset();
+            state.movePacket = packet;
+            state.movePacketID = packetID;
+            return;
+        }
+        if (state.teleporting) {
+            state.x += dx / deltaDivisor;
+            state.y += dy / deltaDivisor;
+            state.z += dz / deltaDivisor;
+        } else if (moving) {
+            state.deltaX += dx;
+            state.deltaY += dy;
+            state.deltaZ += dz;
+            state.moving = true;
+        }
+        if (rotating) {
+            state.yaw = toRawAngle(move.getYaw());
+            state.pitch = toRawAngle(move.getPitch());
+            state.rotating = true;
+        }
+        state.onGround = move.isOnGround();
+    }
+
+    private void readTeleport(EntityState state, Object packet) {
+        WrappedPacketOutEntityTeleport teleport = new WrappedPacketOutEntityTeleport(new NMSPacket(packet));
+        Vector3d position = teleport.getPosition();
+        state.x = position.x;
+        state.y = position.y;
+        state.z = position.z;
+        state.yaw = toRawAngle(teleport.getYaw());
+        state.pitch = toRawAngle(teleport.getPitch());
+        state.onGround = teleport.isOnGround();
+    }
+
+    private EntityState getState(ChannelHandlerContext ctx, int entityID) {
+        EntityState state = states.get(entityID);
+        if (state == null) {
+            state = pool.poll();
+            if (state == null) {
+                state = new EntityState();
+            }
+            state.entityID = entityID;
+            states.put(entityID, state);
+            order.add(state);
+            if (order.size() == 1) {
+                context = ctx;
+                PENDING_CHANNELS.add(this);
+            }
+        }
+        return state;
+    }
+
+    private boolean overflows(long delta) {
+        return delta > maxDelta || delta < minDelta;
+    }
+
+    /**
+     * Write all buffered packets in the order their entities were buffered.
+     *
+     * @return Did we write anything?
+     */
+    boolean writeBuffered(ChannelHandlerContext ctx) {
+        if (order.isEmpty()) {
+            return false;
+        }
+        for (EntityState state : order) {
+            writeState(ctx, state);
+            state.reset();
+            if (pool.size() < MAX_POOLED_STATES) {
+                pool.add(state);
+            }
+        }
+        order.clear();
+        states.clear();
+        return true;
+    }
+
+    /**
+     * Fail the promises of the buffered packets, the channel has been closed.
+     */
+    void discard(Throwable cause) {
+        for (EntityState state : order) {
+            for (ChannelPromise promise : state.promises) {
+                promise.tryFailure(cause);
+            }
+            state.reset();
+        }
+        order.clear();
+        states.clear();
+        PENDING_CHANNELS.remove(this);
+    }
+
+    private void writeState(ChannelHandlerContext ctx, EntityState state) {
+        List<Object> packets = new ArrayList<>(3);
+        byte[] packetIDs = new byte[3];
+        try {
+            if (state.teleporting) {
+                packetIDs[packets.size()] = PacketType.Play.Server.ENTITY_TELEPORT;
+                packets.add(state.teleportPacket != null ? state.teleportPacket
+                        : new WrappedPacketOutEntityTeleport(state.entityID, state.x, state.y, state.z,
+                        toAngle(state.yaw), toAngle(state.pitch), state.onGround).asNMSPacket());
+            } else if (state.movePacket != null) {
+                //Only one movement packet, send it as it is.
+                packetIDs[packets.size()] = state.movePacketID;
+                packets.add(state.movePacket);
+            } else if (state.moving || state.rotating) {
+                double dx = state.deltaX / deltaDivisor, dy = state.deltaY / deltaDivisor, dz = state.deltaZ / deltaDivisor;
+                if (state.moving && state.rotating) {
+                    packetIDs[packets.size()] = PacketType.Play.Server.REL_ENTITY_MOVE_LOOK;
+                    packets.add(new WrappedPacketOutEntity.WrappedPacketOutRelEntityMoveLook(state.entityID, dx, dy, dz,
+                            toAngle(state.yaw), toAngle(state.pitch), state.onGround).asNMSPacket());
+                } else if (state.moving) {
+                    packetIDs[packets.size()] = PacketType.Play.Server.REL_ENTITY_MOVE;
+                    packets.add(new WrappedPacketOutEntity.WrappedPacketOutRelEntityMove(state.entityID, dx, dy, dz,
+                            state.onGround).asNMSPacket());
+                } else {
+                    packetIDs[packets.size()] = PacketType.Play.Server.ENTITY_LOOK;
+                    packets.add(new WrappedPacketOutEntity.WrappedPacketOutEntityLook(state.entityID,
+                            toAngle(state.yaw), toAngle(state.pitch), state.onGround).asNMSPacket());
+                }
+            }
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+        if (state.headRotationPacket != null) {
+            packetIDs[packets.size()] = PacketType.Play.Server.ENTITY_HEAD_ROTATION;
+            packets.add(state.headRotationPacket);
+        }
+        if (state.velocityPacket != null) {
+            packetIDs[packets.size()] = PacketType.Play.Server.ENTITY_VELOCITY;
+            packets.add(state.velocityPacket);
+        }
+        List<ChannelPromise> promises = new ArrayList<>(state.promises);
+        state.promises.clear();
+        if (packets.isEmpty()) {
+            for (ChannelPromise promise : promises) {
+                promise.trySuccess();
+            }
+            return;
+        }
+        for (int i = 0; i < packets.size(); i++) {
+            ChannelPromise promise = ctx.newPromise();
+            if (i == packets.size() - 1) {
+                //The buffered packets are written once the last merged packet is written.
+                promise.addListener(future -> {
+                    for (ChannelPromise original : promises) {
+                        if (future.isSuccess()) {
+                            original.trySuccess();
+                        } else {
+                            original.tryFailure(future.cause());
+                        }
+                    }
+                });
+            }
+            handler.writeProcessed(ctx, packets.get(i), packetIDs[i], promise);
+        }
+    }
+
+    private static byte toRawAngle(float angle) {
+        return (byte) Math.round(angle * ROTATION_FACTOR);
+    }
+
+    private static float toAngle(byte rawAngle) {
+        //Half a step towards the outside so the wrapper's truncation restores the exact byte.
+        return (rawAngle >= 0 ? rawAngle + 0.5F : rawAngle - 0.5F) / ROTATION_FACTOR;
+    }
+
+    private static final class EntityState {
+        private final List<ChannelPromise> promises = new ArrayList<>(4);
+        private int entityID;
+        private boolean teleporting, moving, rotating, onGround;
+        private Object teleportPacket, movePacket, headRotationPacket, velocityPacket;
+        private byte movePacketID;
+        private int movePackets;
+        private double x, y, z;
+        private long deltaX, deltaY, deltaZ;
+        private byte yaw, pitch;
+
+        private void reset() {
+            teleporting = moving = rotating = onGround = false;
+            teleportPacket = movePacket = headRotationPacket = velocityPacket = null;
+            movePackets = 0;
+            deltaX = deltaY = deltaZ = 0;
+        }
+    }
+}
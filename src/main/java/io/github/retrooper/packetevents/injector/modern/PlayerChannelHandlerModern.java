@@ -19,28 +19,124 @@
 package io.github.retrooper.packetevents.injector.modern;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
+import io.github.retrooper.packetevents.packettype.PacketType;
+import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.processor.PacketProcessorInternal;
+import io.github.retrooper.packetevents.transformer.AsyncPacketTransformer;
+import io.github.retrooper.packetevents.transformer.AsyncTransformerManager;
+import io.github.retrooper.packetevents.utils.traffic.ConnectionTraffic;
+import io.github.retrooper.packetevents.utils.traffic.TrafficStatistics;
+import io.github.retrooper.packetevents.utils.visibility.EntityVisibilityFilter;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
-import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
 import org.bukkit.entity.Player;
 
-@ChannelHandler.Sharable
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Handler of one player's connection.
+ * It keeps per-connection state (pending writes, coalesced packets, the visibility filter),
+ * so it is not sharable, every channel gets its own instance.
+ */
 public class PlayerChannelHandlerModern extends ChannelDuplexHandler {
     /**
      * Associated player.
      * This is null until we inject the player.
      */
     public volatile Player player;
+    /**
+     * Listeners registered for this connection only.
+     */
+    public final ScopedListeners scopedListeners = new ScopedListeners();
+    /**
+     * Writes held back until the asynchronous transformations before them are done.
+     * Only accessed by the event loop of the channel.
+     */
+    private final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>();
+    private boolean flushPending;
+    /**
+     * Merges the entity movement packets of this channel, null until coalescing is enabled and we send the first packet.
+     * Only accessed by the event loop of the channel.
+     */
+    private EntityMovementCoalescer movementCoalescer;
+    /**
+     * Size of the frame we are decoding and ID of the packet we are encoding, for the traffic statistics.
+     * Only accessed by the event loop of the channel.
+     */
+    int inboundFrameBytes;
+    byte outboundPacketID = PacketType.INVALID;
+    /**
+     * Traffic of this connection, null if the traffic statistics are disabled.
+     */
+    ConnectionTraffic traffic;
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        super.handlerAdded(ctx);
+        TrafficStatistics trafficStatistics = PacketEvents.get().getTrafficStatistics();
+        if (trafficStatistics.isEnabled()) {
+            ChannelPipeline pipeline = ctx.pipeline();
+            //We count the frames on the wire, behind the splitter and in front of the prepender.
+            //The compression handlers always end up on the other side of us, so both directions see compressed frames.
+            if (pipeline.get("splitter") != null && pipeline.get("prepender") != null) {
+                traffic = new ConnectionTraffic(() -> player);
+                trafficStatistics.getTopTalkers().register(ctx.channel(), traffic);
+                //Counters of an earlier injection may still be there if it wasn't removed cleanly
+                removeTrafficCounters(pipeline);
+                String handlerName = PacketEvents.get().getHandlerName();
+                pipeline.addAfter("splitter", handlerName + "-traffic-in", new TrafficByteCounter(this, true));
+                pipeline.addAfter("prepender", handlerName + "-traffic-out", new TrafficByteCounter(this, false));
+            }
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (traffic != null) {
+            PacketEvents.get().getTrafficStatistics().getTopTalkers().unregister(ctx.channel());
+            //Counters that are left behind pass everything through once the traffic is gone
+            traffic = null;
+            //An unregistered channel is tearing down its pipeline, it removes the counters itself
+            if (ctx.channel().isRegistered()) {
+                removeTrafficCounters(ctx.pipeline());
+            }
+        }
+        //We can't write anything through this context anymore
+        failPendingWrites(new ClosedChannelException());
+        super.handlerRemoved(ctx);
+    }
+
+    private static void removeTrafficCounters(ChannelPipeline pipeline) {
+        String handlerName = PacketEvents.get().getHandlerName();
+        if (pipeline.get(handlerName + "-traffic-in") != null) {
+            pipeline.remove(handlerName + "-traffic-in");
+        }
+        if (pipeline.get(handlerName + "-traffic-out") != null) {
+            pipeline.remove(handlerName + "-traffic-out");
+        }
+    }
 
     @Override
     public void channelRead(final ChannelHandlerContext ctx, Object packet) throws Exception {
-        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().read(player, ctx.channel(), packet);
+        int frameBytes = inboundFrameBytes;
+        inboundFrameBytes = 0;
+        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().read(player, ctx.channel(), packet, scopedListeners);
+        ConnectionTraffic traffic = this.traffic;
+        if (frameBytes != 0 && traffic != null) {
+            PacketEvents.get().getTrafficStatistics().onReceiveBytes(data.packetID, frameBytes);
+            traffic.onReceive(data.packetID, frameBytes);
+        }
         if (data.packet != null) {
             super.channelRead(ctx, data.packet);
-            PacketEvents.get().getInternalPacketProcessor().postRead(player, ctx.channel(), data.packet);
+            PacketEvents.get().getInternalPacketProcessor().postRead(player, ctx.channel(), data.packet, scopedListeners);
         }
     }
 
@@ -48,18 +144,203 @@ public class PlayerChannelHandlerModern extends ChannelDuplexHandler {
     public void write(final ChannelHandlerContext ctx, Object packet, final ChannelPromise promise) throws Exception {
         if (packet instanceof ByteBuf) {
             //Ignore bytebufs!
-            super.write(ctx, packet, promise);
+            writeBufferedMovement(ctx);
+            if (pendingWrites.isEmpty()) {
+                writeRaw(ctx, packet, promise);
+            } else {
+                pendingWrites.add(new PendingWrite(packet, PacketType.INVALID, promise, true));
+            }
             return;
         }
-        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().write(player, ctx.channel(), packet);
+        Player player = this.player;
+        if (player != null) {
+            //Drop the packets of hidden entities before we create any event
+            EntityVisibilityFilter filter = PacketEvents.get().getPlayerUtils().entityVisibilityMap.get(player.getUniqueId());
+            if (filter != null) {
+                packet = filter.filter(packet);
+                if (packet == null) {
+                    promise.trySuccess();
+                    return;
+                }
+            }
+        }
+        PacketProcessorInternal.PacketData data = PacketEvents.get().getInternalPacketProcessor().write(player, ctx.channel(), packet, scopedListeners);
         if (data.postAction != null) {
             promise.addListener(f -> {
                 data.postAction.run();
             });
         }
         if (data.packet != null) {
-            super.write(ctx, data.packet, promise);
-            PacketEvents.get().getInternalPacketProcessor().postWrite(player, ctx.channel(), data.packet);
+            if (PacketEvents.get().getSettings().shouldCoalesceEntityMovement()) {
+                if (movementCoalescer == null) {
+                    movementCoalescer = new EntityMovementCoalescer(this);
+                }
+                if (movementCoalescer.offer(ctx, data.packet, data.packetID, promise)) {
+                    return;
+                }
+            }
+            writeBufferedMovement(ctx);
+            writeProcessed(ctx, data.packet, data.packetID, promise);
+        }
+    }
+
+    /**
+     * Buffered movement has to reach the client before any packet we can't merge into it.
+     */
+    private void writeBufferedMovement(ChannelHandlerContext ctx) {
+        if (movementCoalescer != null && !movementCoalescer.isEmpty()) {
+            movementCoalescer.writeBuffered(ctx);
+        }
+    }
+
+    /**
+     * Write a packet the listeners have already processed.
+     *
+     * @param packetID Packet type ID the processor found for the packet.
+     */
+    void writeProcessed(ChannelHandlerContext ctx, Object packet, byte packetID, ChannelPromise promise) {
+        AsyncTransformerManager transformerManager = PacketEvents.get().getAsyncTransformerManager();
+        AsyncPacketTransformer transformer = transformerManager.getTransformer(packetID);
+        ExecutorService executor = transformerManager.getExecutor();
+        if (pendingWrites.isEmpty() && (transformer == null || executor == null)) {
+            encode(ctx, packet, packetID, promise);
+            PacketEvents.get().getInternalPacketProcessor().postWrite(player, ctx.channel(), packet, scopedListeners);
+            return;
+        }
+        //Later writes have to wait for the transformation, so the client receives the packets in order.
+        PendingWrite pendingWrite = new PendingWrite(packet, packetID, promise, transformer == null || executor == null);
+        pendingWrites.add(pendingWrite);
+        if (!pendingWrite.done) {
+            try {
+                executor.execute(() -> transform(ctx, transformer, pendingWrite));
+            } catch (RejectedExecutionException ex) {
+                //The transformers are shutting down, send the packet as it is.
+                pendingWrite.done = true;
+            }
+        }
+        drainPendingWrites(ctx);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        if (movementCoalescer != null && movementCoalescer.writeBuffered(ctx)) {
+            ctx.flush();
+        }
+        super.close(ctx, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (traffic != null) {
+            PacketEvents.get().getTrafficStatistics().getTopTalkers().unregister(ctx.channel());
+        }
+        failPendingWrites(new ClosedChannelException());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        //Buffered movement stays buffered, vanilla flushes after almost every packet.
+        //It is written at the start of the next tick or before the next packet we can't merge.
+        if (!pendingWrites.isEmpty()) {
+            //Flush the held back writes once they are written.
+            flushPending = true;
+        }
+        super.flush(ctx);
+    }
+
+    /**
+     * Release the packets we are holding back and fail their promises, they will never be written.
+     */
+    private void failPendingWrites(Throwable cause) {
+        if (movementCoalescer != null) {
+            movementCoalescer.discard(cause);
+        }
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.poll()) != null) {
+            ReferenceCountUtil.release(pendingWrite.packet);
+            pendingWrite.promise.tryFailure(cause);
+        }
+        flushPending = false;
+    }
+
+    private void transform(ChannelHandlerContext ctx, AsyncPacketTransformer transformer, PendingWrite pendingWrite) {
+        try {
+            NMSPacket result = transformer.transform(player, new NMSPacket(pendingWrite.packet));
+            pendingWrite.packet = result == null ? null : result.getRawNMSPacket();
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+        pendingWrite.done = true;
+        ctx.executor().execute(() -> drainPendingWrites(ctx));
+    }
+
+    private void encode(ChannelHandlerContext ctx, Object packet, byte packetID, ChannelPromise promise) {
+        if (traffic == null) {
+            ctx.write(packet, promise);
+            return;
+        }
+        //The encoder runs during the write, so the traffic statistics can attribute the bytes to this packet
+        outboundPacketID = packetID;
+        traffic.onSend(packetID);
+        try {
+            ctx.write(packet, promise);
+        } finally {
+            outboundPacketID = PacketType.INVALID;
+        }
+    }
+
+    private void writeRaw(ChannelHandlerContext ctx, Object buffer, ChannelPromise promise) {
+        //Raw buffers (cached status responses, buffers of other plugins) don't belong to a packet type we know,
+        //even if they are written while a packet is being encoded.
+        byte packetID = outboundPacketID;
+        outboundPacketID = PacketType.INVALID;
+        try {
+            ctx.write(buffer, promise);
+        } finally {
+            outboundPacketID = packetID;
+        }
+    }
+
+    private void drainPendingWrites(ChannelHandlerContext ctx) {
+        boolean written = false;
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.peek()) != null && pendingWrite.done) {
+            pendingWrites.poll();
+            if (pendingWrite.packet == null) {
+                //The transformer dropped the packet
+                pendingWrite.promise.trySuccess();
+                continue;
+            }
+            if (pendingWrite.raw) {
+                writeRaw(ctx, pendingWrite.packet, pendingWrite.promise);
+            } else {
+                encode(ctx, pendingWrite.packet, pendingWrite.packetID, pendingWrite.promise);
+                PacketEvents.get().getInternalPacketProcessor().postWrite(player, ctx.channel(), pendingWrite.packet, scopedListeners);
+            }
+            written = true;
+        }
+        if (written && flushPending) {
+            if (pendingWrites.isEmpty()) {
+                flushPending = false;
+            }
+            ctx.flush();
+        }
+    }
+
+    private static final class PendingWrite {
+        private final ChannelPromise promise;
+        private final byte packetID;
+        private final boolean raw;
+        private volatile Object packet;
+        private volatile boolean done;
+
+        private PendingWrite(Object packet, byte packetID, ChannelPromise promise, boolean done) {
+            this.packet = packet;
+            this.packetID = packetID;
+            this.promise = promise;
+            this.raw = packet instanceof ByteBuf;
+            this.done = done;
         }
     }
 }
@@ -0,0 +1,76 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.injector.modern;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.utils.traffic.ConnectionTraffic;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Measures the size of every packet frame as it goes over the wire.
+ * We need two of these, the inbound one sits right behind the splitter and the outbound one right in front of the prepender.
+ * Vanilla adds the compression handlers in front of the decoder and the encoder, so both of them always see the frames
+ * after compression and without the length prefix, no matter when compression is turned on.
+ * The decompressor, decoder and encoder run synchronously, so the packet passing our {@link PlayerChannelHandlerModern}
+ * at the same time is the one the bytes belong to.
+ * Inbound we hand the frame size over to the channel handler, outbound the channel handler tells us the packet ID.
+ * The sizes go to the global {@link io.github.retrooper.packetevents.utils.traffic.TrafficStatistics} and to the traffic of the connection.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class TrafficByteCounter extends ChannelDuplexHandler {
+    private final PlayerChannelHandlerModern handler;
+    private final boolean inbound;
+
+    TrafficByteCounter(PlayerChannelHandlerModern handler, boolean inbound) {
+        this.handler = handler;
+        this.inbound = inbound;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (!inbound) {
+            super.channelRead(ctx, msg);
+            return;
+        }
+        if (msg instanceof ByteBuf) {
+            handler.inboundFrameBytes = ((ByteBuf) msg).readableBytes();
+        }
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            handler.inboundFrameBytes = 0;
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        //The traffic is gone once the channel handler has been removed, a counter left behind only passes the frames through
+        ConnectionTraffic traffic = handler.traffic;
+        if (!inbound && traffic != null && msg instanceof ByteBuf) {
+            int bytes = ((ByteBuf) msg).readableBytes();
+            PacketEvents.get().getTrafficStatistics().onSendBytes(handler.outboundPacketID, bytes);
+            traffic.onSendBytes(handler.outboundPacketID, bytes);
+        }
+        super.write(ctx, msg, promise);
+    }
+}
@@ -19,6 +19,7 @@
 package io.github.retrooper.packetevents.injector.modern.early;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.injector.EarlyInjector;
 import io.github.retrooper.packetevents.injector.modern.PlayerChannelHandlerModern;
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
@@ -332,6 +333,12 @@ public class EarlyChannelInjectorModern implements EarlyInjector {
         }
     }
 
+    @Override
+    public ScopedListeners getScopedListeners(Object rawChannel) {
+        PlayerChannelHandlerModern handler = rawChannel != null ? getHandler(rawChannel) : null;
+        return handler != null ? handler.scopedListeners : null;
+    }
+
     @Override
     public void updatePlayerObject(Player player, Object rawChannel) {
         PlayerChannelHandlerModern handler = getHandler(rawChannel);
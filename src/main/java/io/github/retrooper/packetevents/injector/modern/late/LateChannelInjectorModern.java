@@ -19,10 +19,12 @@
 package io.github.retrooper.packetevents.injector.modern.late;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.injector.LateInjector;
 import io.github.retrooper.packetevents.injector.modern.PlayerChannelHandlerModern;
 import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import org.bukkit.entity.Player;
 
 public class LateChannelInjectorModern implements LateInjector {
@@ -98,4 +100,13 @@ public class LateChannelInjectorModern implements LateInjector {
         }
         channel.pipeline().writeAndFlush(packet);
     }
-}
\ No newline at end of file
+
+    @Override
+    public ScopedListeners getScopedListeners(Object rawChannel) {
+        if (rawChannel == null) {
+            return null;
+        }
+        ChannelHandler handler = ((Channel) rawChannel).pipeline().get(PacketEvents.get().getHandlerName());
+        return handler instanceof PlayerChannelHandlerModern ? ((PlayerChannelHandlerModern) handler).scopedListeners : null;
+    }
+}
@@ -19,8 +19,10 @@
 package io.github.retrooper.packetevents.packettype;
 
 import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
 
+import java.lang.reflect.Field;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
@@ -40,6 +42,7 @@ public class PacketType {
     public static final byte INVALID = -128;
     public static final Map<Class<?>, Byte> packetIDMap = new IdentityHashMap<>();
     private static final boolean isNine = ServerVersion.getVersion().isNewerThanOrEquals(ServerVersion.v_1_9);
+    private static final Map<Class<?>, Field> entityIDFieldMap = new IdentityHashMap<>();
 
     private static void insertPacketID(Class<?> cls, byte packetID) {
         if (cls != null) {
@@ -47,6 +50,78 @@ public class PacketType {
         }
     }
 
+    private static void insertEntityIDField(Class<?> cls, int intFieldIndex) {
+        if (cls != null) {
+            Field field = Reflection.getField(cls, int.class, intFieldIndex, true);
+            if (field != null) {
+                entityIDFieldMap.put(cls, field);
+            }
+        }
+    }
+
+    /**
+     * Read the entity ID of an entity related NMS packet without creating a wrapper.
+     * This is a map lookup and a single field read, it doesn't allocate.
+     * Supported are the spawn, movement, velocity, teleport, head rotation, metadata, equipment, status, effect,
+     * animation, attach, mount, collect and use entity packets.
+     *
+     * @param nmsPacket NMS packet
+     * @return Entity ID, -1 if the packet isn't related to an entity.
+     */
+    public static int entityIdOf(Object nmsPacket) {
+        Field field = entityIDFieldMap.get(nmsPacket.getClass());
+        if (field == null) {
+            return -1;
+        }
+        try {
+            return field.getInt(nmsPacket);
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Is {@link #entityIdOf(Object)} supported for this NMS packet class?
+     *
+     * @param cls NMS packet class
+     * @return Do we know the entity ID field of the class?
+     */
+    public static boolean hasEntityId(Class<?> cls) {
+        return entityIDFieldMap.containsKey(cls);
+    }
+
+    private static void loadEntityIDFields() {
+        //The entity ID is the first int field, unless stated otherwise
+        insertEntityIDField(PacketTypeClasses.Play.Client.USE_ENTITY, 0);
+
+        insertEntityIDField(PacketTypeClasses.Play.Server.SPAWN_ENTITY, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.SPAWN_ENTITY_EXPERIENCE_ORB, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.SPAWN_ENTITY_WEATHER, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.SPAWN_ENTITY_LIVING, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.SPAWN_ENTITY_PAINTING, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.NAMED_ENTITY_SPAWN, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.REL_ENTITY_MOVE, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.REL_ENTITY_MOVE_LOOK, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_LOOK, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_TELEPORT, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_VELOCITY, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_HEAD_ROTATION, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_METADATA, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_EQUIPMENT, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_STATUS, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ENTITY_EFFECT, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.REMOVE_ENTITY_EFFECT, 0);
+        insertEntityIDField(PacketTypeClasses.Play.Server.ANIMATION, 0);
+        //Before 1.9 the leash flag comes first
+        insertEntityIDField(PacketTypeClasses.Play.Server.ATTACH_ENTITY, isNine ? 0 : 1);
+        //The vehicle
+        insertEntityIDField(PacketTypeClasses.Play.Server.MOUNT, 0);
+        //The collected item
+        insertEntityIDField(PacketTypeClasses.Play.Server.COLLECT, 0);
+    }
+
     public static void load() {
         Status.Client.load();
         Status.Server.load();
@@ -58,6 +133,8 @@ public class PacketType {
 
         Play.Client.load();
         Play.Server.load();
+
+        loadEntityIDFields();
     }
 
     /**
@@ -32,6 +32,7 @@ import io.github.retrooper.packetevents.utils.player.GameMode;
 import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
 import io.github.retrooper.packetevents.utils.reflection.Reflection;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 import io.github.retrooper.packetevents.utils.world.Difficulty;
 import io.github.retrooper.packetevents.utils.world.Dimension;
@@ -54,7 +55,6 @@ public class WrappedPacket implements WrapperPacketReader, WrapperPacketWriter {
     private static final Map<Class<? extends WrappedPacket>, Boolean> LOADED_WRAPPERS = new ConcurrentHashMap<>();
     private static final Map<Class<?>, Map<Class<?>, Field[]>> FIELD_CACHE = new ConcurrentHashMap<>();
     private static final Field[] EMPTY_FIELD_ARRAY = new Field[0];
-    private static byte isVersion_1_17 = -1;
     public static ServerVersion version;
     protected final NMSPacket packet;
     private final Class<?> packetClass;
@@ -434,6 +434,24 @@ public class WrappedPacket implements WrapperPacketReader, WrapperPacketWriter {
         }
     }
 
+    /**
+     * Read a block position without allocating a vector.
+     *
+     * @param index Index of the block position field
+     * @return Packed position
+     * @see PackedBlockPosition
+     */
+    public long readBlockPositionPacked(int index) {
+        Object blockPosObj = readObject(index, NMSUtils.blockPosClass);
+        return NMSUtils.readPackedBlockPos(blockPosObj);
+    }
+
+    public void writeBlockPositionPacked(int index, long blockPosition) {
+        Object blockPosObj = NMSUtils.generateNMSBlockPos(PackedBlockPosition.unpackX(blockPosition),
+                PackedBlockPosition.unpackY(blockPosition), PackedBlockPosition.unpackZ(blockPosition));
+        write(NMSUtils.blockPosClass, index, blockPosObj);
+    }
+
     public Vector3i readSectionPosition(int index) {
         Object blockPosObj = readObject(index, NMSUtils.sectionPositionClass);
         try {
@@ -522,14 +540,8 @@ public class WrappedPacket implements WrapperPacketReader, WrapperPacketWriter {
     }
 
     public String readMinecraftKey(int index) {
-        if (isVersion_1_17 == -1) {
-            isVersion_1_17 = (byte) (version.isNewerThanOrEquals(ServerVersion.v_1_17) ? 1 : 0);
-        }
-        int namespaceIndex = isVersion_1_17 == 1 ? 2 : 0;
-        int keyIndex = isVersion_1_17 == 1 ? 3 : 1;
         Object minecraftKey = readObject(index, NMSUtils.minecraftKeyClass);
-        WrappedPacket minecraftKeyWrapper = new WrappedPacket(new NMSPacket(minecraftKey));
-        return minecraftKeyWrapper.readString(namespaceIndex) + ":" + minecraftKeyWrapper.readString(keyIndex);
+        return NMSUtils.minecraftKeyCache.toText(minecraftKey);
     }
 
     public void writeMinecraftKey(int index, String content) {
@@ -26,6 +26,7 @@ import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.player.Direction;
 import io.github.retrooper.packetevents.utils.reflection.SubclassUtil;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 
 public final class WrappedPacketInBlockDig extends WrappedPacket {
@@ -75,6 +76,30 @@ public final class WrappedPacketInBlockDig extends WrappedPacket {
         }
     }
 
+    /**
+     * Get the block position without allocating a vector.
+     *
+     * @return Packed block position
+     * @see PackedBlockPosition
+     */
+    public long getBlockPositionPacked() {
+        if (isVersionLowerThan_v_1_8) {
+            return PackedBlockPosition.pack(readInt(0), readInt(1), readInt(2));
+        } else {
+            return readBlockPositionPacked(0);
+        }
+    }
+
+    public void setBlockPositionPacked(long blockPos) {
+        if (isVersionLowerThan_v_1_8) {
+            writeInt(0, PackedBlockPosition.unpackX(blockPos));
+            writeInt(1, PackedBlockPosition.unpackY(blockPos));
+            writeInt(2, PackedBlockPosition.unpackZ(blockPos));
+        } else {
+            writeBlockPositionPacked(0, blockPos);
+        }
+    }
+
     /**
      * Get the direction / Get the face.
      *
@@ -111,6 +111,22 @@ public final class WrappedPacketInBlockPlace extends WrappedPacket {
         return blockPos;
     }
 
+    /**
+     * Get the block position without allocating a vector.
+     *
+     * @return Packed block position
+     * @see io.github.retrooper.packetevents.utils.vector.PackedBlockPosition
+     */
+    public long getBlockPositionPacked() {
+        if (newerThan_v_1_8_8) {
+            return new WrappedPacketInBlockPlace_1_9(packet).getBlockPositionPacked();
+        } else if (newerThan_v_1_7_10) {
+            return new WrappedPacketInBlockPlace_1_8(packet).getBlockPositionPacked();
+        } else {
+            return new WrappedPacketInBlockPlace_1_7_10(packet).getBlockPositionPacked();
+        }
+    }
+
     public Optional<Vector3f> getCursorPosition() {
         if (newerThan_v_1_8_8) {
             return Optional.empty();
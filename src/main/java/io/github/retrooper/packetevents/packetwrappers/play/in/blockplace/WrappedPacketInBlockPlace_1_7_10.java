@@ -20,6 +20,7 @@ package io.github.retrooper.packetevents.packetwrappers.play.in.blockplace;
 
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3f;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 import org.bukkit.inventory.ItemStack;
@@ -39,6 +40,10 @@ final class WrappedPacketInBlockPlace_1_7_10 extends WrappedPacket {
         writeInt(2, blockPos.z);
     }
 
+    public long getBlockPositionPacked() {
+        return PackedBlockPosition.pack(readInt(0), readInt(1), readInt(2));
+    }
+
     public int getFace() {
         return readInt(3);
     }
@@ -38,6 +38,10 @@ final class WrappedPacketInBlockPlace_1_8 extends WrappedPacket {
         writeBlockPosition(1, blockPos);
     }
 
+    public long getBlockPositionPacked() {
+        return readBlockPositionPacked(1);
+    }
+
     public ItemStack getItemStack() {
         return readItemStack(0);
     }
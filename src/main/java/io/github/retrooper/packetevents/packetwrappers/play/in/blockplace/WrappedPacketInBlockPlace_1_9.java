@@ -24,11 +24,14 @@ import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
 import io.github.retrooper.packetevents.utils.enums.EnumUtil;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.player.Direction;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 
 final class WrappedPacketInBlockPlace_1_9 extends WrappedPacket {
+    private static Field movingObjBlockPosField;
     private Object movingObjPos;
 
     public WrappedPacketInBlockPlace_1_9(final NMSPacket packet) {
@@ -59,6 +62,25 @@ final class WrappedPacketInBlockPlace_1_9 extends WrappedPacket {
         }
     }
 
+    public long getBlockPositionPacked() {
+        if (NMSUtils.movingObjectPositionBlockClass == null) {
+            return readBlockPositionPacked(0);
+        } else {
+            if (movingObjPos == null) {
+                movingObjPos = readObject(0, NMSUtils.movingObjectPositionBlockClass);
+            }
+            if (movingObjBlockPosField == null) {
+                movingObjBlockPosField = Reflection.getField(NMSUtils.movingObjectPositionBlockClass, NMSUtils.blockPosClass, 0);
+            }
+            try {
+                return NMSUtils.readPackedBlockPos(movingObjBlockPosField.get(movingObjPos));
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                return 0L;
+            }
+        }
+    }
+
     public Direction getDirection() {
         Enum<?> enumConst;
         if (NMSUtils.movingObjectPositionBlockClass == null) {
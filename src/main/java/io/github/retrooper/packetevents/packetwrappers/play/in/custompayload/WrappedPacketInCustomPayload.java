@@ -34,7 +34,6 @@ public final class WrappedPacketInCustomPayload extends WrappedPacket {
     private static boolean strPresent, byteArrayPresent, customPacketPayloadPresent;
     private static Class<?> CUSTOM_PACKET_PAYLOAD, BRAND_PAYLOAD, DISCARDED_PAYLOAD;
     private static Method CUSTOM_PACKET_PAYLOAD_MINECRAFT_KEY, CUSTOM_PACKET_PAYLOAD_PACKETDATASERIALIZER;
-    private static byte isVersion_1_17 = -1;
     private static boolean isVersion_1_20_5;
     private static boolean isVersion_1_20_6;
 
@@ -87,14 +86,8 @@ public final class WrappedPacketInCustomPayload extends WrappedPacket {
             }
             else {
                 try {
-                    if (isVersion_1_17 == -1) {
-                        isVersion_1_17 = (byte) (version.isNewerThanOrEquals(ServerVersion.v_1_17) ? 1 : 0);
-                    }
-                    int namespaceIndex = isVersion_1_17 == 1 ? 2 : 0;
-                    int keyIndex = isVersion_1_17 == 1 ? 3 : 1;
                     Object minecraftKey = CUSTOM_PACKET_PAYLOAD_MINECRAFT_KEY.invoke(payload);
-                    WrappedPacket minecraftKeyWrapper = new WrappedPacket(new NMSPacket(minecraftKey));
-                    return minecraftKeyWrapper.readString(namespaceIndex) + ":" + minecraftKeyWrapper.readString(keyIndex);
+                    return NMSUtils.minecraftKeyCache.toText(minecraftKey);
                 } catch (IllegalAccessException | InvocationTargetException e) {
                     e.printStackTrace();
                 }
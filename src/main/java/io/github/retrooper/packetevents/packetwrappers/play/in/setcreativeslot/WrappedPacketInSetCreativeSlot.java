@@ -20,9 +20,11 @@ package io.github.retrooper.packetevents.packetwrappers.play.in.setcreativeslot;
 
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import org.bukkit.inventory.ItemStack;
 
 public class WrappedPacketInSetCreativeSlot extends WrappedPacket {
+    private ItemStack clickedItemStack;
 
     public WrappedPacketInSetCreativeSlot(final NMSPacket packet) {
         super(packet);
@@ -36,11 +38,31 @@ public class WrappedPacketInSetCreativeSlot extends WrappedPacket {
         writeInt(0, value);
     }
 
+    /**
+     * Get the clicked item.
+     * The converted item stack is cached and shared between calls.
+     * Treat it as read-only, changes to it are never written to the packet, use {@link #setClickedItem(ItemStack)} with a modified clone.
+     *
+     * @return Clicked item stack
+     */
     public ItemStack getClickedItem() {
-        return readItemStack(0);
+        if (clickedItemStack == null) {
+            clickedItemStack = readItemStack(0);
+        }
+        return clickedItemStack;
     }
 
     public void setClickedItem(ItemStack stack) {
         writeItemStack(0, stack);
+        clickedItemStack = stack;
+    }
+
+    /**
+     * NMS item stack of the clicked item, without converting it to a Bukkit item stack.
+     *
+     * @return NMS item stack
+     */
+    public Object getRawClickedItemStack() {
+        return readObject(0, NMSUtils.nmsItemStackClass);
     }
 }
\ No newline at end of file
@@ -28,6 +28,7 @@ import org.bukkit.inventory.ItemStack;
 public class WrappedPacketInWindowClick extends WrappedPacket {
     private static boolean legacy, v_1_17;
     private static Class<? extends Enum<?>> invClickTypeClass;
+    private ItemStack clickedItemStack;
 
     public WrappedPacketInWindowClick(NMSPacket packet) {
         super(packet);
@@ -107,14 +108,29 @@ public class WrappedPacketInWindowClick extends WrappedPacket {
 
     /**
      * Get the clicked item.
+     * The converted item stack is cached and shared between calls.
+     * Treat it as read-only, changes to it are never written to the packet, use {@link #setClickedItemStack(ItemStack)} with a modified clone.
      *
      * @return Get Clicked ItemStack
      */
     public ItemStack getClickedItemStack() {
-        return readItemStack(0);
+        if (clickedItemStack == null) {
+            clickedItemStack = readItemStack(0);
+        }
+        return clickedItemStack;
     }
 
     public void setClickedItemStack(ItemStack stack) {
         writeItemStack(0, stack);
+        clickedItemStack = stack;
+    }
+
+    /**
+     * NMS item stack of the clicked item, without converting it to a Bukkit item stack.
+     *
+     * @return NMS item stack
+     */
+    public Object getRawClickedItemStack() {
+        return readObject(0, NMSUtils.nmsItemStackClass);
     }
 }
@@ -23,6 +23,7 @@ import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
 import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 import org.bukkit.Material;
 
@@ -76,6 +77,28 @@ public class WrappedPacketOutBlockAction extends WrappedPacket implements Sendab
         }
     }
 
+    /**
+     * Get the block position without allocating a vector.
+     *
+     * @return Packed block position
+     * @see PackedBlockPosition
+     */
+    public long getBlockPositionPacked() {
+        if (packet != null) {
+            return readBlockPositionPacked(0);
+        } else {
+            return PackedBlockPosition.pack(blockPos);
+        }
+    }
+
+    public void setBlockPositionPacked(long blockPos) {
+        if (packet != null) {
+            writeBlockPositionPacked(0, blockPos);
+        } else {
+            this.blockPos = PackedBlockPosition.unpack(blockPos);
+        }
+    }
+
     public int getActionId() {
         if (packet != null) {
             return readInt(0);
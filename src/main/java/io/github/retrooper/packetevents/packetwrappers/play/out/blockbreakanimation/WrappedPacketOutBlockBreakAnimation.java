@@ -24,6 +24,7 @@ import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
 import io.github.retrooper.packetevents.packetwrappers.api.helper.WrappedPacketEntityAbstraction;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 import org.bukkit.entity.Entity;
 
@@ -95,6 +96,38 @@ public class WrappedPacketOutBlockBreakAnimation extends WrappedPacketEntityAbst
         }
     }
 
+    /**
+     * Get the block position without allocating a vector.
+     *
+     * @return Packed block position
+     * @see PackedBlockPosition
+     */
+    public long getBlockPositionPacked() {
+        if (packet != null) {
+            if (v_1_7_10) {
+                return PackedBlockPosition.pack(readInt(1), readInt(2), readInt(3));
+            } else {
+                return readBlockPositionPacked(0);
+            }
+        } else {
+            return PackedBlockPosition.pack(blockPosition);
+        }
+    }
+
+    public void setBlockPositionPacked(long blockPosition) {
+        if (packet != null) {
+            if (v_1_7_10) {
+                writeInt(1, PackedBlockPosition.unpackX(blockPosition));
+                writeInt(2, PackedBlockPosition.unpackY(blockPosition));
+                writeInt(3, PackedBlockPosition.unpackZ(blockPosition));
+            } else {
+                writeBlockPositionPacked(0, blockPosition);
+            }
+        } else {
+            this.blockPosition = PackedBlockPosition.unpack(blockPosition);
+        }
+    }
+
     public int getDestroyStage() {
         if (packet != null) {
             int index = v_1_7_10 ? 4 : 1;
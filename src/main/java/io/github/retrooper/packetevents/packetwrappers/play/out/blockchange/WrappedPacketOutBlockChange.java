@@ -25,6 +25,7 @@ import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.reflection.Reflection;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
 import org.bukkit.Location;
 import org.bukkit.Material;
@@ -133,6 +134,38 @@ public class WrappedPacketOutBlockChange extends WrappedPacket implements Sendab
         }
     }
 
+    /**
+     * Get the block position without allocating a vector.
+     *
+     * @return Packed block position
+     * @see PackedBlockPosition
+     */
+    public long getBlockPositionPacked() {
+        if (packet != null) {
+            if (v_1_7_10) {
+                return PackedBlockPosition.pack(readInt(0), readInt(1), readInt(2));
+            } else {
+                return readBlockPositionPacked(0);
+            }
+        } else {
+            return PackedBlockPosition.pack(blockPos);
+        }
+    }
+
+    public void setBlockPositionPacked(long blockPos) {
+        if (packet != null) {
+            if (v_1_7_10) {
+                writeInt(0, PackedBlockPosition.unpackX(blockPos));
+                writeInt(1, PackedBlockPosition.unpackY(blockPos));
+                writeInt(2, PackedBlockPosition.unpackZ(blockPos));
+            } else {
+                writeBlockPositionPacked(0, blockPos);
+            }
+        } else {
+            this.blockPos = PackedBlockPosition.unpack(blockPos);
+        }
+    }
+
     @Deprecated
     public Material getMaterial() {
         return getBlockType();
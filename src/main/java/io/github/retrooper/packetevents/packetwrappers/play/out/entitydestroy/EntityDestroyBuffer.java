@@ -0,0 +1,91 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.entitydestroy;
+
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entity IDs queued to be destroyed for one player, stored in a growing int array.
+ * {@link #drain()} turns them into one destroy packet, or one packet per entity on 1.17.0 servers
+ * where the packet only holds a single entity.
+ * The buffer is thread-safe.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.utils.player.PlayerUtils#queueEntityDestroy(org.bukkit.entity.Player, int...)
+ */
+public final class EntityDestroyBuffer {
+    private int[] entityIDs = new int[16];
+    private int size;
+
+    public synchronized void add(int entityID) {
+        ensureCapacity(size + 1);
+        entityIDs[size++] = entityID;
+    }
+
+    public synchronized void addAll(int... entityIDs) {
+        ensureCapacity(size + entityIDs.length);
+        System.arraycopy(entityIDs, 0, this.entityIDs, size, entityIDs.length);
+        size += entityIDs.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Take the queued entity IDs out of the buffer.
+     *
+     * @return Destroy packets, empty if nothing was queued.
+     */
+    public List<WrappedPacketOutEntityDestroy> drain() {
+        int[] drained;
+        synchronized (this) {
+            if (size == 0) {
+                return new ArrayList<>(0);
+            }
+            drained = Arrays.copyOf(entityIDs, size);
+            size = 0;
+        }
+        List<WrappedPacketOutEntityDestroy> packets;
+        if (WrappedPacket.version == ServerVersion.v_1_17) {
+            packets = new ArrayList<>(drained.length);
+            for (int entityID : drained) {
+                packets.add(new WrappedPacketOutEntityDestroy(entityID));
+            }
+        } else {
+            packets = new ArrayList<>(1);
+            WrappedPacketOutEntityDestroy packet = new WrappedPacketOutEntityDestroy(drained[0]);
+            packet.setEntityIds(drained);
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > entityIDs.length) {
+            entityIDs = Arrays.copyOf(entityIDs, Math.max(capacity, entityIDs.length << 1));
+        }
+    }
+}
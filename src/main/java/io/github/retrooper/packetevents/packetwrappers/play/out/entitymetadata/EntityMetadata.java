@@ -0,0 +1,163 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.entitymetadata;
+
+import java.util.Arrays;
+
+/**
+ * Reusable container of decoded entity metadata entries.
+ * Entries are accessed by their position in the packet, use {@link #indexOf(int)} to find the position of a metadata index.
+ * Values are the NMS objects the server sent, so numbers and booleans are boxed,
+ * the typed getters unbox them for you.
+ * Decode into the same container again to reuse its arrays, it is not thread-safe.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EntityMetadataCodec
+ */
+public final class EntityMetadata {
+    int size;
+    int[] indices;
+    int[] typeIDs;
+    Object[] values;
+    //Raw NMS entries, needed to write modified values back
+    Object[] items;
+    boolean[] modified;
+
+    public EntityMetadata() {
+        this(8);
+    }
+
+    public EntityMetadata(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        indices = new int[capacity];
+        typeIDs = new int[capacity];
+        values = new Object[capacity];
+        items = new Object[capacity];
+        modified = new boolean[capacity];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity > indices.length) {
+            int newCapacity = Math.max(capacity, indices.length << 1);
+            indices = Arrays.copyOf(indices, newCapacity);
+            typeIDs = Arrays.copyOf(typeIDs, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            items = Arrays.copyOf(items, newCapacity);
+            modified = Arrays.copyOf(modified, newCapacity);
+        }
+    }
+
+    /**
+     * Remove all entries, the arrays are kept for the next decode.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(items, 0, size, null);
+        Arrays.fill(modified, 0, size, false);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Position of the entry with a metadata index.
+     *
+     * @param metadataIndex Metadata index, for example 0 for the entity flags.
+     * @return Position, -1 if the packet doesn't contain the index.
+     */
+    public int indexOf(int metadataIndex) {
+        for (int i = 0; i < size; i++) {
+            if (indices[i] == metadataIndex) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getIndex(int position) {
+        return indices[position];
+    }
+
+    /**
+     * Serializer ID of the entry.
+     * On 1.7.10 and 1.8 servers this is the legacy type ID (0 = byte, 1 = short, 2 = int, 3 = float ...).
+     *
+     * @param position Entry position
+     * @return Type ID, -1 if we couldn't resolve it.
+     */
+    public int getTypeID(int position) {
+        return typeIDs[position];
+    }
+
+    public Object getValue(int position) {
+        return values[position];
+    }
+
+    public byte getByte(int position) {
+        return ((Number) values[position]).byteValue();
+    }
+
+    public int getInt(int position) {
+        return ((Number) values[position]).intValue();
+    }
+
+    public float getFloat(int position) {
+        return ((Number) values[position]).floatValue();
+    }
+
+    public boolean getBoolean(int position) {
+        return (Boolean) values[position];
+    }
+
+    /**
+     * Replace the value of an entry.
+     * The value has to be of the same NMS type as the old value, it is written to the packet by
+     * {@link EntityMetadataCodec#encode(EntityMetadata, java.util.List)}.
+     *
+     * @param position Entry position
+     * @param value    NMS value
+     */
+    public void setValue(int position, Object value) {
+        values[position] = value;
+        modified[position] = true;
+    }
+
+    public void setByte(int position, byte value) {
+        setValue(position, value);
+    }
+
+    public void setInt(int position, int value) {
+        setValue(position, value);
+    }
+
+    public void setFloat(int position, float value) {
+        setValue(position, value);
+    }
+
+    public void setBoolean(int position, boolean value) {
+        setValue(position, value);
+    }
+
+    public boolean isModified(int position) {
+        return modified[position];
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.entitymetadata;
+
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes the NMS entries of an entity metadata packet into an {@link EntityMetadata} container and writes
+ * modified entries back.
+ * The field accessors of the NMS entry classes are resolved once, decoding an entry is a few field reads.
+ * Supported NMS entries:
+ * WatchableObject (1.7.10 - 1.8.8), DataWatcher.Item (1.9 - 1.19.2) and the packed DataValue record (1.19.3+).
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class EntityMetadataCodec {
+    private static final Map<Class<?>, ItemAccessor> ACCESSORS = new ConcurrentHashMap<>();
+    private static final Map<Object, Integer> SERIALIZER_IDS = new ConcurrentHashMap<>();
+    private static Method serializerIDMethod;
+    private static boolean serializerIDMethodResolved;
+
+    private EntityMetadataCodec() {
+    }
+
+    /**
+     * Decode NMS metadata entries.
+     *
+     * @param items  NMS entries of the packet, may be null.
+     * @param output Container to decode into, it is cleared first.
+     */
+    public static void decode(List<Object> items, EntityMetadata output) {
+        output.clear();
+        if (items == null) {
+            return;
+        }
+        int size = items.size();
+        output.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            Object item = items.get(i);
+            ItemAccessor accessor = getAccessor(item.getClass());
+            try {
+                output.indices[i] = accessor.getIndex(item);
+                output.typeIDs[i] = accessor.getTypeID(item);
+                output.values[i] = accessor.valueField.get(item);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
+            output.items[i] = item;
+        }
+        output.size = size;
+    }
+
+    /**
+     * Write the modified entries of a container back into the NMS entries of the packet.
+     * A modified entry is replaced by a copy, so we never touch the data watcher of the entity itself.
+     * The packet's list is never modified either, the same packet may be sent to other players.
+     * The container must have been decoded from this list.
+     *
+     * @param metadata Decoded metadata.
+     * @param items    NMS entries of the packet.
+     * @return A copy of the list with the modified entries, the list itself if nothing was modified.
+     */
+    public static List<Object> encode(EntityMetadata metadata, List<Object> items) {
+        List<Object> encoded = items;
+        for (int i = 0; i < metadata.size; i++) {
+            if (!metadata.modified[i]) {
+                continue;
+            }
+            Object item = metadata.items[i];
+            Object copy = getAccessor(item.getClass()).copyWithValue(item, metadata.values[i]);
+            if (encoded == items) {
+                encoded = new ArrayList<>(items);
+            }
+            encoded.set(i, copy);
+            metadata.items[i] = copy;
+            metadata.modified[i] = false;
+        }
+        return encoded;
+    }
+
+    private static ItemAccessor getAccessor(Class<?> itemClass) {
+        ItemAccessor accessor = ACCESSORS.get(itemClass);
+        if (accessor == null) {
+            accessor = new ItemAccessor(itemClass);
+            ACCESSORS.put(itemClass, accessor);
+        }
+        return accessor;
+    }
+
+    private static int getSerializerID(Object serializer) {
+        Integer cached = SERIALIZER_IDS.get(serializer);
+        if (cached != null) {
+            return cached;
+        }
+        if (!serializerIDMethodResolved) {
+            serializerIDMethod = resolveSerializerIDMethod();
+            serializerIDMethodResolved = true;
+        }
+        int id = -1;
+        if (serializerIDMethod != null) {
+            try {
+                id = (int) serializerIDMethod.invoke(null, serializer);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                e.printStackTrace();
+            }
+        }
+        SERIALIZER_IDS.put(serializer, id);
+        return id;
+    }
+
+    private static Method resolveSerializerIDMethod() {
+        Class<?> registryClass = NMSUtils.getNMSClassWithoutException("DataWatcherRegistry");
+        if (registryClass == null) {
+            registryClass = NMSUtils.getNMClassWithoutException("network.syncher.DataWatcherRegistry");
+            if (registryClass == null) {
+                registryClass = NMSUtils.getNMClassWithoutException("network.syncher.EntityDataSerializers");
+            }
+        }
+        if (registryClass == null) {
+            return null;
+        }
+        //static int getSerializedId(EntityDataSerializer<?>)
+        for (Method method : registryClass.getDeclaredMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) && method.getReturnType() == int.class
+                    && method.getParameterCount() == 1 && !method.getParameterTypes()[0].isPrimitive()) {
+                method.setAccessible(true);
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static List<Field> getInstanceFields(Class<?> cls) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : Reflection.getFields(cls)) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static final class ItemAccessor {
+        private final boolean legacy, keyed;
+        private Field typeIDField, indexField, keyField, keyIndexField, serializerField;
+        private Field valueField;
+        private final Field[] constructorFields;
+        private final Constructor<?> constructor;
+
+        private ItemAccessor(Class<?> itemClass) {
+            ServerVersion version = WrappedPacket.version;
+            legacy = version.isOlderThan(ServerVersion.v_1_9);
+            keyed = !legacy && version.isOlderThan(ServerVersion.v_1_19_3);
+            List<Field> fields = getInstanceFields(itemClass);
+            List<Field> intFields = new ArrayList<>();
+            for (Field field : fields) {
+                if (field.getType() == int.class) {
+                    intFields.add(field);
+                } else if (field.getType() == Object.class) {
+                    if (valueField == null) {
+                        valueField = field;
+                    }
+                } else if (!field.getType().isPrimitive() && serializerField == null && keyField == null) {
+                    //DataWatcherObject on 1.9 - 1.19.2, the serializer on 1.19.3+
+                    if (keyed) {
+                        keyField = field;
+                    } else {
+                        serializerField = field;
+                    }
+                }
+            }
+            if (legacy) {
+                //WatchableObject(int type, int index, Object value)
+                typeIDField = intFields.get(0);
+                indexField = intFields.get(1);
+            } else if (keyed) {
+                List<Field> keyFields = getInstanceFields(keyField.getType());
+                for (Field field : keyFields) {
+                    if (field.getType() == int.class) {
+                        keyIndexField = field;
+                    } else if (!field.getType().isPrimitive()) {
+                        serializerField = field;
+                    }
+                }
+            } else {
+                indexField = intFields.get(0);
+            }
+            Constructor<?> found = null;
+            Field[] foundFields = null;
+            if (legacy) {
+                //The fields are declared in a different order than the constructor takes them, so we map the arguments by their role.
+                try {
+                    found = itemClass.getDeclaredConstructor(int.class, int.class, Object.class);
+                    foundFields = new Field[]{typeIDField, indexField, valueField};
+                } catch (NoSuchMethodException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                //The constructor takes the first fields in declaration order, the value is one of them.
+                for (Constructor<?> candidate : itemClass.getDeclaredConstructors()) {
+                    Class<?>[] parameterTypes = candidate.getParameterTypes();
+                    if (parameterTypes.length == 0 || parameterTypes.length > fields.size()) {
+                        continue;
+                    }
+                    boolean matches = true;
+                    for (int i = 0; i < parameterTypes.length; i++) {
+                        if (parameterTypes[i] != fields.get(i).getType()) {
+                            matches = false;
+                            break;
+                        }
+                    }
+                    if (matches && (found == null || parameterTypes.length > foundFields.length)) {
+                        found = candidate;
+                        foundFields = fields.subList(0, parameterTypes.length).toArray(new Field[0]);
+                    }
+                }
+            }
+            if (found != null) {
+                found.setAccessible(true);
+            }
+            constructor = found;
+            constructorFields = foundFields;
+        }
+
+        private int getIndex(Object item) throws IllegalAccessException {
+            if (keyed) {
+                return keyIndexField.getInt(keyField.get(item));
+            }
+            return indexField.getInt(item);
+        }
+
+        private int getTypeID(Object item) throws IllegalAccessException {
+            if (legacy) {
+                return typeIDField.getInt(item);
+            }
+            Object serializer = keyed ? serializerField.get(keyField.get(item)) : serializerField.get(item);
+            return serializer == null ? -1 : getSerializerID(serializer);
+        }
+
+        private Object copyWithValue(Object item, Object value) {
+            if (constructor == null) {
+                throw new IllegalStateException("PacketEvents failed to find the constructor of " + item.getClass().getName());
+            }
+            try {
+                Object[] arguments = new Object[constructorFields.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    Field field = constructorFields[i];
+                    arguments[i] = field.equals(valueField) ? value : field.get(item);
+                }
+                return constructor.newInstance(arguments);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                e.printStackTrace();
+                return item;
+            }
+        }
+    }
+}
@@ -47,4 +47,33 @@ public class WrappedPacketOutEntityMetadata extends WrappedPacketEntityAbstracti
         }
         return wrappedWatchableObjects;
     }
+
+    /**
+     * Decode the metadata entries into a reusable container.
+     * Cheaper than {@link #getWatchableObjects()}, no wrapper is created per entry.
+     *
+     * @param output Container to decode into.
+     */
+    public void readMetadata(EntityMetadata output) {
+        EntityMetadataCodec.decode(readList(0), output);
+    }
+
+    /**
+     * Write the modified entries of a container back into this packet.
+     * The container must have been filled by {@link #readMetadata(EntityMetadata)} of this packet.
+     * The modified entries go into a new list, the entries of the old list are left alone.
+     * Keep in mind that the server might send the same packet instance to multiple players.
+     *
+     * @param metadata Decoded and modified metadata.
+     */
+    public void writeMetadata(EntityMetadata metadata) {
+        List<Object> items = readList(0);
+        if (items == null) {
+            return;
+        }
+        List<Object> encoded = EntityMetadataCodec.encode(metadata, items);
+        if (encoded != items) {
+            writeList(0, encoded);
+        }
+    }
 }
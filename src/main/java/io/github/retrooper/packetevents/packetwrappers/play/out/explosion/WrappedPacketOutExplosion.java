@@ -24,6 +24,7 @@ import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
 import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3d;
 import io.github.retrooper.packetevents.utils.vector.Vector3f;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
@@ -216,6 +217,52 @@ public class WrappedPacketOutExplosion extends WrappedPacket implements Sendable
         }
     }
 
+    /**
+     * Get the affected blocks without allocating a vector per block.
+     *
+     * @return Packed block positions
+     * @see PackedBlockPosition
+     */
+    public long[] getRecordsPacked() {
+        if (packet != null) {
+            List<?> rawRecordsList = (List<?>) readObject(0, List.class);
+            long[] packedRecords = new long[rawRecordsList.size()];
+            for (int i = 0; i < packedRecords.length; i++) {
+                Object position = rawRecordsList.get(i);
+                if (v_1_8) {
+                    packedRecords[i] = NMSUtils.readPackedBlockPos(position);
+                } else {
+                    WrappedPacket posWrapper = new WrappedPacket(new NMSPacket(position));
+                    packedRecords[i] = PackedBlockPosition.pack(posWrapper.readInt(0), posWrapper.readInt(1), posWrapper.readInt(2));
+                }
+            }
+            return packedRecords;
+        } else {
+            long[] packedRecords = new long[records.size()];
+            for (int i = 0; i < packedRecords.length; i++) {
+                packedRecords[i] = PackedBlockPosition.pack(records.get(i));
+            }
+            return packedRecords;
+        }
+    }
+
+    public void setRecordsPacked(long[] packedRecords) {
+        if (packet != null && v_1_8) {
+            List<Object> nmsRecordsList = new ArrayList<>(packedRecords.length);
+            for (long packedRecord : packedRecords) {
+                nmsRecordsList.add(NMSUtils.generateNMSBlockPos(PackedBlockPosition.unpackX(packedRecord),
+                        PackedBlockPosition.unpackY(packedRecord), PackedBlockPosition.unpackZ(packedRecord)));
+            }
+            write(List.class, 0, nmsRecordsList);
+        } else {
+            List<Vector3i> records = new ArrayList<>(packedRecords.length);
+            for (long packedRecord : packedRecords) {
+                records.add(PackedBlockPosition.unpack(packedRecord));
+            }
+            setRecords(records);
+        }
+    }
+
     public Vector3f getPlayerVelocity() {
         if (packet != null) {
             return new Vector3f(readFloat(1), readFloat(2), readFloat(3));
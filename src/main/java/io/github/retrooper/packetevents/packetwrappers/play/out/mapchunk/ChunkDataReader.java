@@ -0,0 +1,393 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.mapchunk;
+
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+
+import java.util.BitSet;
+
+/**
+ * Reads the block states of the chunk sections in a map chunk packet.
+ * The reader works directly on the data buffer of the packet, it doesn't copy it and doesn't create an object per block.
+ * Block states are the global palette IDs of the server version:
+ * (block ID &lt;&lt; 4) | data on 1.8 - 1.12.2 and the block state ID on 1.13 and newer.
+ * The reader is not thread-safe and it must not be used after the packet's data has been modified.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class ChunkDataReader {
+    private static final int SECTION_BLOCKS = 4096;
+    private static final int LIGHT_BYTES = 2048;
+    private static final int LEGACY_SECTION_BYTES = SECTION_BLOCKS * 2;
+    private static final int MAX_PALETTE_SIZE = 256;
+    private final byte[] data;
+    private final int[] sectionOffsets;
+    private final int[] sectionYs;
+    private final int sectionCount;
+    private final boolean legacy, blockLight, blockCount, paletteLengthAlways, spanningEntries, biomePalettes;
+    private boolean skyLight;
+    //Header of the section we decoded last, so random access doesn't parse the palette again for every block.
+    private final int[] palette = new int[MAX_PALETTE_SIZE];
+    private int paletteSection = -1;
+    private int bitsPerEntry;
+    private int paletteLength;
+    private int dataOffset;
+
+    /**
+     * @param version     Server version that created the packet.
+     * @param data        Chunk data buffer of the packet.
+     * @param sectionMask Chunk sections that are being sent, null on 1.18 and newer servers.
+     * @param fullChunk   Whether the packet overwrites the entire chunk column.
+     * @param minimumY    Lowest block Y of the world, 0 before 1.17.
+     */
+    public ChunkDataReader(ServerVersion version, byte[] data, BitSet sectionMask, boolean fullChunk, int minimumY) {
+        this.data = data;
+        this.legacy = version.isOlderThan(ServerVersion.v_1_9);
+        this.blockLight = version.isOlderThan(ServerVersion.v_1_14);
+        this.blockCount = version.isNewerThanOrEquals(ServerVersion.v_1_14);
+        this.paletteLengthAlways = version.isOlderThan(ServerVersion.v_1_13);
+        this.spanningEntries = version.isOlderThan(ServerVersion.v_1_16);
+        this.biomePalettes = version.isNewerThanOrEquals(ServerVersion.v_1_18);
+        int minimumSection = minimumY >> 4;
+        if (biomePalettes) {
+            //No mask, the sections are sent from the bottom to the top of the world until the buffer ends.
+            int[] offsets = new int[16];
+            int count = 0;
+            int position = 0;
+            while (position < data.length) {
+                if (count == offsets.length) {
+                    int[] grown = new int[count << 1];
+                    System.arraycopy(offsets, 0, grown, 0, count);
+                    offsets = grown;
+                }
+                offsets[count++] = position;
+                position = skipSection(position);
+                if (position < 0) {
+                    count--;
+                    break;
+                }
+            }
+            this.sectionCount = count;
+            this.sectionOffsets = offsets;
+            this.sectionYs = new int[count];
+            for (int i = 0; i < count; i++) {
+                sectionYs[i] = minimumSection + i;
+            }
+        } else {
+            this.sectionCount = sectionMask.cardinality();
+            this.sectionOffsets = new int[sectionCount];
+            this.sectionYs = new int[sectionCount];
+            int index = 0;
+            for (int bit = sectionMask.nextSetBit(0); bit >= 0; bit = sectionMask.nextSetBit(bit + 1)) {
+                sectionYs[index++] = minimumSection + bit;
+            }
+            if (legacy) {
+                //1.8 sends the block arrays of all sections first, light and biomes follow them.
+                for (int i = 0; i < sectionCount; i++) {
+                    sectionOffsets[i] = i * LEGACY_SECTION_BYTES;
+                }
+            } else if (blockLight) {
+                //The packet doesn't tell us whether the dimension has sky light, the buffer size does.
+                int biomeBytes = fullChunk ? (paletteLengthAlways ? 256 : 1024) : 0;
+                skyLight = true;
+                if (indexSections() != data.length - biomeBytes) {
+                    skyLight = false;
+                    indexSections();
+                }
+            } else {
+                indexSections();
+            }
+        }
+    }
+
+    /**
+     * Amount of chunk sections in the packet.
+     *
+     * @return Section count
+     */
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    /**
+     * Section Y coordinate (block Y &gt;&gt; 4) of a chunk section in the packet.
+     *
+     * @param sectionIndex Index of the section in the packet, from the bottom to the top.
+     * @return Section Y
+     */
+    public int getSectionY(int sectionIndex) {
+        return sectionYs[sectionIndex];
+    }
+
+    /**
+     * Block state at a position in this chunk column.
+     *
+     * @param x Chunk relative X (0 - 15)
+     * @param y Block Y
+     * @param z Chunk relative Z (0 - 15)
+     * @return Block state, -1 if the section isn't part of the packet.
+     */
+    public int getBlockState(int x, int y, int z) {
+        int section = findSection(y >> 4);
+        if (section == -1) {
+            return -1;
+        }
+        int index = ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+        if (legacy) {
+            int position = sectionOffsets[section] + (index << 1);
+            return (data[position] & 0xFF) | ((data[position + 1] & 0xFF) << 8);
+        }
+        loadSection(section);
+        if (bitsPerEntry == 0) {
+            return palette[0];
+        }
+        int value;
+        long mask = (1L << bitsPerEntry) - 1L;
+        if (spanningEntries) {
+            int bitIndex = index * bitsPerEntry;
+            int longIndex = bitIndex >> 6;
+            int bitOffset = bitIndex & 63;
+            long current = readLong(dataOffset + (longIndex << 3));
+            if (bitOffset + bitsPerEntry > 64) {
+                long next = readLong(dataOffset + ((longIndex + 1) << 3));
+                value = (int) (((current >>> bitOffset) | (next << (64 - bitOffset))) & mask);
+            } else {
+                value = (int) ((current >>> bitOffset) & mask);
+            }
+        } else {
+            int entriesPerLong = 64 / bitsPerEntry;
+            int longIndex = index / entriesPerLong;
+            int bitOffset = (index - longIndex * entriesPerLong) * bitsPerEntry;
+            value = (int) ((readLong(dataOffset + (longIndex << 3)) >>> bitOffset) & mask);
+        }
+        return paletteLength == 0 ? value : palette[value];
+    }
+
+    /**
+     * Decode every block of every section in the packet, section by section from the bottom to the top.
+     * Inside a section the blocks are visited in the order they are stored: Y, then Z, then X.
+     *
+     * @param consumer Block consumer
+     */
+    public void forEachBlock(BlockConsumer consumer) {
+        for (int section = 0; section < sectionCount; section++) {
+            int baseY = sectionYs[section] << 4;
+            if (legacy) {
+                int position = sectionOffsets[section];
+                for (int index = 0; index < SECTION_BLOCKS; index++, position += 2) {
+                    int state = (data[position] & 0xFF) | ((data[position + 1] & 0xFF) << 8);
+                    consumer.accept(index & 15, baseY + (index >> 8), (index >> 4) & 15, state);
+                }
+                continue;
+            }
+            loadSection(section);
+            int bits = bitsPerEntry;
+            if (bits == 0) {
+                int state = palette[0];
+                for (int index = 0; index < SECTION_BLOCKS; index++) {
+                    consumer.accept(index & 15, baseY + (index >> 8), (index >> 4) & 15, state);
+                }
+                continue;
+            }
+            boolean direct = paletteLength == 0;
+            long mask = (1L << bits) - 1L;
+            int position = dataOffset;
+            long current = readLong(position);
+            int bitOffset = 0;
+            for (int index = 0; index < SECTION_BLOCKS; index++) {
+                long value;
+                if (bitOffset + bits > 64) {
+                    position += 8;
+                    long next = readLong(position);
+                    if (spanningEntries && bitOffset < 64) {
+                        value = ((current >>> bitOffset) | (next << (64 - bitOffset))) & mask;
+                        bitOffset += bits - 64;
+                    } else {
+                        //1.16+ pads the rest of the long instead of splitting an entry
+                        value = next & mask;
+                        bitOffset = bits;
+                    }
+                    current = next;
+                } else {
+                    value = (current >>> bitOffset) & mask;
+                    bitOffset += bits;
+                }
+                int state = direct ? (int) value : palette[(int) value];
+                consumer.accept(index & 15, baseY + (index >> 8), (index >> 4) & 15, state);
+            }
+        }
+    }
+
+    private int findSection(int sectionY) {
+        for (int i = 0; i < sectionCount; i++) {
+            if (sectionYs[i] == sectionY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parse the bits per entry and palette of a 1.9+ section.
+     */
+    private void loadSection(int section) {
+        if (paletteSection == section) {
+            return;
+        }
+        int position = sectionOffsets[section];
+        if (blockCount) {
+            position += 2;
+        }
+        int bits = data[position++] & 0xFF;
+        paletteLength = 0;
+        if (biomePalettes && bits == 0) {
+            //Single valued section
+            long result = readVarInt(position);
+            palette[0] = (int) result;
+            paletteLength = 1;
+            position = (int) (result >>> 32);
+        } else if (bits <= 8 || paletteLengthAlways) {
+            long result = readVarInt(position);
+            int length = (int) result;
+            position = (int) (result >>> 32);
+            for (int i = 0; i < length; i++) {
+                result = readVarInt(position);
+                if (i < MAX_PALETTE_SIZE) {
+                    palette[i] = (int) result;
+                }
+                position = (int) (result >>> 32);
+            }
+            paletteLength = length;
+        }
+        //Skip the length of the long array
+        position = (int) (readVarInt(position) >>> 32);
+        bitsPerEntry = bits;
+        dataOffset = position;
+        paletteSection = section;
+    }
+
+    /**
+     * Compute the offsets of the 1.9 - 1.17 sections.
+     *
+     * @return Position after the last section, -1 if the buffer was too short.
+     */
+    private int indexSections() {
+        int position = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            sectionOffsets[i] = position;
+            position = skipSection(position);
+            if (position < 0) {
+                return -1;
+            }
+        }
+        paletteSection = -1;
+        return position;
+    }
+
+    /**
+     * @return Position after the section, -1 if the buffer was too short.
+     */
+    private int skipSection(int position) {
+        if (blockCount) {
+            position += 2;
+        }
+        position = skipPalettedContainer(position, 8);
+        if (position < 0) {
+            return -1;
+        }
+        if (biomePalettes) {
+            position = skipPalettedContainer(position, 3);
+        } else if (blockLight) {
+            position += skyLight ? LIGHT_BYTES * 2 : LIGHT_BYTES;
+        }
+        return position <= data.length ? position : -1;
+    }
+
+    private int skipPalettedContainer(int position, int maxIndirectBits) {
+        if (position >= data.length) {
+            return -1;
+        }
+        int bits = data[position++] & 0xFF;
+        if (biomePalettes && bits == 0) {
+            position = skipVarInt(position);
+        } else if (bits <= maxIndirectBits || paletteLengthAlways) {
+            long result = readVarInt(position);
+            int length = (int) result;
+            position = (int) (result >>> 32);
+            for (int i = 0; i < length && position >= 0; i++) {
+                position = skipVarInt(position);
+            }
+        }
+        if (position < 0 || position >= data.length) {
+            return -1;
+        }
+        long result = readVarInt(position);
+        position = (int) (result >>> 32);
+        return position < 0 ? -1 : position + ((int) result << 3);
+    }
+
+    private int skipVarInt(int position) {
+        for (int i = 0; i < 5 && position < data.length; i++) {
+            if ((data[position++] & 0x80) == 0) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a VarInt without allocating a cursor object.
+     *
+     * @return Value in the lower 32 bits, position after the VarInt in the upper 32 bits.
+     */
+    private long readVarInt(int position) {
+        int value = 0;
+        for (int i = 0; i < 5 && position < data.length; i++) {
+            byte b = data[position++];
+            value |= (b & 0x7F) << (i * 7);
+            if ((b & 0x80) == 0) {
+                return ((long) position << 32) | (value & 0xFFFFFFFFL);
+            }
+        }
+        return (-1L << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    private long readLong(int position) {
+        return ((long) data[position] << 56)
+                | ((long) (data[position + 1] & 0xFF) << 48)
+                | ((long) (data[position + 2] & 0xFF) << 40)
+                | ((long) (data[position + 3] & 0xFF) << 32)
+                | ((long) (data[position + 4] & 0xFF) << 24)
+                | ((data[position + 5] & 0xFF) << 16)
+                | ((data[position + 6] & 0xFF) << 8)
+                | (data[position + 7] & 0xFF);
+    }
+
+    @FunctionalInterface
+    public interface BlockConsumer {
+        /**
+         * @param x          Chunk relative X (0 - 15)
+         * @param y          Block Y
+         * @param z          Chunk relative Z (0 - 15)
+         * @param blockState Block state
+         */
+        void accept(int x, int y, int z, int blockState);
+    }
+}
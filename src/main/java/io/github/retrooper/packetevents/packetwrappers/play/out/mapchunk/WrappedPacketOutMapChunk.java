@@ -26,6 +26,7 @@ import io.github.retrooper.packetevents.utils.reflection.SubclassUtil;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.BitSet;
 import java.util.Optional;
@@ -34,6 +35,7 @@ import java.util.Optional;
 public class WrappedPacketOutMapChunk extends WrappedPacket {
     private static boolean v_1_8_x, v_1_17, v_1_18;
     private static Class<?> chunkMapClass, chunkPacketDataClass;
+    private static Field chunkPacketDataBufferField;
     private Constructor<?> chunkMapConstructor;
     private Object nmsChunkMap;
 
@@ -55,6 +57,9 @@ public class WrappedPacketOutMapChunk extends WrappedPacket {
             }
         }
         chunkPacketDataClass = Reflection.getClassByNameWithoutException("net.minecraft.network.protocol.game.ClientboundLevelChunkPacketData");
+        if (chunkPacketDataClass != null) {
+            chunkPacketDataBufferField = Reflection.getField(chunkPacketDataClass, byte[].class, 0);
+        }
     }
 
     public int getChunkX() {
@@ -163,7 +168,12 @@ public class WrappedPacketOutMapChunk extends WrappedPacket {
             WrappedPacket nmsChunkMapWrapper = new WrappedPacket(new NMSPacket(nmsChunkMap));
             return nmsChunkMapWrapper.readByteArray(0);
         } else if (v_1_18) {
-            return new WrappedPacket(new NMSPacket(readObject(0, chunkPacketDataClass))).readByteArray(0);
+            try {
+                return (byte[]) chunkPacketDataBufferField.get(readObject(0, chunkPacketDataClass));
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                return null;
+            }
         } else {
             return readByteArray(0);
         }
@@ -182,9 +192,43 @@ public class WrappedPacketOutMapChunk extends WrappedPacket {
             nmsChunkMapWrapper.writeByteArray(0, data);
             write(chunkMapClass, 0, nmsChunkMap);
         } else if (v_1_18) {
-            new WrappedPacket(new NMSPacket(readObject(0, chunkPacketDataClass))).writeByteArray(0, data);
+            try {
+                chunkPacketDataBufferField.set(readObject(0, chunkPacketDataClass), data);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+            }
         } else {
             writeByteArray(0, data);
         }
     }
+
+    /**
+     * Read the block states of the chunk sections in this packet without copying the chunk data.
+     * Equal to {@link #getChunkData(int)} with a minimum Y of 0.
+     *
+     * @return Chunk data reader
+     */
+    @SupportedVersions(ranges = {ServerVersion.v_1_8, ServerVersion.ERROR})
+    public ChunkDataReader getChunkData() {
+        return getChunkData(0);
+    }
+
+    /**
+     * Read the block states of the chunk sections in this packet without copying the chunk data.
+     * 1.17 and newer servers send the sections starting at the bottom of the world,
+     * pass the minimum height of the player's world to get the correct block Y coordinates.
+     *
+     * @param minimumY Lowest block Y of the world the chunk belongs to.
+     * @return Chunk data reader
+     */
+    @SupportedVersions(ranges = {ServerVersion.v_1_8, ServerVersion.ERROR})
+    public ChunkDataReader getChunkData(int minimumY) {
+        if (version.isOlderThan(ServerVersion.v_1_8)) {
+            //The chunk data of 1.7.10 is deflated inside the packet
+            throwUnsupportedOperation();
+        }
+        BitSet sectionMask = v_1_18 ? null : getBitSet().get();
+        boolean fullChunk = v_1_17 || isGroundUpContinuous().get();
+        return new ChunkDataReader(version, getCompressedData(), sectionMask, fullChunk, minimumY);
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.multiblockchange;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
+import io.github.retrooper.packetevents.packetwrappers.play.out.blockchange.WrappedPacketOutBlockChange;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects fake block changes for a player and sends them with as few packets as possible.
+ * Changes are grouped by chunk column (1.7.10 - 1.16.1) or chunk section (1.16.2+),
+ * every group is sent as one multi block change packet, groups with a single block as a normal block change.
+ * Adding the same position twice keeps the last block type.
+ * A batch is not thread-safe, it can be sent several times.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class BlockChangeBatch {
+    private final Map<Long, Map<Long, Material>> groups = new LinkedHashMap<>();
+    private int size;
+
+    public BlockChangeBatch add(int x, int y, int z, Material blockType) {
+        return add(PackedBlockPosition.pack(x, y, z), blockType);
+    }
+
+    /**
+     * Add a block change.
+     *
+     * @param blockPosition Packed absolute block position
+     * @param blockType     Block type to show
+     * @return This batch
+     */
+    public BlockChangeBatch add(long blockPosition, Material blockType) {
+        Map<Long, Material> group = groups.computeIfAbsent(getGroupKey(blockPosition), key -> new LinkedHashMap<>());
+        if (group.put(blockPosition, blockType) == null) {
+            size++;
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        groups.clear();
+        size = 0;
+    }
+
+    /**
+     * Create the packets of this batch.
+     *
+     * @param world World of the blocks, only needed for single block changes on 1.7.10 servers.
+     * @return One packet per chunk column or section.
+     */
+    public List<SendableWrapper> toPackets(World world) {
+        List<SendableWrapper> packets = new ArrayList<>(groups.size());
+        for (Map<Long, Material> group : groups.values()) {
+            if (group.size() == 1) {
+                Map.Entry<Long, Material> change = group.entrySet().iterator().next();
+                packets.add(new WrappedPacketOutBlockChange(world, PackedBlockPosition.unpack(change.getKey()), change.getValue()));
+                continue;
+            }
+            long[] blockPositions = new long[group.size()];
+            Material[] blockTypes = new Material[blockPositions.length];
+            int i = 0;
+            for (Map.Entry<Long, Material> change : group.entrySet()) {
+                blockPositions[i] = change.getKey();
+                blockTypes[i++] = change.getValue();
+            }
+            packets.add(new WrappedPacketOutMultiBlockChange(blockPositions, blockTypes));
+        }
+        return packets;
+    }
+
+    /**
+     * Send the batch to a player, the packets are flushed once at the end.
+     *
+     * @param player Target player.
+     */
+    public void send(Player player) {
+        if (isEmpty()) {
+            return;
+        }
+        for (SendableWrapper packet : toPackets(player.getWorld())) {
+            PacketEvents.get().getPlayerUtils().writePacket(player, packet);
+        }
+        PacketEvents.get().getPlayerUtils().flushPackets(player);
+    }
+
+    private static long getGroupKey(long blockPosition) {
+        int chunkX = PackedBlockPosition.unpackX(blockPosition) >> 4;
+        int chunkZ = PackedBlockPosition.unpackZ(blockPosition) >> 4;
+        //Older versions send a whole chunk column per packet
+        int sectionY = WrappedPacket.version.isNewerThanOrEquals(ServerVersion.v_1_16_2) ? PackedBlockPosition.unpackY(blockPosition) >> 4 : 0;
+        return PackedBlockPosition.pack(chunkX, sectionY, chunkZ);
+    }
+}
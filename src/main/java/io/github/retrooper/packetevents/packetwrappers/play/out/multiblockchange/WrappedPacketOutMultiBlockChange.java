@@ -0,0 +1,301 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.multiblockchange;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packettype.PacketTypeClasses;
+import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import io.github.retrooper.packetevents.utils.reflection.SubclassUtil;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
+import org.bukkit.Material;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Several block changes in one chunk column (1.7.10 - 1.16.1) or one chunk section (1.16.2+).
+ * Block positions are absolute and packed, see {@link PackedBlockPosition}.
+ * All positions of a packet have to be in the same column or section, {@link BlockChangeBatch} groups them for you.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public class WrappedPacketOutMultiBlockChange extends WrappedPacket implements SendableWrapper {
+    private static final Map<Material, Object> BLOCK_DATA_CACHE = new ConcurrentHashMap<>();
+    private static boolean v_1_7_10, sectioned;
+    private static Constructor<?> packetConstructor, chunkCoordIntPairConstructor, blockChangeInfoConstructor;
+    private static Class<?> chunkCoordIntPairClass, blockChangeInfoClass, blockDataArrayClass;
+    private static Method getNMSBlockMethod, sectionPositionFactory, getLegacyBlockID, getLegacyBlockByID;
+    private long[] blockPositions;
+    private Material[] blockTypes;
+
+    public WrappedPacketOutMultiBlockChange(NMSPacket packet) {
+        super(packet);
+    }
+
+    /**
+     * @param blockPositions Packed absolute block positions, all in the same chunk column (1.16.2+: chunk section).
+     * @param blockTypes     Block type of each position.
+     */
+    public WrappedPacketOutMultiBlockChange(long[] blockPositions, Material[] blockTypes) {
+        if (blockPositions.length != blockTypes.length) {
+            throw new IllegalArgumentException("Every block position needs a block type!");
+        }
+        this.blockPositions = blockPositions;
+        this.blockTypes = blockTypes;
+    }
+
+    @Override
+    protected void load() {
+        Class<?> packetClass = PacketTypeClasses.Play.Server.MULTI_BLOCK_CHANGE;
+        v_1_7_10 = version.isOlderThan(ServerVersion.v_1_8);
+        sectioned = version.isNewerThanOrEquals(ServerVersion.v_1_16_2);
+        try {
+            packetConstructor = packetClass.getConstructor();
+        } catch (NoSuchMethodException e) {
+            try {
+                packetConstructor = packetClass.getConstructor(NMSUtils.packetDataSerializerClass);
+            } catch (NoSuchMethodException e2) {
+                e2.printStackTrace();
+            }
+        }
+        if (sectioned) {
+            sectionPositionFactory = Reflection.getMethod(NMSUtils.sectionPositionClass, NMSUtils.sectionPositionClass, 0, int.class, int.class, int.class);
+        } else {
+            chunkCoordIntPairClass = NMSUtils.getNMSClassWithoutException("ChunkCoordIntPair");
+            try {
+                chunkCoordIntPairConstructor = chunkCoordIntPairClass.getConstructor(int.class, int.class);
+            } catch (NoSuchMethodException e) {
+                e.printStackTrace();
+            }
+        }
+        if (v_1_7_10) {
+            getLegacyBlockID = Reflection.getMethod(NMSUtils.blockClass, "getId", int.class, NMSUtils.blockClass);
+            getLegacyBlockByID = Reflection.getMethod(NMSUtils.blockClass, "getById", NMSUtils.blockClass, int.class);
+        } else {
+            blockDataArrayClass = Array.newInstance(NMSUtils.iBlockDataClass, 0).getClass();
+            getNMSBlockMethod = Reflection.getMethod(NMSUtils.iBlockDataClass, "getBlock", 0);
+            if (getNMSBlockMethod == null) {
+                Class<?> blockDataClass = NMSUtils.iBlockDataClass.getSuperclass();
+                getNMSBlockMethod = Reflection.getMethod(blockDataClass, NMSUtils.blockClass, 0);
+            }
+        }
+        if (!v_1_7_10 && !sectioned) {
+            blockChangeInfoClass = SubclassUtil.getSubClass(packetClass, "MultiBlockChangeInfo");
+            //MultiBlockChangeInfo is an inner class, its constructor takes the packet first
+            for (Constructor<?> constructor : blockChangeInfoClass.getDeclaredConstructors()) {
+                Class<?>[] parameterTypes = constructor.getParameterTypes();
+                if (parameterTypes[parameterTypes.length - 1] == NMSUtils.iBlockDataClass) {
+                    constructor.setAccessible(true);
+                    blockChangeInfoConstructor = constructor;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packed absolute positions of the changed blocks.
+     *
+     * @return Block positions
+     */
+    public long[] getBlockPositions() {
+        if (packet != null) {
+            if (sectioned) {
+                long sectionPosition = NMSUtils.readPackedBlockPos(readObject(0, NMSUtils.sectionPositionClass));
+                int baseX = PackedBlockPosition.unpackX(sectionPosition) << 4;
+                int baseY = PackedBlockPosition.unpackY(sectionPosition) << 4;
+                int baseZ = PackedBlockPosition.unpackZ(sectionPosition) << 4;
+                short[] positions = readShortArray(0);
+                long[] blockPositions = new long[positions.length];
+                for (int i = 0; i < positions.length; i++) {
+                    short position = positions[i];
+                    blockPositions[i] = PackedBlockPosition.pack(baseX + (position >>> 8 & 15), baseY + (position & 15), baseZ + (position >>> 4 & 15));
+                }
+                return blockPositions;
+            }
+            WrappedPacket chunkCoordWrapper = new WrappedPacket(new NMSPacket(readObject(0, chunkCoordIntPairClass)));
+            int baseX = chunkCoordWrapper.readInt(0) << 4;
+            int baseZ = chunkCoordWrapper.readInt(1) << 4;
+            short[] positions;
+            if (v_1_7_10) {
+                positions = new short[readInt(0)];
+                DataInputStream input = new DataInputStream(new ByteArrayInputStream(readByteArray(0)));
+                try {
+                    for (int i = 0; i < positions.length; i++) {
+                        positions[i] = input.readShort();
+                        input.readShort();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                Object[] blockChangeInfos = (Object[]) readObject(0, Array.newInstance(blockChangeInfoClass, 0).getClass());
+                positions = new short[blockChangeInfos.length];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = new WrappedPacket(new NMSPacket(blockChangeInfos[i])).readShort(0);
+                }
+            }
+            long[] blockPositions = new long[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                short position = positions[i];
+                blockPositions[i] = PackedBlockPosition.pack(baseX + (position >>> 12 & 15), position & 255, baseZ + (position >>> 8 & 15));
+            }
+            return blockPositions;
+        } else {
+            return blockPositions;
+        }
+    }
+
+    /**
+     * Block types of the changed blocks, in the order of {@link #getBlockPositions()}.
+     *
+     * @return Block types
+     */
+    public Material[] getBlockTypes() {
+        if (packet != null) {
+            Object[] nmsBlocks;
+            if (v_1_7_10) {
+                nmsBlocks = new Object[readInt(0)];
+                DataInputStream input = new DataInputStream(new ByteArrayInputStream(readByteArray(0)));
+                try {
+                    for (int i = 0; i < nmsBlocks.length; i++) {
+                        input.readShort();
+                        int blockID = (input.readShort() & 0xFFFF) >> 4;
+                        nmsBlocks[i] = getLegacyBlockByID.invoke(null, blockID);
+                    }
+                } catch (IOException | IllegalAccessException | InvocationTargetException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                Object[] blockData;
+                if (sectioned) {
+                    blockData = (Object[]) readObject(0, blockDataArrayClass);
+                } else {
+                    Object[] blockChangeInfos = (Object[]) readObject(0, Array.newInstance(blockChangeInfoClass, 0).getClass());
+                    blockData = new Object[blockChangeInfos.length];
+                    for (int i = 0; i < blockData.length; i++) {
+                        blockData[i] = new WrappedPacket(new NMSPacket(blockChangeInfos[i])).readObject(0, NMSUtils.iBlockDataClass);
+                    }
+                }
+                nmsBlocks = new Object[blockData.length];
+                try {
+                    for (int i = 0; i < blockData.length; i++) {
+                        nmsBlocks[i] = getNMSBlockMethod.invoke(blockData[i]);
+                    }
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    e.printStackTrace();
+                }
+            }
+            Material[] blockTypes = new Material[nmsBlocks.length];
+            for (int i = 0; i < nmsBlocks.length; i++) {
+                blockTypes[i] = NMSUtils.getMaterialFromNMSBlock(nmsBlocks[i]);
+            }
+            return blockTypes;
+        } else {
+            return blockTypes;
+        }
+    }
+
+    @Override
+    public Object asNMSPacket() throws Exception {
+        long[] blockPositions = getBlockPositions();
+        Material[] blockTypes = getBlockTypes();
+        Object packetInstance;
+        if (packetConstructor.getParameterCount() == 0) {
+            packetInstance = packetConstructor.newInstance();
+        } else {
+            //Section position, the light update flag (before 1.20) and an empty change list
+            Object byteBuf = PacketEvents.get().getByteBufUtil().newByteBuf(new byte[10]);
+            packetInstance = packetConstructor.newInstance(NMSUtils.generatePacketDataSerializer(byteBuf));
+        }
+        WrappedPacket packetWrapper = new WrappedPacket(new NMSPacket(packetInstance));
+        if (blockPositions.length == 0) {
+            return packetInstance;
+        }
+        int chunkX = PackedBlockPosition.unpackX(blockPositions[0]) >> 4;
+        int chunkZ = PackedBlockPosition.unpackZ(blockPositions[0]) >> 4;
+        if (sectioned) {
+            int sectionY = PackedBlockPosition.unpackY(blockPositions[0]) >> 4;
+            short[] positions = new short[blockPositions.length];
+            Object[] blockData = (Object[]) Array.newInstance(NMSUtils.iBlockDataClass, blockPositions.length);
+            for (int i = 0; i < blockPositions.length; i++) {
+                long blockPosition = blockPositions[i];
+                positions[i] = (short) ((PackedBlockPosition.unpackX(blockPosition) & 15) << 8
+                        | (PackedBlockPosition.unpackZ(blockPosition) & 15) << 4
+                        | (PackedBlockPosition.unpackY(blockPosition) & 15));
+                blockData[i] = getBlockData(blockTypes[i]);
+            }
+            packetWrapper.write(NMSUtils.sectionPositionClass, 0, sectionPositionFactory.invoke(null, chunkX, sectionY, chunkZ));
+            packetWrapper.writeShortArray(0, positions);
+            packetWrapper.write(blockDataArrayClass, 0, blockData);
+            return packetInstance;
+        }
+        packetWrapper.write(chunkCoordIntPairClass, 0, chunkCoordIntPairConstructor.newInstance(chunkX, chunkZ));
+        if (v_1_7_10) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(blockPositions.length * 4);
+            DataOutputStream output = new DataOutputStream(bytes);
+            for (int i = 0; i < blockPositions.length; i++) {
+                output.writeShort(getLegacyPosition(blockPositions[i]));
+                int blockID = (int) getLegacyBlockID.invoke(null, NMSUtils.getNMSBlockFromMaterial(blockTypes[i]));
+                output.writeShort(blockID << 4);
+            }
+            packetWrapper.writeByteArray(0, bytes.toByteArray());
+            packetWrapper.writeInt(0, blockPositions.length);
+        } else {
+            Object[] blockChangeInfos = (Object[]) Array.newInstance(blockChangeInfoClass, blockPositions.length);
+            for (int i = 0; i < blockPositions.length; i++) {
+                blockChangeInfos[i] = blockChangeInfoConstructor.newInstance(packetInstance, getLegacyPosition(blockPositions[i]), getBlockData(blockTypes[i]));
+            }
+            packetWrapper.write(blockChangeInfos.getClass(), 0, blockChangeInfos);
+        }
+        return packetInstance;
+    }
+
+    private static short getLegacyPosition(long blockPosition) {
+        return (short) ((PackedBlockPosition.unpackX(blockPosition) & 15) << 12
+                | (PackedBlockPosition.unpackZ(blockPosition) & 15) << 8
+                | (PackedBlockPosition.unpackY(blockPosition) & 255));
+    }
+
+    private static Object getBlockData(Material blockType) {
+        Object blockData = BLOCK_DATA_CACHE.get(blockType);
+        if (blockData == null) {
+            Object nmsBlock = NMSUtils.getNMSBlockFromMaterial(blockType);
+            WrappedPacket nmsBlockWrapper = new WrappedPacket(new NMSPacket(nmsBlock), NMSUtils.blockClass);
+            blockData = nmsBlockWrapper.readObject(0, NMSUtils.iBlockDataClass);
+            BLOCK_DATA_CACHE.put(blockType, blockData);
+        }
+        return blockData;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo;
+
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo.WrappedPacketOutPlayerInfo.PlayerInfoAction;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Tablist entries we have sent to one viewer.
+ * {@link #update(Collection)} compares the entries the viewer should see with the ones it already sees
+ * and creates the player info packets for the difference only.
+ * Entries that are the same instance as the one we sent last are skipped without comparing them,
+ * so share your {@link TablistEntry} instances between viewers.
+ * Changes are grouped by action, every action needs one packet (one packet per entry on 1.7.10 servers).
+ * Only use this for entries you manage yourself, entries the server sends are not tracked.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.utils.player.PlayerUtils#updateTablist(org.bukkit.entity.Player, Collection)
+ */
+public final class Tablist {
+    private final Map<UUID, TablistEntry> sentEntries = new HashMap<>();
+
+    /**
+     * Replace the entries of the viewer.
+     *
+     * @param entries Every entry the viewer should see.
+     * @return Packets to send to the viewer, in order.
+     */
+    public synchronized List<WrappedPacketOutPlayerInfo> update(Collection<TablistEntry> entries) {
+        checkSupported();
+        Map<UUID, TablistEntry> desired = new HashMap<>(entries.size() * 4 / 3 + 1);
+        for (TablistEntry entry : entries) {
+            desired.put(entry.getUUID(), entry);
+        }
+        List<TablistEntry> removed = new ArrayList<>();
+        Iterator<Map.Entry<UUID, TablistEntry>> iterator = sentEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, TablistEntry> sent = iterator.next();
+            if (!desired.containsKey(sent.getKey())) {
+                removed.add(sent.getValue());
+                iterator.remove();
+            }
+        }
+        return diff(desired.values(), removed);
+    }
+
+    /**
+     * Add or update some entries, the other entries of the viewer are kept.
+     *
+     * @param entries Changed entries.
+     * @return Packets to send to the viewer, in order.
+     */
+    public synchronized List<WrappedPacketOutPlayerInfo> put(Collection<TablistEntry> entries) {
+        checkSupported();
+        return diff(entries, new ArrayList<>());
+    }
+
+    /**
+     * Remove some entries.
+     *
+     * @param uuids UUIDs of the entries.
+     * @return Packets to send to the viewer.
+     */
+    public synchronized List<WrappedPacketOutPlayerInfo> remove(Collection<UUID> uuids) {
+        checkSupported();
+        List<TablistEntry> removed = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            TablistEntry sent = sentEntries.remove(uuid);
+            if (sent != null) {
+                removed.add(sent);
+            }
+        }
+        return diff(Collections.emptyList(), removed);
+    }
+
+    /**
+     * Forget the sent entries without removing them from the client.
+     * Call this if the client lost its tablist, for example after a server switch.
+     */
+    public synchronized void reset() {
+        sentEntries.clear();
+    }
+
+    public synchronized int size() {
+        return sentEntries.size();
+    }
+
+    private List<WrappedPacketOutPlayerInfo> diff(Collection<TablistEntry> entries, List<TablistEntry> removed) {
+        List<TablistEntry> added = new ArrayList<>();
+        List<TablistEntry> gameModeChanged = new ArrayList<>();
+        List<TablistEntry> latencyChanged = new ArrayList<>();
+        List<TablistEntry> displayNameChanged = new ArrayList<>();
+        for (TablistEntry entry : entries) {
+            TablistEntry sent = sentEntries.put(entry.getUUID(), entry);
+            if (sent == entry) {
+                continue;
+            }
+            if (sent == null) {
+                added.add(entry);
+            } else if (!sent.getName().equals(entry.getName())) {
+                //The profile can't be updated, so we have to add the entry again.
+                removed.add(sent);
+                added.add(entry);
+            } else {
+                if (sent.getGameMode() != entry.getGameMode()) {
+                    gameModeChanged.add(entry);
+                }
+                if (sent.getPing() != entry.getPing()) {
+                    latencyChanged.add(entry);
+                }
+                if (!Objects.equals(sent.getDisplayName(), entry.getDisplayName())) {
+                    displayNameChanged.add(entry);
+                }
+            }
+        }
+        List<WrappedPacketOutPlayerInfo> packets = new ArrayList<>();
+        addPackets(packets, PlayerInfoAction.REMOVE_PLAYER, removed);
+        addPackets(packets, PlayerInfoAction.ADD_PLAYER, added);
+        addPackets(packets, PlayerInfoAction.UPDATE_GAME_MODE, gameModeChanged);
+        addPackets(packets, PlayerInfoAction.UPDATE_LATENCY, latencyChanged);
+        addPackets(packets, PlayerInfoAction.UPDATE_DISPLAY_NAME, displayNameChanged);
+        return packets;
+    }
+
+    private static void addPackets(List<WrappedPacketOutPlayerInfo> packets, PlayerInfoAction action, List<TablistEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (WrappedPacket.version.isOlderThan(ServerVersion.v_1_8)) {
+            //1.7.10 packets contain a single entry
+            for (TablistEntry entry : entries) {
+                packets.add(new WrappedPacketOutPlayerInfo(action, Collections.singletonList(entry)));
+            }
+        } else {
+            packets.add(new WrappedPacketOutPlayerInfo(action, entries));
+        }
+    }
+
+    private static void checkSupported() {
+        if (WrappedPacket.version.isNewerThan(ServerVersion.v_1_19_2)) {
+            throw new UnsupportedOperationException("The player info packet doesn't exist on 1.19.3+ servers!");
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo;
+
+import io.github.retrooper.packetevents.utils.gameprofile.WrappedGameProfile;
+import io.github.retrooper.packetevents.utils.player.GameMode;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Immutable tablist entry.
+ * Create an entry once and show it to every viewer, its NMS player info data is only created once and then shared
+ * by all packets that contain the entry.
+ * Use the with methods to derive an updated entry.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see Tablist
+ */
+public final class TablistEntry {
+    private final UUID uuid;
+    private final String name;
+    @Nullable
+    private final String displayName;
+    private final GameMode gameMode;
+    private final int ping;
+    private volatile Object nmsPlayerInfoData;
+
+    public TablistEntry(UUID uuid, String name, @Nullable String displayName, GameMode gameMode, int ping) {
+        this.uuid = uuid;
+        this.name = name;
+        this.displayName = displayName;
+        this.gameMode = gameMode;
+        this.ping = ping;
+    }
+
+    public UUID getUUID() {
+        return uuid;
+    }
+
+    /**
+     * Name of the game profile.
+     *
+     * @return Profile name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Name displayed in the tablist.
+     *
+     * @return Display name, null if the profile name is displayed.
+     */
+    @Nullable
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public GameMode getGameMode() {
+        return gameMode;
+    }
+
+    public int getPing() {
+        return ping;
+    }
+
+    public TablistEntry withDisplayName(@Nullable String displayName) {
+        return Objects.equals(this.displayName, displayName) ? this : new TablistEntry(uuid, name, displayName, gameMode, ping);
+    }
+
+    public TablistEntry withGameMode(GameMode gameMode) {
+        return this.gameMode == gameMode ? this : new TablistEntry(uuid, name, displayName, gameMode, ping);
+    }
+
+    public TablistEntry withPing(int ping) {
+        return this.ping == ping ? this : new TablistEntry(uuid, name, displayName, gameMode, ping);
+    }
+
+    public WrappedPacketOutPlayerInfo.PlayerInfo toPlayerInfo() {
+        return new WrappedPacketOutPlayerInfo.PlayerInfo(displayName, new WrappedGameProfile(uuid, name), gameMode, ping);
+    }
+
+    Object getNMSPlayerInfoData() {
+        Object data = nmsPlayerInfoData;
+        if (data == null) {
+            //Two threads may both create it, they create equal objects.
+            data = WrappedPacketOutPlayerInfo.createPlayerInfoData(toPlayerInfo());
+            nmsPlayerInfoData = data;
+        }
+        return data;
+    }
+}
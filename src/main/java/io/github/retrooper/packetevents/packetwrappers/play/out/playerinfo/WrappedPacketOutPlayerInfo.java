@@ -44,6 +44,8 @@ public class WrappedPacketOutPlayerInfo extends WrappedPacket implements Sendabl
     private static byte constructorMode = 0;
     private PlayerInfoAction action;
     private PlayerInfo[] playerInfoArray = new PlayerInfo[0];
+    //Set if the packet is built from tablist entries, their NMS player info data is reused.
+    private List<TablistEntry> entries;
 
     public WrappedPacketOutPlayerInfo(NMSPacket packet) {
         super(packet);
@@ -54,6 +56,12 @@ public class WrappedPacketOutPlayerInfo extends WrappedPacket implements Sendabl
         this.playerInfoArray = playerInfoArray;
     }
 
+    WrappedPacketOutPlayerInfo(PlayerInfoAction action, List<TablistEntry> entries) {
+        this.action = action;
+        this.entries = entries;
+        this.playerInfoArray = null;
+    }
+
     @Override
     protected void load() {
         v_1_7_10 = version.isOlderThan(ServerVersion.v_1_8);
@@ -141,6 +149,12 @@ public class WrappedPacketOutPlayerInfo extends WrappedPacket implements Sendabl
             }
             return playerInfoArray;
         } else {
+            if (playerInfoArray == null) {
+                playerInfoArray = new PlayerInfo[entries.size()];
+                for (int i = 0; i < playerInfoArray.length; i++) {
+                    playerInfoArray[i] = entries.get(i).toPlayerInfo();
+                }
+            }
             return playerInfoArray;
         }
     }
@@ -161,28 +175,36 @@ public class WrappedPacketOutPlayerInfo extends WrappedPacket implements Sendabl
                 List<Object> nmsPlayerInfoList = new ArrayList<>();
 
                 for (PlayerInfo playerInfo : playerInfoArray) {
-                    Object usernameIChatBaseComponent = NMSUtils.generateIChatBaseComponent(NMSUtils.fromStringToJSON(playerInfo.username));
-                    Object mojangGameProfile = GameProfileUtil.getGameProfile(playerInfo.gameProfile.getId(), playerInfo.gameProfile.getName());
-                    Enum<?> nmsGameModeEnumConstant = EnumUtil.valueByIndex(NMSUtils.enumGameModeClass, playerInfo.gameMode.ordinal());
-                    int ping = playerInfo.ping;
-                    try {
-                        if (constructorMode == 0) {
-                            nmsPlayerInfoList.add(playerInfoDataConstructor.newInstance(mojangGameProfile, ping, nmsGameModeEnumConstant, usernameIChatBaseComponent));
-
-                        } else if (constructorMode == 1) {
-                            nmsPlayerInfoList.add(playerInfoDataConstructor.newInstance(null, mojangGameProfile, ping, nmsGameModeEnumConstant, usernameIChatBaseComponent));
-                        }
-                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                        e.printStackTrace();
+                    Object nmsPlayerInfoData = createPlayerInfoData(playerInfo);
+                    if (nmsPlayerInfoData != null) {
+                        nmsPlayerInfoList.add(nmsPlayerInfoData);
                     }
                 }
                 writeList(0, nmsPlayerInfoList);
             }
         } else {
             this.playerInfoArray = playerInfoArray;
+            this.entries = null;
         }
     }
 
+    static Object createPlayerInfoData(PlayerInfo playerInfo) {
+        Object usernameIChatBaseComponent = NMSUtils.generateIChatBaseComponent(NMSUtils.fromStringToJSON(playerInfo.username));
+        Object mojangGameProfile = GameProfileUtil.getGameProfile(playerInfo.gameProfile.getId(), playerInfo.gameProfile.getName());
+        Enum<?> nmsGameModeEnumConstant = EnumUtil.valueByIndex(NMSUtils.enumGameModeClass, playerInfo.gameMode.ordinal());
+        int ping = playerInfo.ping;
+        try {
+            if (constructorMode == 0) {
+                return playerInfoDataConstructor.newInstance(mojangGameProfile, ping, nmsGameModeEnumConstant, usernameIChatBaseComponent);
+            } else if (constructorMode == 1) {
+                return playerInfoDataConstructor.newInstance(null, mojangGameProfile, ping, nmsGameModeEnumConstant, usernameIChatBaseComponent);
+            }
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     @Override
     public Object asNMSPacket() throws Exception {
         Object packetInstance;
@@ -194,9 +216,17 @@ public class WrappedPacketOutPlayerInfo extends WrappedPacket implements Sendabl
             packetInstance = packetConstructor.newInstance();
         }
         WrappedPacketOutPlayerInfo playerInfoWrapper = new WrappedPacketOutPlayerInfo(new NMSPacket(packetInstance));
-        PlayerInfo[] playerInfos = getPlayerInfo();
-        if (playerInfos.length != 0) {
-            playerInfoWrapper.setPlayerInfo(playerInfos);
+        if (entries != null && !v_1_7_10) {
+            List<Object> nmsPlayerInfoList = new ArrayList<>(entries.size());
+            for (TablistEntry entry : entries) {
+                nmsPlayerInfoList.add(entry.getNMSPlayerInfoData());
+            }
+            playerInfoWrapper.writeList(0, nmsPlayerInfoList);
+        } else {
+            PlayerInfo[] playerInfos = getPlayerInfo();
+            if (playerInfos.length != 0) {
+                playerInfoWrapper.setPlayerInfo(playerInfos);
+            }
         }
         playerInfoWrapper.setAction(getAction());
         return packetInstance;
@@ -41,6 +41,8 @@ public class WrappedPacketOutSetSlot extends WrappedPacket implements SendableWr
     private int stateID;
     private int slot;
     private ItemStack itemStack;
+    //Converted item stack of the wrapped packet
+    private ItemStack convertedItemStack;
 
     public WrappedPacketOutSetSlot(NMSPacket packet) {
         super(packet);
@@ -136,9 +138,19 @@ public class WrappedPacketOutSetSlot extends WrappedPacket implements SendableWr
         }
     }
 
+    /**
+     * Item stack of the slot.
+     * If this wrapper wraps a packet, the converted item stack is cached and shared between calls.
+     * Treat it as read-only, changes to it are never written to the packet, use {@link #setItemStack(ItemStack)} with a modified clone.
+     *
+     * @return Item stack
+     */
     public ItemStack getItemStack() {
         if (packet != null) {
-            return readItemStack(0);
+            if (convertedItemStack == null) {
+                convertedItemStack = readItemStack(0);
+            }
+            return convertedItemStack;
         } else {
             return itemStack;
         }
@@ -147,18 +159,32 @@ public class WrappedPacketOutSetSlot extends WrappedPacket implements SendableWr
     public void setItemStack(ItemStack itemStack) {
         if (packet != null) {
             writeItemStack(0, itemStack);
+            convertedItemStack = itemStack;
         } else {
             this.itemStack = itemStack;
         }
     }
 
+    /**
+     * NMS item stack of the slot, without converting it to a Bukkit item stack.
+     *
+     * @return NMS item stack
+     */
+    public Object getRawItemStack() {
+        if (packet != null) {
+            return readObject(0, NMSUtils.nmsItemStackClass);
+        } else {
+            return NMSUtils.toNMSItemStack(itemStack);
+        }
+    }
+
     @Override
     public Object asNMSPacket() throws Exception {
         if (v_1_17_1) {
-            return packetConstructor.newInstance(getWindowId(), getStateId().get(), getSlot(), NMSUtils.toNMSItemStack(getItemStack()));
+            return packetConstructor.newInstance(getWindowId(), getStateId().get(), getSlot(), getRawItemStack());
         }
         else {
-            return packetConstructor.newInstance(getWindowId(), getSlot(), NMSUtils.toNMSItemStack(getItemStack()));
+            return packetConstructor.newInstance(getWindowId(), getSlot(), getRawItemStack());
         }
     }
 }
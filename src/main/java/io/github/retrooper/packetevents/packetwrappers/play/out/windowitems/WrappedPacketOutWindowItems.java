@@ -22,10 +22,12 @@ import io.github.retrooper.packetevents.packettype.PacketTypeClasses;
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
 import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
+import io.github.retrooper.packetevents.utils.list.LazyItemStackList;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
 import org.bukkit.inventory.ItemStack;
 
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -42,6 +44,7 @@ public class WrappedPacketOutWindowItems extends WrappedPacket implements Sendab
     private int stateID;
     private List<ItemStack> slotData;
     private ItemStack heldItem;
+    private LazyItemStackList slotView;
 
     public WrappedPacketOutWindowItems(NMSPacket packet) {
         super(packet);
@@ -112,41 +115,82 @@ public class WrappedPacketOutWindowItems extends WrappedPacket implements Sendab
         }
     }
 
+    /**
+     * Slots of the window.
+     * If this wrapper wraps a packet, every slot is converted and the list is a copy.
+     * The item stacks in it are the cached ones of {@link #getSlotsView()}, treat them as read-only.
+     *
+     * @return Slots
+     * @see #getSlotsView()
+     */
     public List<ItemStack> getSlots() {
         if (packet != null) {
-            List<ItemStack> slots = new ArrayList<>();
+            return new ArrayList<>(getSlotView());
+        } else {
+            return slotData;
+        }
+    }
+
+    /**
+     * Slots of the window, without copying them.
+     * If this wrapper wraps a packet, the list is a fixed-size view that converts a slot once it is accessed
+     * and writes {@link List#set(int, Object)} straight into the packet.
+     *
+     * @return Slots
+     * @see LazyItemStackList
+     */
+    public List<ItemStack> getSlotsView() {
+        if (packet != null) {
+            return getSlotView();
+        } else {
+            return slotData;
+        }
+    }
+
+    /**
+     * NMS item stack of a slot, without converting it to a Bukkit item stack.
+     *
+     * @param slot Slot
+     * @return NMS item stack
+     */
+    public Object getRawSlot(int slot) {
+        if (packet != null) {
+            return getSlotView().getRawItem(slot);
+        } else {
+            return NMSUtils.toNMSItemStack(slotData.get(slot));
+        }
+    }
+
+    private LazyItemStackList getSlotView() {
+        if (slotView == null) {
             if (version.isNewerThan(ServerVersion.v_1_10_2)) {
-                List<Object> nmsItemStacks = readList(0);
-                for (Object nmsItemStack : nmsItemStacks) {
-                    slots.add(NMSUtils.toBukkitItemStack(nmsItemStack));
-                }
+                slotView = new LazyItemStackList(readList(0));
             } else {
-                Object[] nmsItemStacks = (Object[]) readAnyObject(1);
-                for (Object nmsItemStack : nmsItemStacks) {
-                    slots.add(NMSUtils.toBukkitItemStack(nmsItemStack));
-                }
+                slotView = new LazyItemStackList((Object[]) readAnyObject(1));
             }
-            return slots;
-        } else {
-            return slotData;
         }
+        return slotView;
     }
 
     public void setSlots(List<ItemStack> slots) {
         if (packet != null) {
-            if (version.isNewerThan(ServerVersion.v_1_10_2)) {
-                List<Object> nmsItemStacks = new ArrayList<>();
+            List<Object> nmsItemStacks;
+            if (slots instanceof LazyItemStackList) {
+                //Already NMS item stacks, no need to convert them.
+                nmsItemStacks = ((LazyItemStackList) slots).getRawItems();
+            } else {
+                nmsItemStacks = new ArrayList<>(slots.size());
                 for (ItemStack itemStack : slots) {
                     nmsItemStacks.add(NMSUtils.toNMSItemStack(itemStack));
                 }
+            }
+            if (version.isNewerThan(ServerVersion.v_1_10_2)) {
                 writeList(0, nmsItemStacks);
             } else {
-                Object[] nmsItemStacks = new Object[slots.size()];
-                for (int i = 0; i < slots.size(); i++) {
-                    nmsItemStacks[i] = NMSUtils.toNMSItemStack(slots.get(i));
-                }
-                writeAnyObject(1, nmsItemStacks);
+                Object[] nmsItemStackArray = (Object[]) Array.newInstance(NMSUtils.nmsItemStackClass, nmsItemStacks.size());
+                writeAnyObject(1, nmsItemStacks.toArray(nmsItemStackArray));
             }
+            slotView = null;
         } else {
             this.slotData = slots;
         }
@@ -185,16 +229,16 @@ public class WrappedPacketOutWindowItems extends WrappedPacket implements Sendab
         if (v_1_17_1) {
             packetInstance = packetConstructor.newInstance(getWindowId(), stateID, nonNullListInstance, getNMSItemHeld());
             WrappedPacketOutWindowItems wrappedPacketOutWindowItems = new WrappedPacketOutWindowItems(new NMSPacket(packetInstance));
-            wrappedPacketOutWindowItems.setSlots(getSlots());
+            wrappedPacketOutWindowItems.setSlots(getSlotsView());
         } else if (v_1_17) {
             packetInstance = packetConstructor.newInstance(getWindowId(), nonNullListInstance);
             WrappedPacketOutWindowItems wrappedPacketOutWindowItems = new WrappedPacketOutWindowItems(new NMSPacket(packetInstance));
-            wrappedPacketOutWindowItems.setSlots(getSlots());
+            wrappedPacketOutWindowItems.setSlots(getSlotsView());
         } else {
             packetInstance = packetConstructor.newInstance();
             WrappedPacketOutWindowItems wrappedPacketOutWindowItems = new WrappedPacketOutWindowItems(new NMSPacket(packetInstance));
             wrappedPacketOutWindowItems.setWindowId(getWindowId());
-            wrappedPacketOutWindowItems.setSlots(getSlots());
+            wrappedPacketOutWindowItems.setSlots(getSlotsView());
         }
 
         return packetInstance;
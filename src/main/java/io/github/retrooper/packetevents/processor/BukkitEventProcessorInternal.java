@@ -57,6 +57,7 @@ public class BukkitEventProcessorInternal implements Listener {
         if (shouldInject) {
             PacketEvents.get().getInjector().injectPlayer(player);
         }
+        PacketEvents.get().getPacketCapture().onJoin(player);
 
         boolean dependencyAvailable = VersionLookupUtils.isDependencyAvailable();
         PacketEvents.get().getPlayerUtils().loginTime.put(player.getUniqueId(), System.currentTimeMillis());
@@ -93,6 +94,14 @@ public class BukkitEventProcessorInternal implements Listener {
         PacketEvents.get().getPlayerUtils().tempClientVersionMap.remove(address);
         PacketEvents.get().getPlayerUtils().keepAliveMap.remove(uuid);
         PacketEvents.get().getPlayerUtils().channels.remove(player.getName());
+        PacketEvents.get().getPlayerUtils().movementHistoryMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().entityTrackerMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().latencyTrackerMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().tablistMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().effectBudgetMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().entityDestroyMap.remove(uuid);
+        PacketEvents.get().getPlayerUtils().entityVisibilityMap.remove(uuid);
+        PacketEvents.get().getPacketCapture().stopCapturing(player);
         PacketEvents.get().getServerUtils().entityCache.remove(e.getPlayer().getEntityId());
     }
 
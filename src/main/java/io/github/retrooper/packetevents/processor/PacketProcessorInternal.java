@@ -20,13 +20,31 @@ package io.github.retrooper.packetevents.processor;
 
 import io.github.retrooper.packetevents.PacketEvents;
 import io.github.retrooper.packetevents.event.impl.*;
+import io.github.retrooper.packetevents.event.manager.ScopedListeners;
 import io.github.retrooper.packetevents.packettype.PacketState;
 import io.github.retrooper.packetevents.packettype.PacketType;
 import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
 import io.github.retrooper.packetevents.packetwrappers.handshaking.setprotocol.WrappedPacketHandshakingInSetProtocol;
 import io.github.retrooper.packetevents.packetwrappers.login.out.success.WrappedPacketLoginOutSuccess;
+import io.github.retrooper.packetevents.packetwrappers.play.in.flying.WrappedPacketInFlying;
+import io.github.retrooper.packetevents.packetwrappers.play.in.pong.WrappedPacketInPong;
+import io.github.retrooper.packetevents.packetwrappers.play.in.transaction.WrappedPacketInTransaction;
+import io.github.retrooper.packetevents.packetwrappers.play.out.entitydestroy.WrappedPacketOutEntityDestroy;
+import io.github.retrooper.packetevents.packetwrappers.play.out.namedentityspawn.WrappedPacketOutNamedEntitySpawn;
+import io.github.retrooper.packetevents.packetwrappers.play.out.ping.WrappedPacketOutPing;
+import io.github.retrooper.packetevents.packetwrappers.play.out.spawnentity.WrappedPacketOutSpawnEntity;
+import io.github.retrooper.packetevents.packetwrappers.play.out.spawnentityliving.WrappedPacketOutSpawnEntityLiving;
+import io.github.retrooper.packetevents.packetwrappers.play.out.transaction.WrappedPacketOutTransaction;
+import io.github.retrooper.packetevents.utils.effect.EffectPolicy;
+import io.github.retrooper.packetevents.utils.entitytracker.EntityPacketReader;
+import io.github.retrooper.packetevents.utils.entitytracker.EntityPositionTracker;
+import io.github.retrooper.packetevents.utils.latency.LatencyTracker;
 import io.github.retrooper.packetevents.utils.player.ClientVersion;
+import io.github.retrooper.packetevents.utils.player.MovementHistory;
 import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
+import io.github.retrooper.packetevents.utils.server.StatusResponseCache;
+import io.github.retrooper.packetevents.utils.traffic.TrafficStatistics;
+import io.github.retrooper.packetevents.utils.vector.Vector3d;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,6 +63,10 @@ public class PacketProcessorInternal {
     public class PacketData {
         public Object packet;
         public Runnable postAction;
+        /**
+         * Packet type ID of the processed packet, so the channel handler doesn't have to look it up again.
+         */
+        public byte packetID = PacketType.INVALID;
     }
 
     /**
@@ -57,6 +79,20 @@ public class PacketProcessorInternal {
      * @return NMS Packet, null if the event was cancelled.
      */
     public PacketData read(Player player, Object channel, Object packet) {
+        return read(player, channel, packet, null);
+    }
+
+    /**
+     * Force PacketEvents to process an incoming packet.
+     * This method could be used to spoof an incoming packet to the PacketEvents API.
+     *
+     * @param player          Packet sender.
+     * @param channel         Packet sender's netty channel.
+     * @param packet          NMS Packet.
+     * @param scopedListeners Listeners registered for the connection, may be null.
+     * @return NMS Packet, null if the event was cancelled.
+     */
+    public PacketData read(Player player, Object channel, Object packet, @Nullable ScopedListeners scopedListeners) {
         PacketData data = new PacketData();
         data.packet = packet;
         PacketState state = getPacketState(player, packet);
@@ -65,8 +101,18 @@ public class PacketProcessorInternal {
         }
         switch (state) {
             case STATUS:
+                StatusResponseCache statusResponseCache = PacketEvents.get().getStatusResponseCache();
+                if (statusResponseCache.isEnabled()
+                        && PacketType.packetIDMap.getOrDefault(packet.getClass(), PacketType.INVALID) == PacketType.Status.Client.START
+                        && statusResponseCache.answer(channel)) {
+                    //Answered from the cache, the server doesn't have to build the response
+                    data.packetID = PacketType.Status.Client.START;
+                    packet = null;
+                    break;
+                }
                 PacketStatusReceiveEvent statusEvent = new PacketStatusReceiveEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(statusEvent);
+                data.packetID = statusEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(statusEvent, scopedListeners);
                 //Apply modifications to the packet
                 packet = statusEvent.getNMSPacket().getRawNMSPacket();
                 //Process internally
@@ -78,7 +124,8 @@ public class PacketProcessorInternal {
                 break;
             case HANDSHAKING:
                 PacketHandshakeReceiveEvent handshakeEvent = new PacketHandshakeReceiveEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(handshakeEvent);
+                data.packetID = handshakeEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(handshakeEvent, scopedListeners);
                 //Apply modifications to the packet
                 packet = handshakeEvent.getNMSPacket().getRawNMSPacket();
                 //Process internally
@@ -90,7 +137,8 @@ public class PacketProcessorInternal {
                 break;
             case LOGIN:
                 PacketLoginReceiveEvent loginEvent = new PacketLoginReceiveEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(loginEvent);
+                data.packetID = loginEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(loginEvent, scopedListeners);
                 packet = loginEvent.getNMSPacket().getRawNMSPacket();
                 interceptLoginReceive(loginEvent);
                 if (loginEvent.isCancelled()) {
@@ -99,7 +147,8 @@ public class PacketProcessorInternal {
                 break;
             case CONFIG:
                 PacketConfigReceiveEvent configEvent = new PacketConfigReceiveEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(configEvent);
+                data.packetID = configEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(configEvent, scopedListeners);
                 packet = configEvent.getNMSPacket().getRawNMSPacket();
                 if (configEvent.isCancelled()) {
                     packet = null;
@@ -107,7 +156,8 @@ public class PacketProcessorInternal {
                 break;
             case PLAY:
                 PacketPlayReceiveEvent event = new PacketPlayReceiveEvent(player, channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(event);
+                data.packetID = event.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(event, scopedListeners);
                 packet = event.getNMSPacket().getRawNMSPacket();
                 interceptPlayReceive(event);
                 if (event.isCancelled()) {
@@ -115,6 +165,10 @@ public class PacketProcessorInternal {
                 }
                 break;
         }
+        TrafficStatistics trafficStatistics = PacketEvents.get().getTrafficStatistics();
+        if (trafficStatistics.isEnabled()) {
+            trafficStatistics.onReceive(data.packetID, packet == null);
+        }
         data.packet = packet;
         return data;
     }
@@ -129,6 +183,20 @@ public class PacketProcessorInternal {
      * @return NMS Packet, null if the event was cancelled.
      */
     public PacketData write(Player player, Object channel, Object packet) {
+        return write(player, channel, packet, null);
+    }
+
+    /**
+     * Force PacketEvents to process an outgoing packet.
+     * This method could be used to spoof an outgoing packet to the PacketEvents API.
+     *
+     * @param player          Packet receiver.
+     * @param channel         Packet receiver's netty channel.
+     * @param packet          NMS Packet.
+     * @param scopedListeners Listeners registered for the connection, may be null.
+     * @return NMS Packet, null if the event was cancelled.
+     */
+    public PacketData write(Player player, Object channel, Object packet, @Nullable ScopedListeners scopedListeners) {
         PacketData data = new PacketData();
         data.packet = packet;
         PacketState state = getPacketState(player, packet);
@@ -138,7 +206,8 @@ public class PacketProcessorInternal {
         switch (state) {
             case STATUS:
                 PacketStatusSendEvent statusEvent = new PacketStatusSendEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(statusEvent);
+                data.packetID = statusEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(statusEvent, scopedListeners);
                 if (statusEvent.isPostTaskAvailable()) {
                     data.postAction = statusEvent.getPostTask();
                 }
@@ -146,16 +215,22 @@ public class PacketProcessorInternal {
                 interceptStatusSend(statusEvent);
                 if (statusEvent.isCancelled()) {
                     packet = null;
+                } else if (statusEvent.getPacketId() == PacketType.Status.Server.SERVER_INFO) {
+                    StatusResponseCache statusResponseCache = PacketEvents.get().getStatusResponseCache();
+                    if (statusResponseCache.isEnabled()) {
+                        statusResponseCache.record(channel);
+                    }
                 }
                 break;
             case LOGIN:
                 PacketLoginSendEvent loginEvent = new PacketLoginSendEvent(channel, new NMSPacket(packet));
+                data.packetID = loginEvent.getPacketId();
                 if (loginEvent.getPacketId() == PacketType.Login.Server.SUCCESS) {
                     WrappedPacketLoginOutSuccess success = new WrappedPacketLoginOutSuccess(loginEvent.getNMSPacket());
                     String username = success.getGameProfile().getName();
                     PacketEvents.get().getPlayerUtils().channels.put(username, channel); //Cache channel
                 }
-                PacketEvents.get().getEventManager().callEvent(loginEvent);
+                PacketEvents.get().getEventManager().callEvent(loginEvent, scopedListeners);
                 if (loginEvent.isPostTaskAvailable()) {
                     data.postAction = loginEvent.getPostTask();
                 }
@@ -167,7 +242,8 @@ public class PacketProcessorInternal {
                 break;
             case CONFIG:
                 PacketConfigSendEvent configEvent = new PacketConfigSendEvent(channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(configEvent);
+                data.packetID = configEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(configEvent, scopedListeners);
                 if (configEvent.isPostTaskAvailable()) {
                     data.postAction = configEvent.getPostTask();
                 }
@@ -178,7 +254,8 @@ public class PacketProcessorInternal {
                 break;
             case PLAY:
                 PacketPlaySendEvent playEvent = new PacketPlaySendEvent(player, channel, new NMSPacket(packet));
-                PacketEvents.get().getEventManager().callEvent(playEvent);
+                data.packetID = playEvent.getPacketId();
+                PacketEvents.get().getEventManager().callEvent(playEvent, scopedListeners);
                 if (playEvent.isPostTaskAvailable()) {
                     data.postAction = playEvent.getPostTask();
                 }
@@ -189,6 +266,10 @@ public class PacketProcessorInternal {
                 }
                 break;
         }
+        TrafficStatistics trafficStatistics = PacketEvents.get().getTrafficStatistics();
+        if (trafficStatistics.isEnabled()) {
+            trafficStatistics.onSend(data.packetID, packet == null);
+        }
         data.packet = packet;
         return data;
     }
@@ -202,9 +283,22 @@ public class PacketProcessorInternal {
      * @param packet  NMS Packet.
      */
     public void postRead(Player player, Object channel, Object packet) {
+        postRead(player, channel, packet, null);
+    }
+
+    /**
+     * Make PacketEvents process an incoming PLAY packet after minecraft has processed it.
+     * As minecraft has already processed the packet, we cannot cancel the action, nor the event.
+     *
+     * @param player          Packet sender.
+     * @param channel         Netty channel of the packet sender.
+     * @param packet          NMS Packet.
+     * @param scopedListeners Listeners registered for the connection, may be null.
+     */
+    public void postRead(Player player, Object channel, Object packet, @Nullable ScopedListeners scopedListeners) {
         if (getPacketState(player, packet) == PacketState.PLAY) {
             PostPacketPlayReceiveEvent event = new PostPacketPlayReceiveEvent(player, channel, new NMSPacket(packet));
-            PacketEvents.get().getEventManager().callEvent(event);
+            PacketEvents.get().getEventManager().callEvent(event, scopedListeners);
             interceptPostPlayReceive(event);
         }
     }
@@ -220,9 +314,24 @@ public class PacketProcessorInternal {
      * @param packet  NMS Packet.
      */
     public void postWrite(Player player, Object channel, Object packet) {
+        postWrite(player, channel, packet, null);
+    }
+
+    /**
+     * Make PacketEvents process an outgoing PLAY packet after minecraft has already sent the packet.
+     * This doesn't necessarily mean the client already received the packet,
+     * but the server has sent it for sure by this time.
+     * As minecraft has already processed the packet, we cannot cancel the action, nor the event.
+     *
+     * @param player          Packet receiver.
+     * @param channel         Netty channel of the packet receiver.
+     * @param packet          NMS Packet.
+     * @param scopedListeners Listeners registered for the connection, may be null.
+     */
+    public void postWrite(Player player, Object channel, Object packet, @Nullable ScopedListeners scopedListeners) {
         if (getPacketState(player, packet) == PacketState.PLAY) {
             PostPacketPlaySendEvent event = new PostPacketPlaySendEvent(player, channel, new NMSPacket(packet));
-            PacketEvents.get().getEventManager().callEvent(event);
+            PacketEvents.get().getEventManager().callEvent(event, scopedListeners);
             interceptPostPlaySend(event);
         }
     }
@@ -241,16 +350,90 @@ public class PacketProcessorInternal {
             long smoothedPing = (PacketEvents.get().getPlayerUtils().getSmoothedPing(event.getPlayer().getUniqueId()) * 3L + ping) / 4;
             PacketEvents.get().getPlayerUtils().playerPingMap.put(uuid, (int) ping);
             PacketEvents.get().getPlayerUtils().playerSmoothedPingMap.put(uuid, (int) smoothedPing);
+        } else if (PacketType.Play.Client.Util.isInstanceOfFlying(event.getPacketId())) {
+            boolean trackMovement = PacketEvents.get().getSettings().shouldTrackMovementHistory();
+            boolean cullEffects = (event.getPacketId() == PacketType.Play.Client.POSITION || event.getPacketId() == PacketType.Play.Client.POSITION_LOOK)
+                    && PacketEvents.get().getEffectPolicy().isDistanceCullingEnabled();
+            if (trackMovement || cullEffects) {
+                //Both share one wrapper, so the packet is wrapped at most once.
+                WrappedPacketInFlying flying = new WrappedPacketInFlying(event.getNMSPacket());
+                if (trackMovement) {
+                    recordMovement(event, flying);
+                }
+                if (cullEffects) {
+                    PacketEvents.get().getEffectPolicy().onPosition(event.getPlayer(), flying.getX(), flying.getY(), flying.getZ());
+                }
+            }
+        }
+
+        if (event.getPacketId() == PacketType.Play.Client.TRANSACTION || event.getPacketId() == PacketType.Play.Client.PONG) {
+            LatencyTracker latencyTracker = PacketEvents.get().getPlayerUtils().latencyTrackerMap.get(event.getPlayer().getUniqueId());
+            if (latencyTracker != null) {
+                int id = event.getPacketId() == PacketType.Play.Client.PONG
+                        ? new WrappedPacketInPong(event.getNMSPacket()).getId()
+                        : new WrappedPacketInTransaction(event.getNMSPacket()).getActionNumber();
+                if (LatencyTracker.isProbeID(id)) {
+                    latencyTracker.onProbeReceived((short) id, System.nanoTime());
+                }
+            }
+        }
+
+        if ((event.getPacketId() == PacketType.Play.Client.KEEP_ALIVE || event.getPacketId() == PacketType.Play.Client.PONG)
+                && PacketEvents.get().getSettings().shouldTrackEntityPositions()) {
+            EntityPositionTracker tracker = PacketEvents.get().getPlayerUtils().entityTrackerMap.get(event.getPlayer().getUniqueId());
+            if (tracker != null) {
+                tracker.onAcknowledgementReceived();
+            }
         }
     }
 
+    /**
+     * Store the flying packet in the player's movement history.
+     *
+     * @param event  PLAY server-bound flying packet event.
+     * @param flying Wrapper of the event's packet.
+     */
+    private void recordMovement(PacketPlayReceiveEvent event, WrappedPacketInFlying flying) {
+        byte packetID = event.getPacketId();
+        boolean position = packetID == PacketType.Play.Client.POSITION || packetID == PacketType.Play.Client.POSITION_LOOK;
+        boolean rotation = packetID == PacketType.Play.Client.LOOK || packetID == PacketType.Play.Client.POSITION_LOOK;
+        byte flags = flying.isOnGround() ? MovementHistory.FLAG_ON_GROUND : 0;
+        double x = 0, y = 0, z = 0;
+        float yaw = 0, pitch = 0;
+        if (position) {
+            flags |= MovementHistory.FLAG_POSITION;
+            Vector3d pos = flying.getPosition();
+            x = pos.x;
+            y = pos.y;
+            z = pos.z;
+        }
+        if (rotation) {
+            flags |= MovementHistory.FLAG_ROTATION;
+            yaw = flying.getYaw();
+            pitch = flying.getPitch();
+        }
+        MovementHistory history = PacketEvents.get().getPlayerUtils().movementHistoryMap
+                .computeIfAbsent(event.getPlayer().getUniqueId(),
+                        uuid -> new MovementHistory(PacketEvents.get().getSettings().getMovementHistorySize()));
+        history.record(x, y, z, yaw, pitch, flags, System.nanoTime());
+    }
+
     /**
      * Internal processing of an outgoing PLAY packet.
      *
      * @param event PLAY client-bound packet event.
      */
     private void interceptPlaySend(PacketPlaySendEvent event) {
-
+        EffectPolicy effectPolicy = PacketEvents.get().getEffectPolicy();
+        if (!effectPolicy.isEnabled()) {
+            return;
+        }
+        if (event.getPacketId() == PacketType.Play.Server.RESPAWN) {
+            effectPolicy.forgetPosition(event.getPlayer());
+        } else if (!event.isCancelled()
+                && !effectPolicy.allow(event.getPlayer(), event.getPacketId(), event.getNMSPacket().getRawNMSPacket())) {
+            event.setCancelled(true);
+        }
     }
 
     /**
@@ -282,6 +465,10 @@ public class PacketProcessorInternal {
             int protocolVersion = handshake.getProtocolVersion();
             ClientVersion version = ClientVersion.getClientVersion(protocolVersion);
             PacketEvents.get().getPlayerUtils().tempClientVersionMap.put(event.getSocketAddress(), version);
+            StatusResponseCache statusResponseCache = PacketEvents.get().getStatusResponseCache();
+            if (statusResponseCache.isEnabled()) {
+                statusResponseCache.onHandshake(event.getChannel(), protocolVersion);
+            }
         }
     }
 
@@ -325,6 +512,96 @@ public class PacketProcessorInternal {
                 PacketEvents.get().getPlayerUtils().keepAliveMap.put(event.getPlayer().getUniqueId(), event.getTimestamp());
             }
         }
+        if (event.getPacketId() == PacketType.Play.Server.TRANSACTION || event.getPacketId() == PacketType.Play.Server.PING) {
+            if (event.getPlayer() != null) {
+                LatencyTracker latencyTracker = PacketEvents.get().getPlayerUtils().latencyTrackerMap.get(event.getPlayer().getUniqueId());
+                if (latencyTracker != null) {
+                    int id = event.getPacketId() == PacketType.Play.Server.PING
+                            ? new WrappedPacketOutPing(event.getNMSPacket()).getId()
+                            : new WrappedPacketOutTransaction(event.getNMSPacket()).getActionNumber();
+                    if (LatencyTracker.isProbeID(id)) {
+                        latencyTracker.onProbeSent((short) id, System.nanoTime());
+                    }
+                }
+            }
+        }
+        if (PacketEvents.get().getSettings().shouldTrackEntityPositions() && event.getPlayer() != null) {
+            trackEntityPosition(event);
+        }
+    }
+
+    /**
+     * Update the entity positions we know the player has been sent.
+     *
+     * @param event post client-bound play packet event.
+     */
+    private void trackEntityPosition(PostPacketPlaySendEvent event) {
+        byte packetID = event.getPacketId();
+        EntityPositionTracker tracker;
+        switch (packetID) {
+            case PacketType.Play.Server.REL_ENTITY_MOVE:
+            case PacketType.Play.Server.REL_ENTITY_MOVE_LOOK: {
+                tracker = PacketEvents.get().getPlayerUtils().entityTrackerMap.get(event.getPlayer().getUniqueId());
+                if (tracker != null) {
+                    Object move = event.getNMSPacket().getRawNMSPacket();
+                    tracker.onRelativeMove(PacketType.entityIdOf(move), EntityPacketReader.readDelta(move, 0),
+                            EntityPacketReader.readDelta(move, 1), EntityPacketReader.readDelta(move, 2), System.nanoTime());
+                }
+                break;
+            }
+            case PacketType.Play.Server.ENTITY_TELEPORT: {
+                tracker = PacketEvents.get().getPlayerUtils().entityTrackerMap.get(event.getPlayer().getUniqueId());
+                if (tracker != null) {
+                    Object teleport = event.getNMSPacket().getRawNMSPacket();
+                    tracker.onTeleport(PacketType.entityIdOf(teleport), EntityPacketReader.readTeleportPosition(teleport, 0),
+                            EntityPacketReader.readTeleportPosition(teleport, 1), EntityPacketReader.readTeleportPosition(teleport, 2), System.nanoTime());
+                }
+                break;
+            }
+            case PacketType.Play.Server.SPAWN_ENTITY_LIVING: {
+                WrappedPacketOutSpawnEntityLiving spawn = new WrappedPacketOutSpawnEntityLiving(event.getNMSPacket());
+                Vector3d position = spawn.getPosition();
+                getEntityTracker(event.getPlayer()).onSpawn(spawn.getEntityId(), position.x, position.y, position.z, System.nanoTime());
+                break;
+            }
+            case PacketType.Play.Server.NAMED_ENTITY_SPAWN: {
+                WrappedPacketOutNamedEntitySpawn spawn = new WrappedPacketOutNamedEntitySpawn(event.getNMSPacket());
+                Vector3d position = spawn.getPosition();
+                getEntityTracker(event.getPlayer()).onSpawn(spawn.getEntityId(), position.x, position.y, position.z, System.nanoTime());
+                break;
+            }
+            case PacketType.Play.Server.SPAWN_ENTITY: {
+                WrappedPacketOutSpawnEntity spawn = new WrappedPacketOutSpawnEntity(event.getNMSPacket());
+                Vector3d position = spawn.getPosition();
+                getEntityTracker(event.getPlayer()).onSpawn(spawn.getEntityId(), position.x, position.y, position.z, System.nanoTime());
+                break;
+            }
+            case PacketType.Play.Server.ENTITY_DESTROY: {
+                tracker = PacketEvents.get().getPlayerUtils().entityTrackerMap.get(event.getPlayer().getUniqueId());
+                if (tracker != null) {
+                    tracker.onDestroy(new WrappedPacketOutEntityDestroy(event.getNMSPacket()).getEntityIds());
+                }
+                break;
+            }
+            case PacketType.Play.Server.RESPAWN:
+            case PacketType.Play.Server.LOGIN: {
+                tracker = PacketEvents.get().getPlayerUtils().entityTrackerMap.get(event.getPlayer().getUniqueId());
+                if (tracker != null) {
+                    tracker.clear();
+                }
+                break;
+            }
+            case PacketType.Play.Server.KEEP_ALIVE:
+            case PacketType.Play.Server.PING: {
+                getEntityTracker(event.getPlayer()).onAcknowledgementSent();
+                break;
+            }
+        }
+    }
+
+    private EntityPositionTracker getEntityTracker(Player player) {
+        return PacketEvents.get().getPlayerUtils().entityTrackerMap
+                .computeIfAbsent(player.getUniqueId(), uuid -> new EntityPositionTracker());
     }
 
     @Nullable
@@ -48,6 +48,84 @@ public class PacketEventsSettings {
      */
     private boolean bStatsEnabled = true;
 
+    /**
+     * How many flying packets PacketEvents should remember per player.
+     * Movement history tracking is disabled if this is zero.
+     */
+    private int movementHistorySize = 0;
+
+    /**
+     * This boolean stores if PacketEvents should track the entity positions sent to each player.
+     */
+    private boolean trackEntityPositions = false;
+
+    /**
+     * This int stores how many ticks PacketEvents should wait between two round trip time probes.
+     * Round trip time measurement is disabled if this is zero.
+     */
+    private int latencyProbeInterval = 0;
+
+    /**
+     * This int stores how many worker threads run the asynchronous packet transformers.
+     */
+    private int asyncTransformerThreads = 2;
+
+    /**
+     * This boolean stores if PacketEvents should merge the entity movement packets it sends to a player within a tick.
+     */
+    private boolean coalesceEntityMovement = false;
+
+    /**
+     * This int stores how many entries the NMS conversion cache holds per conversion type.
+     * The cache is disabled if this is zero.
+     */
+    private int conversionCacheSize = 0;
+
+    /**
+     * This double stores how far away from a player particles and sounds may be before we stop sending them.
+     * Distance culling is disabled if this is zero.
+     */
+    private double effectCullingDistance = 0;
+
+    /**
+     * This int stores how many particles and sounds a player may receive per tick.
+     * The budget is disabled if this is zero.
+     */
+    private int effectBudgetPerTick = 0;
+
+    /**
+     * This boolean stores if we count the packets and bytes of every packet type.
+     */
+    private boolean trafficStatistics = false;
+
+    /**
+     * This int stores the local port of the traffic metrics endpoint.
+     * The endpoint is disabled if this is zero.
+     */
+    private int trafficMetricsPort = 0;
+
+    /**
+     * This int stores how many exceptions a packet listener may throw within the window before we bypass it.
+     * The circuit breaker is disabled if this is zero.
+     */
+    private int listenerBreakerThreshold = 0;
+
+    /**
+     * This int stores the length of the listener failure window in seconds.
+     */
+    private int listenerBreakerWindow = 10;
+
+    /**
+     * This int stores for how many seconds we bypass a failing packet listener.
+     */
+    private int listenerBreakerCooldown = 60;
+
+    /**
+     * This int stores for how many milliseconds we reuse the server list status response.
+     * The cache is disabled if this is zero.
+     */
+    private int statusResponseCacheTime = 0;
+
     /**
      * This method locks the settings.
      * If the settings are locked, you won't be able to modify any settings using the setters.
@@ -116,6 +194,214 @@ public class PacketEventsSettings {
         return this;
     }
 
+    /**
+     * This decides how many flying packets PacketEvents should remember per player.
+     * Every flying packet is decoded once and stored in the player's {@code MovementHistory}.
+     * Setting this to zero disables movement history tracking.
+     *
+     * @param movementHistorySize Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings movementHistorySize(int movementHistorySize) {
+        if (!locked) {
+            this.movementHistorySize = Math.max(0, movementHistorySize);
+        }
+        return this;
+    }
+
+    /**
+     * This decides if PacketEvents should track the entity positions sent to each player.
+     * Spawn, movement, teleport and destroy packets will be decoded once we have sent them.
+     *
+     * @param trackEntityPositions Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings trackEntityPositions(boolean trackEntityPositions) {
+        if (!locked) {
+            this.trackEntityPositions = trackEntityPositions;
+        }
+        return this;
+    }
+
+    /**
+     * This decides how many ticks PacketEvents should wait between two round trip time probes.
+     * A probe is a transaction packet (1.7.10 - 1.16.5) or a ping packet (1.17+) the client answers.
+     * Setting this to zero disables round trip time measurement.
+     *
+     * @param latencyProbeInterval Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings latencyProbeInterval(int latencyProbeInterval) {
+        if (!locked) {
+            this.latencyProbeInterval = Math.max(0, latencyProbeInterval);
+        }
+        return this;
+    }
+
+    /**
+     * This decides how many worker threads run the asynchronous packet transformers.
+     * The threads are only created once the first transformer has been registered.
+     *
+     * @param asyncTransformerThreads Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings asyncTransformerThreads(int asyncTransformerThreads) {
+        if (!locked) {
+            this.asyncTransformerThreads = Math.max(1, asyncTransformerThreads);
+        }
+        return this;
+    }
+
+    /**
+     * This decides if PacketEvents should merge the entity movement packets it sends to a player within a tick.
+     * Relative moves of the same entity are summed up, only the latest head rotation and velocity are sent.
+     *
+     * @param coalesceEntityMovement Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings coalesceEntityMovement(boolean coalesceEntityMovement) {
+        if (!locked) {
+            this.coalesceEntityMovement = coalesceEntityMovement;
+        }
+        return this;
+    }
+
+    /**
+     * This decides how many entries the NMS conversion cache holds per conversion type.
+     * Chat components are cached by their JSON text, item stacks only once they have been frozen with
+     * {@link io.github.retrooper.packetevents.utils.nms.ConversionCache#freeze(org.bukkit.inventory.ItemStack)},
+     * setting this to zero disables the cache.
+     *
+     * @param conversionCacheSize Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings conversionCacheSize(int conversionCacheSize) {
+        if (!locked) {
+            this.conversionCacheSize = Math.max(0, conversionCacheSize);
+        }
+        return this;
+    }
+
+    /**
+     * This decides how far away from a player particles and sounds may be before we stop sending them to the player.
+     * The distance is measured from the last position the client sent us, setting this to zero disables distance culling.
+     *
+     * @param effectCullingDistance Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings effectCullingDistance(double effectCullingDistance) {
+        if (!locked) {
+            this.effectCullingDistance = Math.max(0, effectCullingDistance);
+        }
+        return this;
+    }
+
+    /**
+     * This decides how many particles and sounds a player may receive per tick.
+     * Particles are dropped first, setting this to zero disables the budget.
+     *
+     * @param effectBudgetPerTick Value
+     * @return Settings instance.
+     * @see io.github.retrooper.packetevents.utils.effect.EffectPolicy#setPriority(byte, io.github.retrooper.packetevents.utils.effect.EffectPriority)
+     */
+    public PacketEventsSettings effectBudgetPerTick(int effectBudgetPerTick) {
+        if (!locked) {
+            this.effectBudgetPerTick = Math.max(0, effectBudgetPerTick);
+        }
+        return this;
+    }
+
+    /**
+     * This decides if we count the received, sent and cancelled packets and their bytes per packet type.
+     * The byte counts are the frame sizes on the wire, after compression and without the length prefix.
+     * This adds two handlers to every pipeline, so it is disabled by default.
+     *
+     * @param trafficStatistics Value
+     * @return Settings instance.
+     * @see io.github.retrooper.packetevents.utils.traffic.TrafficStatistics
+     */
+    public PacketEventsSettings trafficStatistics(boolean trafficStatistics) {
+        if (!locked) {
+            this.trafficStatistics = trafficStatistics;
+        }
+        return this;
+    }
+
+    /**
+     * This decides on which local port we serve the traffic statistics in the Prometheus text format.
+     * The endpoint only listens on the loopback address, setting this to zero disables it.
+     *
+     * @param trafficMetricsPort Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings trafficMetricsPort(int trafficMetricsPort) {
+        if (!locked) {
+            this.trafficMetricsPort = Math.max(0, trafficMetricsPort);
+        }
+        return this;
+    }
+
+    /**
+     * This decides after how many exceptions within {@link #listenerBreakerWindow(int)} a packet listener is bypassed.
+     * After the cooldown the listener gets another try, setting this to zero disables the circuit breaker.
+     *
+     * @param listenerBreakerThreshold Value
+     * @return Settings instance.
+     * @see io.github.retrooper.packetevents.event.manager.ListenerHealth
+     */
+    public PacketEventsSettings listenerBreakerThreshold(int listenerBreakerThreshold) {
+        if (!locked) {
+            this.listenerBreakerThreshold = Math.max(0, listenerBreakerThreshold);
+        }
+        return this;
+    }
+
+    /**
+     * This decides how many seconds the failures of a packet listener are counted together.
+     *
+     * @param listenerBreakerWindow Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings listenerBreakerWindow(int listenerBreakerWindow) {
+        if (!locked) {
+            this.listenerBreakerWindow = Math.max(1, listenerBreakerWindow);
+        }
+        return this;
+    }
+
+    /**
+     * This decides for how many seconds a failing packet listener is bypassed.
+     *
+     * @param listenerBreakerCooldown Value
+     * @return Settings instance.
+     */
+    public PacketEventsSettings listenerBreakerCooldown(int listenerBreakerCooldown) {
+        if (!locked) {
+            this.listenerBreakerCooldown = Math.max(1, listenerBreakerCooldown);
+        }
+        return this;
+    }
+
+    /**
+     * This decides for how many milliseconds we answer server list pings with the last status response,
+     * instead of letting the server build a new one every time. Setting this to zero disables the cache.
+     * Responses are cached per protocol number of the client.
+     * <p>
+     * Warning: cached answers skip the server entirely, so neither Bukkit's ServerListPingEvent
+     * nor any status listeners are called for them.
+     * Plugins that change the response per ping, for example to show the player count, only take effect once the response expired.
+     *
+     * @param statusResponseCacheTime Value
+     * @return Settings instance.
+     * @see io.github.retrooper.packetevents.utils.server.StatusResponseCache
+     */
+    public PacketEventsSettings statusResponseCacheTime(int statusResponseCacheTime) {
+        if (!locked) {
+            this.statusResponseCacheTime = Math.max(0, statusResponseCacheTime);
+        }
+        return this;
+    }
+
     /**
      * This decides if PacketEvents should inject users earlier than usual,
      * resulting in us being able to resolve client versions without the need of any dependencies.
@@ -189,4 +475,139 @@ public class PacketEventsSettings {
     public boolean isbStatsEnabled() {
         return bStatsEnabled;
     }
+
+    /**
+     * How many flying packets should we remember per player?
+     *
+     * @return Getter for {@link #movementHistorySize}
+     */
+    public int getMovementHistorySize() {
+        return movementHistorySize;
+    }
+
+    /**
+     * Should we track the movement history of players?
+     *
+     * @return Is {@link #movementHistorySize} greater than zero.
+     */
+    public boolean shouldTrackMovementHistory() {
+        return movementHistorySize > 0;
+    }
+
+    /**
+     * Should we track the entity positions sent to each player?
+     *
+     * @return Getter for {@link #trackEntityPositions}
+     */
+    public boolean shouldTrackEntityPositions() {
+        return trackEntityPositions;
+    }
+
+    /**
+     * How many ticks should we wait between two round trip time probes?
+     *
+     * @return Getter for {@link #latencyProbeInterval}
+     */
+    public int getLatencyProbeInterval() {
+        return latencyProbeInterval;
+    }
+
+    /**
+     * How many worker threads run the asynchronous packet transformers?
+     *
+     * @return Getter for {@link #asyncTransformerThreads}
+     */
+    public int getAsyncTransformerThreads() {
+        return asyncTransformerThreads;
+    }
+
+    /**
+     * Should we merge the entity movement packets we send to a player within a tick?
+     *
+     * @return Getter for {@link #coalesceEntityMovement}
+     */
+    public boolean shouldCoalesceEntityMovement() {
+        return coalesceEntityMovement;
+    }
+
+    /**
+     * How many entries does the NMS conversion cache hold per conversion type?
+     *
+     * @return Getter for {@link #conversionCacheSize}
+     */
+    public int getConversionCacheSize() {
+        return conversionCacheSize;
+    }
+
+    /**
+     * How far away from a player may particles and sounds be?
+     *
+     * @return Getter for {@link #effectCullingDistance}
+     */
+    public double getEffectCullingDistance() {
+        return effectCullingDistance;
+    }
+
+    /**
+     * How many particles and sounds may a player receive per tick?
+     *
+     * @return Getter for {@link #effectBudgetPerTick}
+     */
+    public int getEffectBudgetPerTick() {
+        return effectBudgetPerTick;
+    }
+
+    /**
+     * Do we count the traffic of every packet type?
+     *
+     * @return Getter for {@link #trafficStatistics}
+     */
+    public boolean shouldTrackTraffic() {
+        return trafficStatistics;
+    }
+
+    /**
+     * On which local port do we serve the traffic metrics?
+     *
+     * @return Getter for {@link #trafficMetricsPort}
+     */
+    public int getTrafficMetricsPort() {
+        return trafficMetricsPort;
+    }
+
+    /**
+     * After how many exceptions within the window do we bypass a packet listener?
+     *
+     * @return Getter for {@link #listenerBreakerThreshold}
+     */
+    public int getListenerBreakerThreshold() {
+        return listenerBreakerThreshold;
+    }
+
+    /**
+     * How many seconds are the failures of a packet listener counted together?
+     *
+     * @return Getter for {@link #listenerBreakerWindow}
+     */
+    public int getListenerBreakerWindow() {
+        return listenerBreakerWindow;
+    }
+
+    /**
+     * For how many seconds do we bypass a failing packet listener?
+     *
+     * @return Getter for {@link #listenerBreakerCooldown}
+     */
+    public int getListenerBreakerCooldown() {
+        return listenerBreakerCooldown;
+    }
+
+    /**
+     * For how many milliseconds do we reuse the server list status response?
+     *
+     * @return Getter for {@link #statusResponseCacheTime}
+     */
+    public int getStatusResponseCacheTime() {
+        return statusResponseCacheTime;
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.transformer;
+
+import io.github.retrooper.packetevents.packetwrappers.NMSPacket;
+import org.bukkit.entity.Player;
+
+/**
+ * Rewrites an outgoing packet on a worker thread instead of the netty thread of the player.
+ * The transformer runs after all packet listeners have been called and the packet hasn't been cancelled.
+ * Packets of the same player are still sent in the order the server wrote them.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+@FunctionalInterface
+public interface AsyncPacketTransformer {
+    /**
+     * Transform an outgoing packet.
+     * This is called on a worker thread, the packet isn't accessed by any other thread meanwhile.
+     *
+     * @param player Packet receiver.
+     * @param packet Outgoing packet.
+     * @return Packet to send instead, the same packet if it was modified in place or null to drop it.
+     */
+    NMSPacket transform(Player player, NMSPacket packet);
+}
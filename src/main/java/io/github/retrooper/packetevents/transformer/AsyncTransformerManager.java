@@ -0,0 +1,105 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.transformer;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packettype.PacketType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Registry of the asynchronous packet transformers, one transformer per packet ID.
+ * Only outgoing play packets can be transformed and only on 1.8 and newer servers.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class AsyncTransformerManager {
+    private final AtomicReferenceArray<AsyncPacketTransformer> transformers = new AtomicReferenceArray<>(256);
+    private final AtomicInteger threadCounter = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    /**
+     * Register the transformer of a packet type.
+     *
+     * @param packetID    Packet ID, see {@link PacketType.Play.Server}
+     * @param transformer Transformer
+     * @return Previously registered transformer, null if there wasn't one.
+     */
+    public AsyncPacketTransformer register(byte packetID, AsyncPacketTransformer transformer) {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    int threads = PacketEvents.get().getSettings().getAsyncTransformerThreads();
+                    executor = Executors.newFixedThreadPool(threads, task -> {
+                        Thread thread = new Thread(task, "packetevents-transformer-" + threadCounter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return transformers.getAndSet(packetID & 0xFF, transformer);
+    }
+
+    /**
+     * Unregister the transformer of a packet type.
+     * Packets that are already being transformed are still sent.
+     *
+     * @param packetID Packet ID
+     * @return Removed transformer, null if there wasn't one.
+     */
+    public AsyncPacketTransformer unregister(byte packetID) {
+        return transformers.getAndSet(packetID & 0xFF, null);
+    }
+
+    public void unregisterAll() {
+        for (int i = 0; i < transformers.length(); i++) {
+            transformers.set(i, null);
+        }
+    }
+
+    public AsyncPacketTransformer getTransformer(byte packetID) {
+        return transformers.get(packetID & 0xFF);
+    }
+
+    /**
+     * Worker threads of the transformers.
+     *
+     * @return Executor, null if no transformer has been registered yet.
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Unregister all transformers and stop the worker threads.
+     * Packets that are being transformed right now are still sent.
+     */
+    public synchronized void shutdown() {
+        unregisterAll();
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
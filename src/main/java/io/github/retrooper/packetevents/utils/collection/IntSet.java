@@ -0,0 +1,169 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.collection;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of primitive ints.
+ * Lookups don't box the value and don't allocate.
+ * This set is not thread-safe.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class IntSet {
+    private static final int DEFAULT_CAPACITY = 16;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int mask;
+
+    public IntSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1) << 1);
+        allocate(capacity);
+    }
+
+    public IntSet(IntSet other) {
+        this.values = other.values.clone();
+        this.used = other.used.clone();
+        this.size = other.size;
+        this.mask = other.mask;
+    }
+
+    private void allocate(int capacity) {
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(int value) {
+        int index = hash(value) & mask;
+        while (used[index]) {
+            if (values[index] == value) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean contains(int value) {
+        return indexOf(value) != -1;
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value Value
+     * @return Has the value been added? False if it was already present.
+     */
+    public boolean add(int value) {
+        int index = hash(value) & mask;
+        while (used[index]) {
+            if (values[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        values[index] = value;
+        used[index] = true;
+        if (++size > (mask + 1) >> 1) {
+            rehash((mask + 1) << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param value Value
+     * @return Has the value been removed? False if it wasn't present.
+     */
+    public boolean remove(int value) {
+        int index = indexOf(value);
+        if (index == -1) {
+            return false;
+        }
+        used[index] = false;
+        size--;
+        //Shift following values back so lookups don't stop at the hole
+        int next = (index + 1) & mask;
+        while (used[next]) {
+            int ideal = hash(values[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - index) & mask)) {
+                values[index] = values[next];
+                used[index] = true;
+                used[next] = false;
+                index = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    public int[] toArray() {
+        int[] array = new int[size];
+        int i = 0;
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                array[i++] = values[index];
+            }
+        }
+        return array;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldUsed[i]) {
+                int index = hash(oldValues[i]) & mask;
+                while (used[index]) {
+                    index = (index + 1) & mask;
+                }
+                values[index] = oldValues[i];
+                used[index] = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.effect;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Effect state of one player: the last position the client sent us, the effects sent this tick
+ * and how many effects we have culled.
+ * The position and tick budget are only modified on the netty thread of the player.
+ * The counters are atomic, they may be updated and read from any thread.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EffectPolicy
+ */
+public final class EffectBudget {
+    private static final long TICK_NANOS = 50_000_000L;
+    private double x, y, z;
+    private boolean positionKnown;
+    private long tick;
+    private int sentThisTick;
+    private final AtomicLong culledByDistance = new AtomicLong(), culledByBudget = new AtomicLong(), sent = new AtomicLong();
+
+    void setPosition(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.positionKnown = true;
+    }
+
+    void forgetPosition() {
+        positionKnown = false;
+    }
+
+    boolean isPositionKnown() {
+        return positionKnown;
+    }
+
+    double distanceSquared(double x, double y, double z) {
+        double dx = this.x - x;
+        double dy = this.y - y;
+        double dz = this.z - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Take one effect out of this tick's budget.
+     *
+     * @param limit Limit of the effect's priority
+     * @return Was the effect within the limit?
+     */
+    boolean take(int limit) {
+        //Ticks are measured in 50 ms windows, so a lagging server doesn't need to reset the budgets.
+        long currentTick = System.nanoTime() / TICK_NANOS;
+        if (currentTick != tick) {
+            tick = currentTick;
+            sentThisTick = 0;
+        }
+        if (sentThisTick >= limit) {
+            culledByBudget.incrementAndGet();
+            return false;
+        }
+        sentThisTick++;
+        sent.incrementAndGet();
+        return true;
+    }
+
+    void onCulledByDistance() {
+        culledByDistance.incrementAndGet();
+    }
+
+    /**
+     * How many effects were dropped because the player was too far away?
+     *
+     * @return Culled effects
+     */
+    public long getCulledByDistance() {
+        return culledByDistance.get();
+    }
+
+    /**
+     * How many effects were dropped because the player's budget for that tick was used up?
+     *
+     * @return Culled effects
+     */
+    public long getCulledByBudget() {
+        return culledByBudget.get();
+    }
+
+    /**
+     * How many effects passed the policy?
+     *
+     * @return Sent effects
+     */
+    public long getSent() {
+        return sent.get();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.effect;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packettype.PacketType;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Outbound policy for effect packets (particles and sounds).
+ * Effects further away from the player than the culling distance are dropped,
+ * the distance is measured from the last position the client sent us.
+ * Every player may receive a limited amount of effects per tick, lower priorities are dropped first.
+ * The position of an effect is read straight from the fields of the NMS packet, the accessors are resolved once per packet class.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#effectCullingDistance(double)
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#effectBudgetPerTick(int)
+ */
+public final class EffectPolicy {
+    private final EffectPriority[] priorities = new EffectPriority[256];
+    private final Map<Class<?>, PositionAccessor> accessors = new ConcurrentHashMap<>();
+    private volatile double cullingDistanceSquared;
+    private volatile int budgetPerTick;
+
+    public EffectPolicy() {
+        setPriority(PacketType.Play.Server.WORLD_PARTICLES, EffectPriority.LOW);
+        setPriority(PacketType.Play.Server.NAMED_SOUND_EFFECT, EffectPriority.NORMAL);
+    }
+
+    /**
+     * Configure the policy.
+     *
+     * @param cullingDistance Maximum distance between a player and an effect, zero disables distance culling.
+     * @param budgetPerTick   Maximum amount of effects per player and tick, zero disables the budget.
+     */
+    public void configure(double cullingDistance, int budgetPerTick) {
+        this.cullingDistanceSquared = cullingDistance > 0 ? cullingDistance * cullingDistance : 0;
+        this.budgetPerTick = Math.max(0, budgetPerTick);
+    }
+
+    public boolean isEnabled() {
+        return cullingDistanceSquared > 0 || budgetPerTick > 0;
+    }
+
+    public boolean isDistanceCullingEnabled() {
+        return cullingDistanceSquared > 0;
+    }
+
+    /**
+     * Change the priority of an effect packet type.
+     * The packet needs three position fields (int fixed point, float or double) in the order x, y, z.
+     *
+     * @param packetID Packet ID
+     * @param priority Priority, null to let the packets through untouched.
+     */
+    public void setPriority(byte packetID, @Nullable EffectPriority priority) {
+        priorities[packetID & 0xFF] = priority;
+    }
+
+    @Nullable
+    public EffectPriority getPriority(byte packetID) {
+        return priorities[packetID & 0xFF];
+    }
+
+    /**
+     * Decide if an outbound packet may be sent to a player.
+     *
+     * @param player   Packet receiver
+     * @param packetID Packet ID
+     * @param packet   NMS packet
+     * @return Should the packet be sent?
+     */
+    public boolean allow(Player player, byte packetID, Object packet) {
+        EffectPriority priority = priorities[packetID & 0xFF];
+        if (priority == null || player == null || !isEnabled()) {
+            return true;
+        }
+        EffectBudget budget = getBudget(player);
+        if (priority != EffectPriority.HIGH) {
+            double maxDistanceSquared = cullingDistanceSquared;
+            if (maxDistanceSquared > 0 && budget.isPositionKnown()) {
+                PositionAccessor accessor = accessors.computeIfAbsent(packet.getClass(), PositionAccessor::new);
+                if (accessor.isValid() && accessor.distanceSquared(packet, budget) > maxDistanceSquared) {
+                    budget.onCulledByDistance();
+                    return false;
+                }
+            }
+        }
+        int budgetPerTick = this.budgetPerTick;
+        return budget.take(budgetPerTick > 0 ? priority.getLimit(budgetPerTick) : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Remember the position a player has sent us.
+     *
+     * @param player Player
+     * @param x      X
+     * @param y      Y
+     * @param z      Z
+     */
+    public void onPosition(Player player, double x, double y, double z) {
+        getBudget(player).setPosition(x, y, z);
+    }
+
+    /**
+     * Forget the position of a player, for example after a respawn or world change.
+     * Effects aren't culled by distance until the client sends its position again.
+     *
+     * @param player Player
+     */
+    public void forgetPosition(Player player) {
+        EffectBudget budget = PacketEvents.get().getPlayerUtils().effectBudgetMap.get(player.getUniqueId());
+        if (budget != null) {
+            budget.forgetPosition();
+        }
+    }
+
+    private EffectBudget getBudget(Player player) {
+        return PacketEvents.get().getPlayerUtils().effectBudgetMap.computeIfAbsent(player.getUniqueId(), uuid -> new EffectBudget());
+    }
+
+    private static final class PositionAccessor {
+        private final Field[] fields = new Field[3];
+        private final boolean fixedPoint;
+
+        private PositionAccessor(Class<?> packetClass) {
+            //The first numeric instance fields are the position, older sound packets store it in eighths of a block
+            List<Field> candidates = new ArrayList<>();
+            Class<?> type = null;
+            for (Field field : Reflection.getFields(packetClass)) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (fieldType == double.class || fieldType == float.class || fieldType == int.class) {
+                    if (type == null) {
+                        type = fieldType;
+                    }
+                    if (fieldType == type && candidates.size() < 3) {
+                        candidates.add(field);
+                    }
+                }
+            }
+            if (candidates.size() == 3) {
+                candidates.toArray(fields);
+            }
+            fixedPoint = type == int.class;
+        }
+
+        private boolean isValid() {
+            return fields[0] != null;
+        }
+
+        private double distanceSquared(Object packet, EffectBudget budget) {
+            try {
+                double x, y, z;
+                if (fixedPoint) {
+                    x = fields[0].getInt(packet) / 8.0D;
+                    y = fields[1].getInt(packet) / 8.0D;
+                    z = fields[2].getInt(packet) / 8.0D;
+                } else {
+                    x = fields[0].getDouble(packet);
+                    y = fields[1].getDouble(packet);
+                    z = fields[2].getDouble(packet);
+                }
+                return budget.distanceSquared(x, y, z);
+            } catch (IllegalAccessException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }
+    }
+}
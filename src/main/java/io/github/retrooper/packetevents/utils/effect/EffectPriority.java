@@ -0,0 +1,59 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.effect;
+
+/**
+ * Priority class of an effect packet.
+ * Lower priorities give up their share of the per-tick budget first.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see EffectPolicy
+ */
+public enum EffectPriority {
+    /**
+     * Never culled, but counted against the budget.
+     */
+    HIGH(Integer.MAX_VALUE),
+    /**
+     * May use the whole budget.
+     */
+    NORMAL(100),
+    /**
+     * May use half of the budget.
+     */
+    LOW(50);
+
+    private final int budgetPercentage;
+
+    EffectPriority(int budgetPercentage) {
+        this.budgetPercentage = budgetPercentage;
+    }
+
+    /**
+     * How many effects of this priority may be sent within a tick.
+     * Every priority may send at least one effect, even if its share of a small budget rounds down to zero.
+     *
+     * @param budget Budget per tick
+     * @return Limit
+     */
+    public int getLimit(int budget) {
+        return budgetPercentage == Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(1L, (long) budget * budgetPercentage / 100);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.entitytracker;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packettype.PacketTypeClasses;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+
+import java.lang.reflect.Field;
+import java.util.Objects;
+
+/**
+ * Reads the positions of entity movement packets for the {@link EntityPositionTracker}.
+ * We see every movement packet a player is sent, so we read the NMS fields directly instead of allocating a wrapper per packet.
+ * The fields are resolved the same way as in WrappedPacketOutEntity and WrappedPacketOutEntityTeleport.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class EntityPacketReader {
+    private EntityPacketReader() {
+    }
+
+    /**
+     * Delta of a relative entity move packet.
+     *
+     * @param nmsPacket NMS REL_ENTITY_MOVE or REL_ENTITY_MOVE_LOOK packet
+     * @param axis      0 = X, 1 = Y, 2 = Z
+     * @return Delta in blocks.
+     */
+    public static double readDelta(Object nmsPacket, int axis) {
+        try {
+            //Widens byte, short and int fields without boxing them
+            return MoveFields.DELTAS[axis].getDouble(nmsPacket) / MoveFields.DIVISOR;
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            return 0.0D;
+        }
+    }
+
+    /**
+     * Position of an entity teleport packet.
+     *
+     * @param nmsPacket NMS ENTITY_TELEPORT packet
+     * @param axis      0 = X, 1 = Y, 2 = Z
+     * @return Position coordinate.
+     */
+    public static double readTeleportPosition(Object nmsPacket, int axis) {
+        try {
+            return TeleportFields.POSITION[axis].getDouble(nmsPacket) / TeleportFields.DIVISOR;
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            return 0.0D;
+        }
+    }
+
+    /**
+     * Byte deltas on 1.7.10 - 1.8.8, int deltas on 1.9 - 1.15.2 and short deltas on 1.16+.
+     * The JVM initializes the class once, so every thread sees the resolved fields.
+     */
+    private static final class MoveFields {
+        private static final Field[] DELTAS = new Field[3];
+        private static final double DIVISOR;
+
+        static {
+            Class<?> packetClass = PacketTypeClasses.Play.Server.ENTITY;
+            boolean v_1_17 = PacketEvents.get().getServerUtils().getVersion().isNewerThanOrEquals(ServerVersion.v_1_17);
+            Field dxField = Objects.requireNonNull(Reflection.getField(packetClass, v_1_17 ? 2 : 1));
+            Class<?> type;
+            int firstIndex;
+            if (dxField.equals(Reflection.getField(packetClass, byte.class, 0))) {
+                type = byte.class;
+                firstIndex = 0;
+            } else if (dxField.equals(Reflection.getField(packetClass, int.class, 1))) {
+                type = int.class;
+                firstIndex = 1;
+            } else {
+                type = short.class;
+                firstIndex = 0;
+            }
+            for (int i = 0; i < 3; i++) {
+                DELTAS[i] = Reflection.getField(packetClass, type, firstIndex + i);
+            }
+            DIVISOR = type == byte.class ? 32.0D : 4096.0D;
+        }
+    }
+
+    /**
+     * Fixed point int coordinates before 1.9, double coordinates since.
+     */
+    private static final class TeleportFields {
+        private static final Field[] POSITION = new Field[3];
+        private static final double DIVISOR;
+
+        static {
+            Class<?> packetClass = PacketTypeClasses.Play.Server.ENTITY_TELEPORT;
+            boolean legacy = Reflection.getField(packetClass, double.class, 0) == null;
+            for (int i = 0; i < 3; i++) {
+                //The entity ID is the first int field
+                POSITION[i] = legacy ? Reflection.getField(packetClass, int.class, i + 1) : Reflection.getField(packetClass, double.class, i);
+            }
+            DIVISOR = legacy ? 32.0D : 1.0D;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.entitytracker;
+
+import io.github.retrooper.packetevents.utils.collection.IntObjectMap;
+import io.github.retrooper.packetevents.utils.vector.Vector3d;
+
+import java.util.ArrayDeque;
+
+/**
+ * Tracks the entity positions a server has sent to one player.
+ * Every position is timestamped with {@link System#nanoTime()} and with the amount of acknowledgement packets
+ * (keep alive/ping) we had sent at that moment. Once the client answers one of those, we know which positions
+ * it has definitely processed.
+ * The tracker is confined to the netty thread of the player, only access it from that thread (packet listeners of that player).
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class EntityPositionTracker {
+    /**
+     * Amount of positions we remember per entity.
+     */
+    public static final int HISTORY_SIZE = 20;
+    private static final int MAX_POOLED_HISTORIES = 256;
+    private final IntObjectMap<History> entities = new IntObjectMap<>();
+    private final ArrayDeque<History> pool = new ArrayDeque<>();
+    private int sentAcknowledgements;
+    private int receivedAcknowledgements;
+
+    /**
+     * The server spawned an entity for this player.
+     *
+     * @param entityID Entity ID
+     * @param x        X
+     * @param y        Y
+     * @param z        Z
+     * @param nanoTime Time we sent the spawn packet.
+     */
+    public void onSpawn(int entityID, double x, double y, double z, long nanoTime) {
+        History history = entities.get(entityID);
+        if (history == null) {
+            history = pool.poll();
+            if (history == null) {
+                history = new History();
+            }
+            entities.put(entityID, history);
+        }
+        history.reset();
+        history.add(x, y, z, nanoTime, sentAcknowledgements);
+    }
+
+    /**
+     * The server teleported an entity for this player.
+     *
+     * @param entityID Entity ID
+     * @param x        X
+     * @param y        Y
+     * @param z        Z
+     * @param nanoTime Time we sent the teleport packet.
+     */
+    public void onTeleport(int entityID, double x, double y, double z, long nanoTime) {
+        History history = entities.get(entityID);
+        if (history != null) {
+            history.add(x, y, z, nanoTime, sentAcknowledgements);
+        }
+    }
+
+    /**
+     * The server moved an entity relatively for this player.
+     *
+     * @param entityID Entity ID
+     * @param deltaX   Delta X
+     * @param deltaY   Delta Y
+     * @param deltaZ   Delta Z
+     * @param nanoTime Time we sent the movement packet.
+     */
+    public void onRelativeMove(int entityID, double deltaX, double deltaY, double deltaZ, long nanoTime) {
+        History history = entities.get(entityID);
+        if (history != null && history.count > 0) {
+            int latest = history.latest();
+            history.add(history.x[latest] + deltaX, history.y[latest] + deltaY, history.z[latest] + deltaZ,
+                    nanoTime, sentAcknowledgements);
+        }
+    }
+
+    /**
+     * The server destroyed entities for this player.
+     *
+     * @param entityIDs Entity IDs
+     */
+    public void onDestroy(int... entityIDs) {
+        for (int entityID : entityIDs) {
+            History history = entities.remove(entityID);
+            if (history != null && pool.size() < MAX_POOLED_HISTORIES) {
+                pool.add(history);
+            }
+        }
+    }
+
+    /**
+     * The player changed worlds, the client forgets all entities.
+     */
+    public void clear() {
+        entities.forEach((entityID, history) -> {
+            if (pool.size() < MAX_POOLED_HISTORIES) {
+                pool.add(history);
+            }
+        });
+        entities.clear();
+    }
+
+    /**
+     * We sent a keep alive or ping packet the client will answer.
+     */
+    public void onAcknowledgementSent() {
+        sentAcknowledgements++;
+    }
+
+    /**
+     * The client answered a keep alive or ping packet (keep alive/pong response).
+     * Packets arrive in order, so this is the oldest unanswered one.
+     */
+    public void onAcknowledgementReceived() {
+        if (receivedAcknowledgements < sentAcknowledgements) {
+            receivedAcknowledgements++;
+        }
+    }
+
+    public boolean isTracked(int entityID) {
+        return entities.containsKey(entityID);
+    }
+
+    public int getTrackedEntityCount() {
+        return entities.size();
+    }
+
+    /**
+     * Latest position we sent for an entity.
+     *
+     * @param entityID Entity ID
+     * @param output   Vector to copy the position into.
+     * @return Is the entity tracked?
+     */
+    public boolean getLatestPosition(int entityID, Vector3d output) {
+        History history = entities.get(entityID);
+        if (history == null || history.count == 0) {
+            return false;
+        }
+        history.copy(history.latest(), output);
+        return true;
+    }
+
+    /**
+     * Latest position of an entity the client has confirmed to have processed.
+     * A position is confirmed once the client answered a keep alive or ping we sent after it.
+     *
+     * @param entityID Entity ID
+     * @param output   Vector to copy the position into.
+     * @return Was there a confirmed position?
+     */
+    public boolean getAcknowledgedPosition(int entityID, Vector3d output) {
+        History history = entities.get(entityID);
+        if (history == null) {
+            return false;
+        }
+        for (int i = 0; i < history.count; i++) {
+            int index = history.index(i);
+            if (history.acknowledgements[index] < receivedAcknowledgements) {
+                history.copy(index, output);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Position of an entity we had sent at a given time, linearly interpolated between the surrounding positions.
+     * If the time is older than the history, the oldest position is used.
+     *
+     * @param entityID Entity ID
+     * @param nanoTime {@link System#nanoTime()} based time.
+     * @param output   Vector to copy the position into.
+     * @return Is the entity tracked?
+     */
+    public boolean getPosition(int entityID, long nanoTime, Vector3d output) {
+        History history = entities.get(entityID);
+        if (history == null || history.count == 0) {
+            return false;
+        }
+        //Newest to oldest, find the first position sent before the requested time
+        int newer = -1;
+        for (int i = 0; i < history.count; i++) {
+            int index = history.index(i);
+            if (history.nanoTime[index] <= nanoTime) {
+                if (newer == -1) {
+                    history.copy(index, output);
+                } else {
+                    double progress = (double) (nanoTime - history.nanoTime[index])
+                            / (history.nanoTime[newer] - history.nanoTime[index]);
+                    output.x = history.x[index] + (history.x[newer] - history.x[index]) * progress;
+                    output.y = history.y[index] + (history.y[newer] - history.y[index]) * progress;
+                    output.z = history.z[index] + (history.z[newer] - history.z[index]) * progress;
+                }
+                return true;
+            }
+            newer = index;
+        }
+        history.copy(newer, output);
+        return true;
+    }
+
+    private static final class History {
+        private final double[] x = new double[HISTORY_SIZE];
+        private final double[] y = new double[HISTORY_SIZE];
+        private final double[] z = new double[HISTORY_SIZE];
+        private final long[] nanoTime = new long[HISTORY_SIZE];
+        private final int[] acknowledgements = new int[HISTORY_SIZE];
+        private int head;
+        private int count;
+
+        private void reset() {
+            head = 0;
+            count = 0;
+        }
+
+        private void add(double x, double y, double z, long nanoTime, int acknowledgements) {
+            this.x[head] = x;
+            this.y[head] = y;
+            this.z[head] = z;
+            this.nanoTime[head] = nanoTime;
+            this.acknowledgements[head] = acknowledgements;
+            head = (head + 1) % HISTORY_SIZE;
+            if (count < HISTORY_SIZE) {
+                count++;
+            }
+        }
+
+        private int latest() {
+            return index(0);
+        }
+
+        //0 is the newest entry
+        private int index(int ago) {
+            return (head - 1 - ago + HISTORY_SIZE) % HISTORY_SIZE;
+        }
+
+        private void copy(int index, Vector3d output) {
+            output.x = x[index];
+            output.y = y[index];
+            output.z = z[index];
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.latency;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.utils.player.PlayerUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Repeating task sending a round trip time probe to every online player.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class LatencyProbeTask implements Runnable {
+    @Override
+    public void run() {
+        PlayerUtils playerUtils = PacketEvents.get().getPlayerUtils();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            playerUtils.sendLatencyProbe(player);
+        }
+    }
+}
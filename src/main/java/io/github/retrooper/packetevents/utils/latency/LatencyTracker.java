@@ -0,0 +1,291 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.latency;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Round trip time measurement and client acknowledgements of one player.
+ * We send transaction (1.7.10 - 1.16.5) or ping (1.17+) probes and match the client's answers by their ID.
+ * Probe IDs are negative shorts counting up from {@link Short#MIN_VALUE}, they map to a slot in a ring buffer.
+ * Callbacks can be attached to a probe, they run once the client answered it.
+ * All times are {@link System#nanoTime()} based and returned in nanoseconds.
+ * Probes are matched on the netty thread of the player, the statistics may be read from any thread.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class LatencyTracker {
+    /**
+     * Amount of probes that may be unanswered at the same time.
+     */
+    public static final int PENDING_PROBES = 256;
+    /**
+     * Amount of round trip times we remember to calculate percentiles.
+     */
+    public static final int SAMPLE_SIZE = 64;
+    private static final int ID_RANGE = 4096;
+    private static final int PENDING_MASK = PENDING_PROBES - 1;
+    private final AtomicInteger probeCounter = new AtomicInteger();
+    //Pending probes, only accessed by the netty thread.
+    private final short[] pendingIDs = new short[PENDING_PROBES];
+    private final long[] pendingSendTimes = new long[PENDING_PROBES];
+    //Callbacks waiting for a probe to be answered, tagged with the ID of the probe
+    private final AtomicReferenceArray<ProbeCallbacks> pendingCallbacks = new AtomicReferenceArray<>(PENDING_PROBES);
+    private final List<Runnable> queuedCallbacks = new ArrayList<>();
+    //Answered probes
+    private final StampedLock sampleLock = new StampedLock();
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private final long[] sortedSamples = new long[SAMPLE_SIZE];
+    private int sampleCount;
+    private int sampleHead;
+    private volatile long lastRTT = -1L;
+    private volatile long minRTT = -1L;
+    private volatile long smoothedRTT = -1L;
+    private volatile long jitter;
+
+    /**
+     * Is this ID inside the range of probe IDs we use?
+     *
+     * @param id Transaction action number or ping ID.
+     * @return Could this be one of our probes?
+     */
+    public static boolean isProbeID(int id) {
+        return id >= Short.MIN_VALUE && id < Short.MIN_VALUE + ID_RANGE;
+    }
+
+    private static int slot(int id) {
+        return (id - Short.MIN_VALUE) & PENDING_MASK;
+    }
+
+    /**
+     * Reserve the ID of the next probe.
+     * May be called from any thread.
+     *
+     * @return Probe ID.
+     */
+    public short nextProbeID() {
+        return (short) (Short.MIN_VALUE + Math.floorMod(probeCounter.getAndIncrement(), ID_RANGE));
+    }
+
+    /**
+     * A probe has been written to the channel of the player.
+     *
+     * @param id       Probe ID.
+     * @param nanoTime Time we sent the probe.
+     */
+    public void onProbeSent(short id, long nanoTime) {
+        int slot = slot(id);
+        pendingIDs[slot] = id;
+        pendingSendTimes[slot] = nanoTime;
+    }
+
+    /**
+     * The client answered a probe.
+     *
+     * @param id       Probe ID.
+     * @param nanoTime Time we received the answer.
+     * @return Did the answer belong to one of our pending probes?
+     */
+    public boolean onProbeReceived(short id, long nanoTime) {
+        int slot = slot(id);
+        long sendTime = pendingSendTimes[slot];
+        if (pendingIDs[slot] != id || sendTime == 0L) {
+            return false;
+        }
+        pendingSendTimes[slot] = 0L;
+        record(nanoTime - sendTime);
+        //The slot may already hold the callbacks of a newer probe we haven't sent yet, those have to wait.
+        ProbeCallbacks pending = pendingCallbacks.get(slot);
+        if (pending != null && pending.id == id && pendingCallbacks.compareAndSet(slot, pending, null)) {
+            runCallbacks(pending.callbacks);
+        }
+        return true;
+    }
+
+    /**
+     * Queue a callback for the next acknowledgement probe.
+     * May be called from any thread.
+     *
+     * @param callback Callback to run once the client answered the probe.
+     */
+    public void queueCallback(Runnable callback) {
+        synchronized (queuedCallbacks) {
+            queuedCallbacks.add(callback);
+        }
+    }
+
+    public boolean hasQueuedCallbacks() {
+        synchronized (queuedCallbacks) {
+            return !queuedCallbacks.isEmpty();
+        }
+    }
+
+    /**
+     * Attach all queued callbacks to a probe we are about to send.
+     * If the slot still holds callbacks of an unanswered probe, they move to this probe.
+     * The client processes packets in order, so answering this probe implies it processed the older one too.
+     * The callbacks are tagged with the probe ID, so a late answer to the older probe doesn't run them before this probe is sent.
+     *
+     * @param id Probe ID.
+     */
+    public void attachQueuedCallbacks(short id) {
+        Runnable[] callbacks;
+        synchronized (queuedCallbacks) {
+            if (queuedCallbacks.isEmpty()) {
+                return;
+            }
+            callbacks = queuedCallbacks.toArray(new Runnable[0]);
+            queuedCallbacks.clear();
+        }
+        int slot = slot(id);
+        ProbeCallbacks attached = new ProbeCallbacks(id, callbacks);
+        ProbeCallbacks stale = pendingCallbacks.getAndSet(slot, attached);
+        if (stale != null) {
+            Runnable[] merged = new Runnable[stale.callbacks.length + callbacks.length];
+            System.arraycopy(stale.callbacks, 0, merged, 0, stale.callbacks.length);
+            System.arraycopy(callbacks, 0, merged, stale.callbacks.length, callbacks.length);
+            if (!pendingCallbacks.compareAndSet(slot, attached, new ProbeCallbacks(id, merged))) {
+                //The slot has been answered meanwhile, run the stale callbacks right away.
+                runCallbacks(stale.callbacks);
+            }
+        }
+    }
+
+    private static void runCallbacks(Runnable[] callbacks) {
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    private void record(long rtt) {
+        long stamp = sampleLock.writeLock();
+        try {
+            samples[sampleHead] = rtt;
+            sampleHead = (sampleHead + 1) % SAMPLE_SIZE;
+            if (sampleCount < SAMPLE_SIZE) {
+                sampleCount++;
+            }
+        } finally {
+            sampleLock.unlockWrite(stamp);
+        }
+        long smoothed = smoothedRTT;
+        if (smoothed == -1L) {
+            smoothedRTT = rtt;
+            jitter = rtt / 2;
+        } else {
+            //RFC 6298, alpha = 1/8 and beta = 1/4
+            jitter += (Math.abs(smoothed - rtt) - jitter) / 4;
+            smoothedRTT = smoothed + (rtt - smoothed) / 8;
+        }
+        long min = minRTT;
+        if (min == -1L || rtt < min) {
+            minRTT = rtt;
+        }
+        lastRTT = rtt;
+    }
+
+    /**
+     * Round trip time of the latest answered probe.
+     *
+     * @return Latest RTT in nanoseconds, -1 if no probe has been answered yet.
+     */
+    public long getLastRTT() {
+        return lastRTT;
+    }
+
+    /**
+     * Lowest round trip time we have measured.
+     *
+     * @return Minimum RTT in nanoseconds, -1 if no probe has been answered yet.
+     */
+    public long getMinRTT() {
+        return minRTT;
+    }
+
+    /**
+     * Exponentially weighted moving average of the round trip time.
+     *
+     * @return Smoothed RTT in nanoseconds, -1 if no probe has been answered yet.
+     */
+    public long getSmoothedRTT() {
+        return smoothedRTT;
+    }
+
+    /**
+     * Mean deviation of the round trip time.
+     *
+     * @return Jitter in nanoseconds.
+     */
+    public long getJitter() {
+        return jitter;
+    }
+
+    /**
+     * Round trip time percentile over the latest {@link #SAMPLE_SIZE} answered probes.
+     *
+     * @param percentile Percentile between 0 and 100.
+     * @return RTT in nanoseconds, -1 if no probe has been answered yet.
+     */
+    public long getPercentileRTT(double percentile) {
+        //The sort buffer is shared, only one reader at a time.
+        synchronized (sortedSamples) {
+            int count = 0;
+            long stamp = sampleLock.tryOptimisticRead();
+            if (stamp != 0L) {
+                count = sampleCount;
+                System.arraycopy(samples, 0, sortedSamples, 0, count);
+            }
+            if (stamp == 0L || !sampleLock.validate(stamp)) {
+                stamp = sampleLock.readLock();
+                try {
+                    count = sampleCount;
+                    System.arraycopy(samples, 0, sortedSamples, 0, count);
+                } finally {
+                    sampleLock.unlockRead(stamp);
+                }
+            }
+            if (count == 0) {
+                return -1L;
+            }
+            Arrays.sort(sortedSamples, 0, count);
+            int index = (int) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count) - 1;
+            return sortedSamples[Math.max(0, index)];
+        }
+    }
+
+    private static final class ProbeCallbacks {
+        private final short id;
+        private final Runnable[] callbacks;
+
+        private ProbeCallbacks(short id, Runnable[] callbacks) {
+            this.id = id;
+            this.callbacks = callbacks;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.list;
+
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Fixed-size Bukkit view of the NMS item stacks in a packet.
+ * A slot is only converted to a Bukkit item stack once it is accessed, the converted copy is cached.
+ * {@link #set(int, ItemStack)} converts that slot and writes it straight into the packet, the other slots aren't touched.
+ * The item stacks returned by {@link #get(int)} are read-only views of the slots: they are cached, so later calls return
+ * the same instance, but modifying one doesn't modify the packet. Set a modified clone to change a slot.
+ * Code that only needs to look at the NMS items can use {@link #getRawItem(int)} to skip the conversion.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class LazyItemStackList extends AbstractList<ItemStack> implements RandomAccess {
+    //Only one of them is set, 1.11+ packets store a list and older ones an array.
+    private final List<Object> nmsList;
+    private final Object[] nmsArray;
+    private final ItemStack[] converted;
+    private final boolean[] convertedSlots;
+
+    public LazyItemStackList(List<Object> nmsItemStacks) {
+        this.nmsList = nmsItemStacks;
+        this.nmsArray = null;
+        this.converted = new ItemStack[nmsItemStacks.size()];
+        this.convertedSlots = new boolean[converted.length];
+    }
+
+    public LazyItemStackList(Object[] nmsItemStacks) {
+        this.nmsList = null;
+        this.nmsArray = nmsItemStacks;
+        this.converted = new ItemStack[nmsItemStacks.length];
+        this.convertedSlots = new boolean[converted.length];
+    }
+
+    @Override
+    public int size() {
+        return converted.length;
+    }
+
+    /**
+     * Bukkit item stack of a slot, converted on the first access.
+     * Treat it as read-only, it is shared with later calls and changes to it are never written to the packet.
+     *
+     * @param index Slot
+     * @return Cached Bukkit item stack
+     */
+    @Override
+    public ItemStack get(int index) {
+        if (!convertedSlots[index]) {
+            converted[index] = NMSUtils.toBukkitItemStack(getRawItem(index));
+            convertedSlots[index] = true;
+        }
+        return converted[index];
+    }
+
+    @Override
+    public ItemStack set(int index, ItemStack itemStack) {
+        ItemStack previous = get(index);
+        setRawItem(index, NMSUtils.toNMSItemStack(itemStack));
+        converted[index] = itemStack;
+        convertedSlots[index] = true;
+        return previous;
+    }
+
+    /**
+     * NMS item stack of a slot, without converting it.
+     *
+     * @param index Slot
+     * @return NMS item stack
+     */
+    public Object getRawItem(int index) {
+        return nmsList != null ? nmsList.get(index) : nmsArray[index];
+    }
+
+    /**
+     * Write an NMS item stack into a slot.
+     *
+     * @param index        Slot
+     * @param nmsItemStack NMS item stack
+     */
+    public void setRawItem(int index, Object nmsItemStack) {
+        if (nmsList != null) {
+            nmsList.set(index, nmsItemStack);
+        } else {
+            nmsArray[index] = nmsItemStack;
+        }
+        converted[index] = null;
+        convertedSlots[index] = false;
+    }
+
+    /**
+     * Copy of the NMS item stacks of all slots.
+     *
+     * @return NMS item stacks
+     */
+    public List<Object> getRawItems() {
+        return nmsList != null ? new ArrayList<>(nmsList) : new ArrayList<>(Arrays.asList(nmsArray));
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.nms;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU caches for the reflective NMS conversions of {@link NMSUtils}.
+ * Chat components are cached by their JSON text, so the JSON is only parsed once per text.
+ * Bukkit item stacks are mutable, so only item stacks that have been frozen with {@link #freeze(ItemStack)} are cached.
+ * NMS chat components and item stacks are mutable as well, the cached instances are never handed out,
+ * every hit returns a copy of them.
+ * Each conversion type is split into {@value #SEGMENTS} segments with their own lock, every segment evicts its least recently used entry.
+ * The cache is disabled until a capacity greater than zero has been set.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class ConversionCache {
+    private static final int SEGMENTS = 16;
+    private final LongAdder[] hits = new LongAdder[Type.values().length];
+    private final LongAdder[] misses = new LongAdder[Type.values().length];
+    private final SegmentedLRU<String, Object> components = new SegmentedLRU<>();
+    private final SegmentedLRU<IdentityKey, Object> frozenItemStacks = new SegmentedLRU<>();
+    private volatile int capacity;
+
+    public ConversionCache() {
+        for (int i = 0; i < hits.length; i++) {
+            hits[i] = new LongAdder();
+            misses[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Maximum amount of entries per conversion type.
+     * It is rounded up to a multiple of {@value #SEGMENTS}.
+     *
+     * @param capacity Capacity, zero disables the cache.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        if (this.capacity == 0) {
+            clear();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Create an immutable template of an item stack, its NMS copy is cached.
+     * The template must not be modified after freezing it, use a clone of it if you need to.
+     * If the cache is disabled, this just returns a clone.
+     *
+     * @param itemStack Item stack
+     * @return Frozen copy of the item stack
+     */
+    public ItemStack freeze(ItemStack itemStack) {
+        ItemStack template = itemStack.clone();
+        if (isEnabled() && CopyMethods.ITEM_STACK != null) {
+            Object nmsItemStack = NMSUtils.createNMSItemStack(template);
+            if (nmsItemStack != null) {
+                frozenItemStacks.put(new IdentityKey(template), nmsItemStack);
+            }
+        }
+        return template;
+    }
+
+    public void clear() {
+        components.clear();
+        frozenItemStacks.clear();
+    }
+
+    public long getHits(Type type) {
+        return hits[type.ordinal()].sum();
+    }
+
+    public long getMisses(Type type) {
+        return misses[type.ordinal()].sum();
+    }
+
+    /**
+     * Share of the lookups that were answered from the cache.
+     *
+     * @param type Conversion type
+     * @return Hit rate between 0 and 1, 0 if there were no lookups.
+     */
+    public double getHitRate(Type type) {
+        long hitCount = getHits(type);
+        long total = hitCount + getMisses(type);
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * NMS chat component of a JSON text.
+     *
+     * @param text JSON text
+     * @return New component, null if the text couldn't be parsed.
+     */
+    Object getComponent(String text) {
+        Method copyMethod = CopyMethods.COMPONENT;
+        if (copyMethod == null) {
+            return NMSUtils.parseIChatBaseComponent(text);
+        }
+        Object component = components.get(text);
+        count(Type.COMPONENT_FROM_TEXT, component != null);
+        if (component == null) {
+            component = NMSUtils.parseIChatBaseComponent(text);
+            if (component == null) {
+                return null;
+            }
+            components.put(text, component);
+        }
+        return copy(copyMethod, component);
+    }
+
+    /**
+     * NMS item stack of a Bukkit item stack.
+     *
+     * @param itemStack Bukkit item stack
+     * @return New NMS item stack.
+     */
+    Object getItemStack(ItemStack itemStack) {
+        Method copyMethod = CopyMethods.ITEM_STACK;
+        if (copyMethod == null) {
+            return NMSUtils.createNMSItemStack(itemStack);
+        }
+        Object nmsItemStack = frozenItemStacks.get(new IdentityKey(itemStack));
+        count(Type.ITEM_STACK_TO_NMS, nmsItemStack != null);
+        return nmsItemStack != null ? copy(copyMethod, nmsItemStack) : NMSUtils.createNMSItemStack(itemStack);
+    }
+
+    private void count(Type type, boolean hit) {
+        (hit ? hits : misses)[type.ordinal()].increment();
+    }
+
+    private static Object copy(Method copyMethod, Object object) {
+        try {
+            return copyMethod.invoke(object);
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public enum Type {
+        /**
+         * JSON text to NMS chat component.
+         */
+        COMPONENT_FROM_TEXT,
+        /**
+         * Frozen Bukkit item stack to NMS item stack.
+         */
+        ITEM_STACK_TO_NMS
+    }
+
+    /**
+     * Methods that copy an NMS chat component or item stack.
+     * Their names differ between versions, so we try every method that could be one on a sample and keep the one that returns an equal copy.
+     * If we don't find one, that conversion isn't cached.
+     * Resolved when the cache is first used, NMSUtils has loaded the NMS classes by then.
+     */
+    private static final class CopyMethods {
+        private static final Method COMPONENT = find(NMSUtils.iChatBaseComponentClass,
+                () -> NMSUtils.parseIChatBaseComponent("{\"text\":\"a\",\"bold\":true,\"extra\":[{\"text\":\"b\"}]}"),
+                Object::equals);
+        private static final Method ITEM_STACK = find(NMSUtils.nmsItemStackClass,
+                () -> NMSUtils.createNMSItemStack(new ItemStack(Material.STONE, 2)),
+                (sample, copy) -> NMSUtils.toBukkitItemStack(sample).equals(NMSUtils.toBukkitItemStack(copy)));
+
+        private static Method find(Class<?> cls, Supplier<Object> sampleFactory, BiPredicate<Object, Object> isEqual) {
+            if (cls == null) {
+                return null;
+            }
+            for (Method method : cls.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                        || !cls.isAssignableFrom(method.getReturnType())) {
+                    continue;
+                }
+                try {
+                    //A new sample for every method, the method we try might modify it.
+                    Object sample = sampleFactory.get();
+                    Object copy = method.invoke(sample);
+                    if (copy != null && copy != sample && isEqual.test(sample, copy)) {
+                        return method;
+                    }
+                } catch (Exception ignored) {
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * LRU map split into segments, so lookups of different keys rarely wait for each other.
+     */
+    private final class SegmentedLRU<K, V> {
+        private final LRUMap<K, V>[] segments;
+
+        @SuppressWarnings("unchecked")
+        private SegmentedLRU() {
+            segments = new LRUMap[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new LRUMap<>();
+            }
+        }
+
+        private V get(K key) {
+            LRUMap<K, V> segment = segment(key);
+            synchronized (segment) {
+                return segment.get(key);
+            }
+        }
+
+        private void put(K key, V value) {
+            LRUMap<K, V> segment = segment(key);
+            synchronized (segment) {
+                segment.put(key, value);
+            }
+        }
+
+        private void clear() {
+            for (LRUMap<K, V> segment : segments) {
+                synchronized (segment) {
+                    segment.clear();
+                }
+            }
+        }
+
+        private LRUMap<K, V> segment(K key) {
+            int hash = key.hashCode();
+            return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+        }
+    }
+
+    private final class LRUMap<K, V> extends LinkedHashMap<K, V> {
+        private LRUMap() {
+            super(16, 0.75F, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > (capacity + SEGMENTS - 1) / SEGMENTS;
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object object;
+
+        private IdentityKey(Object object) {
+            this.object = object;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IdentityKey && ((IdentityKey) obj).object == object;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(object);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.nms;
+
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the conversions between NMS MinecraftKeys (resource locations) and their "namespace:key" text.
+ * Sound effects and channel names are registered once and then sent over and over again,
+ * so most lookups resolve the same few key instances.
+ * NMS keys are looked up by identity in a small direct-mapped table, a lookup neither locks nor allocates.
+ * The text of a key is interned, so callers may compare it by reference.
+ * MinecraftKeys are immutable, so the NMS keys we create from text are shared between packets.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class MinecraftKeyCache {
+    private static final int TABLE_SIZE = 1024;
+    private static final int MAX_KEYS = 4096;
+    private final Entry[] table = new Entry[TABLE_SIZE];
+    private final Map<String, Object> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Text of an NMS MinecraftKey.
+     *
+     * @param minecraftKey NMS MinecraftKey
+     * @return Interned "namespace:key" text, null if the key is null.
+     */
+    public String toText(Object minecraftKey) {
+        if (minecraftKey == null) {
+            return null;
+        }
+        int slot = System.identityHashCode(minecraftKey) & (TABLE_SIZE - 1);
+        Entry entry = table[slot];
+        if (entry != null && entry.minecraftKey == minecraftKey) {
+            return entry.text;
+        }
+        String text = readText(minecraftKey);
+        //Entries are immutable, so publishing them through a plain array store is safe.
+        table[slot] = new Entry(minecraftKey, text);
+        return text;
+    }
+
+    /**
+     * NMS MinecraftKey of a text.
+     *
+     * @param text "namespace:key" text, the namespace defaults to minecraft.
+     * @return Shared NMS MinecraftKey, don't modify it.
+     */
+    public Object fromText(String text) {
+        Object minecraftKey = keys.get(text);
+        if (minecraftKey == null) {
+            minecraftKey = NMSUtils.createMinecraftKey(text);
+            if (minecraftKey == null) {
+                return null;
+            }
+            if (keys.size() >= MAX_KEYS) {
+                keys.clear();
+            }
+            keys.put(text, minecraftKey);
+            //The text we were given may lack the namespace, so we cache the text of the key itself.
+            table[System.identityHashCode(minecraftKey) & (TABLE_SIZE - 1)] = new Entry(minecraftKey, readText(minecraftKey));
+        }
+        return minecraftKey;
+    }
+
+    public void clear() {
+        keys.clear();
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = null;
+        }
+    }
+
+    private String readText(Object minecraftKey) {
+        try {
+            return (KeyFields.NAMESPACE.get(minecraftKey) + ":" + KeyFields.KEY.get(minecraftKey)).intern();
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Resolved when it is first used, NMSUtils has loaded the MinecraftKey class by then.
+     * The JVM initializes the class once, so every thread sees the resolved fields.
+     */
+    private static final class KeyFields {
+        private static final Field NAMESPACE, KEY;
+
+        static {
+            //1.17+ declares static namespace constants before the instance fields
+            NAMESPACE = Reflection.getField(NMSUtils.minecraftKeyClass, String.class, 0, true);
+            KEY = Reflection.getField(NMSUtils.minecraftKeyClass, String.class, 1, true);
+            NAMESPACE.setAccessible(true);
+            KEY.setAccessible(true);
+        }
+    }
+
+    private static final class Entry {
+        private final Object minecraftKey;
+        private final String text;
+
+        private Entry(Object minecraftKey, String text) {
+            this.minecraftKey = minecraftKey;
+            this.text = text;
+        }
+    }
+}
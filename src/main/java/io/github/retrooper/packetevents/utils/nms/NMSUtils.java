@@ -25,6 +25,7 @@ import io.github.retrooper.packetevents.utils.reflection.ClassUtil;
 import io.github.retrooper.packetevents.utils.reflection.Reflection;
 import io.github.retrooper.packetevents.utils.reflection.SubclassUtil;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.PackedBlockPosition;
 import io.github.retrooper.packetevents.utils.vector.Vector3d;
 import io.github.retrooper.packetevents.utils.vector.Vector3f;
 import io.github.retrooper.packetevents.utils.vector.Vector3i;
@@ -43,6 +44,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public final class NMSUtils {
     private static final ThreadLocal<Random> randomThreadLocal = ThreadLocal.withInitial(Random::new);
+    public static final ConversionCache conversionCache = new ConversionCache();
+    public static final MinecraftKeyCache minecraftKeyCache = new MinecraftKeyCache();
     public static boolean legacyNettyImportMode;
     public static ServerVersion version;
     public static Executable minecraftKeyConstructorOrMethod;
@@ -61,6 +64,8 @@ public final class NMSUtils {
             getMobEffectListId, getMobEffectListById, getItemId, getItemById, getBukkitEntity;
     private static Field entityPlayerPingField, entityBoundingBoxField, mobEffectsRegistryField;
     public static Field getBaseBlockPosX, getBaseBlockPosY, getBaseBlockPosZ;
+    //1.14+ mutable block positions store their coordinates in the base class too
+    private static boolean blockPosFieldsShared;
     private static Object minecraftServer;
     private static Object minecraftServerConnection;
 
@@ -268,6 +273,7 @@ public final class NMSUtils {
             getBaseBlockPosX = Reflection.getField(baseBlockPosClass, int.class, 0);
             getBaseBlockPosY = Reflection.getField(baseBlockPosClass, int.class, 1);
             getBaseBlockPosZ = Reflection.getField(baseBlockPosClass, int.class, 2);
+            blockPosFieldsShared = version.isNewerThanOrEquals(ServerVersion.v_1_14);
         }
         vec3DClass = NMSUtils.getNMSClassWithoutException("Vec3D");
         if (vec3DClass == null) {
@@ -678,6 +684,13 @@ public final class NMSUtils {
     }
 
     public static Object toNMSItemStack(final ItemStack stack) {
+        if (stack != null && conversionCache.isEnabled()) {
+            return conversionCache.getItemStack(stack);
+        }
+        return createNMSItemStack(stack);
+    }
+
+    static Object createNMSItemStack(final ItemStack stack) {
         try {
             return asNMSCopy.invoke(null, stack);
         } catch (IllegalAccessException | InvocationTargetException e) {
@@ -712,6 +725,13 @@ public final class NMSUtils {
         if (text == null) {
             return null;
         }
+        if (conversionCache.isEnabled()) {
+            return conversionCache.getComponent(text);
+        }
+        return parseIChatBaseComponent(text);
+    }
+
+    static Object parseIChatBaseComponent(String text) {
         try {
             return chatFromStringMethod.invoke(null, text);
         } catch (IllegalAccessException | InvocationTargetException e) {
@@ -765,6 +785,36 @@ public final class NMSUtils {
         return null;
     }
 
+    public static Object generateNMSBlockPos(int x, int y, int z) {
+        try {
+            return blockPosConstructor.newInstance(x, y, z);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Read the coordinates of an NMS block position into a packed long.
+     * Immutable block positions (and every block position on 1.14+) are read straight from their int fields,
+     * without boxing.
+     *
+     * @param blockPos NMS block position
+     * @return Packed position
+     * @see io.github.retrooper.packetevents.utils.vector.PackedBlockPosition
+     */
+    public static long readPackedBlockPos(Object blockPos) {
+        try {
+            if (getBaseBlockPosX != null && (blockPosFieldsShared || blockPos.getClass() == blockPosClass)) {
+                return PackedBlockPosition.pack(getBaseBlockPosX.getInt(blockPos), getBaseBlockPosY.getInt(blockPos), getBaseBlockPosZ.getInt(blockPos));
+            }
+            return PackedBlockPosition.pack((int) getBlockPosX.invoke(blockPos), (int) getBlockPosY.invoke(blockPos), (int) getBlockPosZ.invoke(blockPos));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            e.printStackTrace();
+            return 0L;
+        }
+    }
+
     public static String getStringFromMinecraftKey(Object minecraftKey) {
         WrappedPacket minecraftKeyWrapper = new WrappedPacket(new NMSPacket(minecraftKey));
         return minecraftKeyWrapper.readString(1);
@@ -783,12 +833,16 @@ public final class NMSUtils {
     }
 
     public static Object generateMinecraftKeyNew(String text) {
+        return minecraftKeyCache.fromText(text);
+    }
+
+    static Object createMinecraftKey(String text) {
         try {
             if (minecraftKeyConstructorOrMethod instanceof Constructor<?>) {
                 return ((Constructor<?>)minecraftKeyConstructorOrMethod).newInstance(text);
             }
             else {
-                return ((Method)minecraftKeyConstructorOrMethod).invoke(text, ':');
+                return ((Method)minecraftKeyConstructorOrMethod).invoke(null, text, ':');
             }
         } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
             e.printStackTrace();
@@ -0,0 +1,222 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.player;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Fixed-size ring buffer of the flying packets a player has sent.
+ * The netty thread of the player is the only writer.
+ * Readers never block the writer, they copy an entry into a {@link Snapshot} and retry if it was overwritten meanwhile.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class MovementHistory {
+    public static final byte FLAG_ON_GROUND = 1, FLAG_POSITION = 2, FLAG_ROTATION = 4;
+    private static final int MAX_READ_ATTEMPTS = 8;
+    private final StampedLock lock = new StampedLock();
+    private final int capacity;
+    private final double[] x, y, z;
+    private final float[] yaw, pitch;
+    private final byte[] flags;
+    private final long[] nanoTime;
+    //Only accessed by the writer
+    private double lastX, lastY, lastZ;
+    private float lastYaw, lastPitch;
+    private volatile long written;
+
+    public MovementHistory(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity of a movement history must be positive!");
+        }
+        this.capacity = capacity;
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.z = new double[capacity];
+        this.yaw = new float[capacity];
+        this.pitch = new float[capacity];
+        this.flags = new byte[capacity];
+        this.nanoTime = new long[capacity];
+    }
+
+    /**
+     * Store a flying packet.
+     * Packets without a position or rotation inherit the last known position or rotation.
+     * Only one thread may call this method.
+     *
+     * @param x        X, ignored if {@link #FLAG_POSITION} isn't set.
+     * @param y        Y, ignored if {@link #FLAG_POSITION} isn't set.
+     * @param z        Z, ignored if {@link #FLAG_POSITION} isn't set.
+     * @param yaw      Yaw, ignored if {@link #FLAG_ROTATION} isn't set.
+     * @param pitch    Pitch, ignored if {@link #FLAG_ROTATION} isn't set.
+     * @param flags    Flags of the flying packet.
+     * @param nanoTime {@link System#nanoTime()} at the time we received the packet.
+     */
+    public void record(double x, double y, double z, float yaw, float pitch, byte flags, long nanoTime) {
+        if ((flags & FLAG_POSITION) != 0) {
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+        }
+        if ((flags & FLAG_ROTATION) != 0) {
+            lastYaw = yaw;
+            lastPitch = pitch;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int slot = (int) (written % capacity);
+            this.x[slot] = lastX;
+            this.y[slot] = lastY;
+            this.z[slot] = lastZ;
+            this.yaw[slot] = lastYaw;
+            this.pitch[slot] = lastPitch;
+            this.flags[slot] = flags;
+            this.nanoTime[slot] = nanoTime;
+            written++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Maximum amount of flying packets this history can remember.
+     *
+     * @return Capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Amount of flying packets that are currently available.
+     *
+     * @return Size
+     */
+    public int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /**
+     * Total amount of flying packets recorded since the player joined.
+     *
+     * @return Total recorded flying packets.
+     */
+    public long getTotalRecorded() {
+        return written;
+    }
+
+    /**
+     * Copy a recorded flying packet into a snapshot.
+     * Zero is the latest flying packet, one the flying packet before it and so on.
+     *
+     * @param ago    How many flying packets to go back.
+     * @param output Snapshot to copy the flying packet into.
+     * @return Was the flying packet available?
+     */
+    public boolean snapshot(int ago, Snapshot output) {
+        if (ago < 0 || ago >= capacity) {
+            return false;
+        }
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0L) {
+                //The writer is busy, try again
+                continue;
+            }
+            long total = written;
+            if (ago >= total) {
+                return false;
+            }
+            int slot = (int) ((total - 1 - ago) % capacity);
+            output.x = x[slot];
+            output.y = y[slot];
+            output.z = z[slot];
+            output.yaw = yaw[slot];
+            output.pitch = pitch[slot];
+            output.flags = flags[slot];
+            output.nanoTime = nanoTime[slot];
+            if (lock.validate(stamp)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy as many recent flying packets as possible into the snapshot array, newest first.
+     * Empty elements of the array are filled with new snapshots, so a new array can be passed and reused afterwards.
+     *
+     * @param output Snapshots to copy the flying packets into.
+     * @return Amount of snapshots that were filled.
+     */
+    public int snapshot(Snapshot[] output) {
+        for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0L) {
+                continue;
+            }
+            long total = written;
+            int count = (int) Math.min(Math.min(total, capacity), output.length);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((total - 1 - i) % capacity);
+                Snapshot snapshot = output[i];
+                if (snapshot == null) {
+                    snapshot = output[i] = new Snapshot();
+                }
+                snapshot.x = x[slot];
+                snapshot.y = y[slot];
+                snapshot.z = z[slot];
+                snapshot.yaw = yaw[slot];
+                snapshot.pitch = pitch[slot];
+                snapshot.flags = flags[slot];
+                snapshot.nanoTime = nanoTime[slot];
+            }
+            if (lock.validate(stamp)) {
+                return count;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reusable copy of one recorded flying packet.
+     *
+     * @author retrooper
+     * @since 1.8.4
+     */
+    public static final class Snapshot {
+        public double x, y, z;
+        public float yaw, pitch;
+        public byte flags;
+        public long nanoTime;
+
+        public boolean isOnGround() {
+            return (flags & FLAG_ON_GROUND) != 0;
+        }
+
+        public boolean hasPositionChanged() {
+            return (flags & FLAG_POSITION) != 0;
+        }
+
+        public boolean hasRotationChanged() {
+            return (flags & FLAG_ROTATION) != 0;
+        }
+    }
+}
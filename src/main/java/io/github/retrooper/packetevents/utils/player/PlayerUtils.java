@@ -20,22 +20,36 @@ package io.github.retrooper.packetevents.utils.player;
 
 import io.github.retrooper.packetevents.PacketEvents;
 import io.github.retrooper.packetevents.packetwrappers.api.SendableWrapper;
+import io.github.retrooper.packetevents.packetwrappers.play.out.entitydestroy.EntityDestroyBuffer;
 import io.github.retrooper.packetevents.packetwrappers.play.out.entitydestroy.WrappedPacketOutEntityDestroy;
 import io.github.retrooper.packetevents.packetwrappers.play.out.namedentityspawn.WrappedPacketOutNamedEntitySpawn;
+import io.github.retrooper.packetevents.packetwrappers.play.out.ping.WrappedPacketOutPing;
+import io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo.Tablist;
+import io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo.TablistEntry;
+import io.github.retrooper.packetevents.packetwrappers.play.out.playerinfo.WrappedPacketOutPlayerInfo;
+import io.github.retrooper.packetevents.packetwrappers.play.out.transaction.WrappedPacketOutTransaction;
+import io.github.retrooper.packetevents.utils.effect.EffectBudget;
+import io.github.retrooper.packetevents.utils.entitytracker.EntityPositionTracker;
 import io.github.retrooper.packetevents.utils.gameprofile.GameProfileUtil;
 import io.github.retrooper.packetevents.utils.gameprofile.WrappedGameProfile;
 import io.github.retrooper.packetevents.utils.geyser.GeyserUtils;
+import io.github.retrooper.packetevents.utils.latency.LatencyTracker;
 import io.github.retrooper.packetevents.utils.nms.NMSUtils;
 import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import io.github.retrooper.packetevents.utils.vector.Vector3d;
+import io.github.retrooper.packetevents.utils.visibility.EntityVisibilityFilter;
 import io.github.retrooper.packetevents.utils.versionlookup.VersionLookupUtils;
 import io.github.retrooper.packetevents.utils.versionlookup.v_1_7_10.SpigotVersionLookup_1_7;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -54,6 +68,34 @@ public final class PlayerUtils {
     public final Map<InetSocketAddress, ClientVersion> clientVersionsMap = new ConcurrentHashMap<>();
     public final Map<UUID, Long> keepAliveMap = new ConcurrentHashMap<>();
     public final Map<String, Object> channels = new ConcurrentHashMap<>();
+    /**
+     * Movement histories of players, only filled if movement history tracking is enabled in the settings.
+     */
+    public final Map<UUID, MovementHistory> movementHistoryMap = new ConcurrentHashMap<>();
+    /**
+     * Entity positions sent to players, only filled if entity position tracking is enabled in the settings.
+     */
+    public final Map<UUID, EntityPositionTracker> entityTrackerMap = new ConcurrentHashMap<>();
+    /**
+     * Round trip time measurements of players, only filled if latency probes are enabled in the settings.
+     */
+    public final Map<UUID, LatencyTracker> latencyTrackerMap = new ConcurrentHashMap<>();
+    /**
+     * Tablist entries we have sent to players through {@link #updateTablist(Player, Collection)}.
+     */
+    public final Map<UUID, Tablist> tablistMap = new ConcurrentHashMap<>();
+    /**
+     * Effect budgets of players, only filled if the effect policy is enabled in the settings.
+     */
+    public final Map<UUID, EffectBudget> effectBudgetMap = new ConcurrentHashMap<>();
+    /**
+     * Entity IDs queued to be destroyed for players at the end of the tick.
+     */
+    public final Map<UUID, EntityDestroyBuffer> entityDestroyMap = new ConcurrentHashMap<>();
+    /**
+     * Entities hidden from players.
+     */
+    public final Map<UUID, EntityVisibilityFilter> entityVisibilityMap = new ConcurrentHashMap<>();
     /**
      * This is a temporary client version.
      * This is the client version we receive from the handshaking packet.
@@ -247,6 +289,265 @@ public final class PlayerUtils {
         PacketEvents.get().getInjector().sendPacket(channel, packet);
     }
 
+    /**
+     * Get the recent flying packets of a player.
+     * Movement history tracking has to be enabled in the settings.
+     *
+     * @param player Target player.
+     * @return Movement history, null if the player hasn't sent a flying packet yet or tracking is disabled.
+     * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#movementHistorySize(int)
+     */
+    @Nullable
+    public MovementHistory getMovementHistory(Player player) {
+        return movementHistoryMap.get(player.getUniqueId());
+    }
+
+    /**
+     * Get the tracker of the entity positions we have sent to a player.
+     * Entity position tracking has to be enabled in the settings.
+     * The tracker may only be accessed on the netty thread of the player.
+     *
+     * @param player Target player.
+     * @return Entity position tracker, null if no entity has been spawned for the player yet or tracking is disabled.
+     * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#trackEntityPositions(boolean)
+     */
+    @Nullable
+    public EntityPositionTracker getEntityTracker(Player player) {
+        return entityTrackerMap.get(player.getUniqueId());
+    }
+
+    /**
+     * Get the position of an entity as the player saw it some time ago.
+     * We account for the time our packets need to reach the client by using half of the player's ping.
+     * Must be called on the netty thread of the player, for example in a packet listener.
+     *
+     * @param player    Target player.
+     * @param entityID  Entity ID.
+     * @param millisAgo How many milliseconds to go back.
+     * @param output    Vector to copy the position into.
+     * @return Did we find a position for the entity?
+     */
+    public boolean getEntityPosition(Player player, int entityID, long millisAgo, Vector3d output) {
+        EntityPositionTracker tracker = getEntityTracker(player);
+        if (tracker == null) {
+            return false;
+        }
+        long latencyMillis = getPing(player) / 2;
+        long targetTime = System.nanoTime() - (millisAgo + latencyMillis) * 1_000_000L;
+        return tracker.getPosition(entityID, targetTime, output);
+    }
+
+    /**
+     * Get the round trip time measurements of a player.
+     *
+     * @param player Target player.
+     * @return Latency tracker, null if we haven't sent a probe to the player yet.
+     * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#latencyProbeInterval(int)
+     */
+    @Nullable
+    public LatencyTracker getLatencyTracker(Player player) {
+        return latencyTrackerMap.get(player.getUniqueId());
+    }
+
+    /**
+     * Send a round trip time probe to a player.
+     * This is a transaction packet on 1.7.10 - 1.16.5 and a ping packet on 1.17+.
+     *
+     * @param player Target player.
+     * @return ID of the probe.
+     */
+    public short sendLatencyProbe(Player player) {
+        LatencyTracker tracker = latencyTrackerMap.computeIfAbsent(player.getUniqueId(), uuid -> new LatencyTracker());
+        short id = tracker.nextProbeID();
+        //Callbacks queued this tick can ride along
+        tracker.attachQueuedCallbacks(id);
+        if (PacketEvents.get().getServerUtils().getVersion().isNewerThanOrEquals(ServerVersion.v_1_17)) {
+            sendPacket(player, new WrappedPacketOutPing(id));
+        } else {
+            sendPacket(player, new WrappedPacketOutTransaction(0, id, false));
+        }
+        return id;
+    }
+
+    /**
+     * Run a callback once the client has processed every packet we have sent so far.
+     * All callbacks registered during a tick share one transaction (1.7.10 - 1.16.5) or ping (1.17+) packet,
+     * which is sent at the start of the next tick.
+     * The callback runs on the netty thread of the player.
+     *
+     * @param player   Target player.
+     * @param callback Callback to run once the client answered.
+     */
+    public void onClientAck(Player player, Runnable callback) {
+        latencyTrackerMap.computeIfAbsent(player.getUniqueId(), uuid -> new LatencyTracker()).queueCallback(callback);
+    }
+
+    /**
+     * Send one acknowledgement probe to every player with callbacks registered since the last flush.
+     * PacketEvents does this every tick.
+     *
+     * @see #onClientAck(Player, Runnable)
+     */
+    public void flushClientAcks() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            LatencyTracker tracker = latencyTrackerMap.get(player.getUniqueId());
+            if (tracker != null && tracker.hasQueuedCallbacks()) {
+                sendLatencyProbe(player);
+            }
+        }
+    }
+
+    /**
+     * Queue entities to be destroyed for a player.
+     * All entities queued during a tick are destroyed with one packet at the start of the next tick.
+     * Don't queue an entity you spawn again within the same tick, flush the player's queue first.
+     *
+     * @param player    Target player.
+     * @param entityIDs Entity IDs.
+     * @see #flushEntityDestroys(Player)
+     */
+    public void queueEntityDestroy(Player player, int... entityIDs) {
+        entityDestroyMap.computeIfAbsent(player.getUniqueId(), uuid -> new EntityDestroyBuffer()).addAll(entityIDs);
+    }
+
+    /**
+     * Send the queued entity destroys of a player right now.
+     *
+     * @param player Target player.
+     */
+    public void flushEntityDestroys(Player player) {
+        EntityDestroyBuffer buffer = entityDestroyMap.get(player.getUniqueId());
+        if (buffer == null) {
+            return;
+        }
+        List<WrappedPacketOutEntityDestroy> packets = buffer.drain();
+        if (packets.isEmpty()) {
+            return;
+        }
+        for (WrappedPacketOutEntityDestroy packet : packets) {
+            writePacket(player, packet);
+        }
+        flushPackets(player);
+    }
+
+    /**
+     * Send the queued entity destroys of every player.
+     * PacketEvents does this every tick.
+     *
+     * @see #queueEntityDestroy(Player, int...)
+     */
+    public void flushEntityDestroys() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            flushEntityDestroys(player);
+        }
+    }
+
+    /**
+     * Hide an entity from a player.
+     * The entity is destroyed for the player at the start of the next tick and the server's packets of it
+     * are dropped until it is shown again.
+     *
+     * @param viewer Player who shouldn't see the entity.
+     * @param entity Entity to hide.
+     */
+    public void hideEntity(Player viewer, Entity entity) {
+        hideEntity(viewer, entity.getEntityId());
+    }
+
+    /**
+     * Hide an entity from a player, this also works for entities that only exist on the client.
+     *
+     * @param viewer   Player who shouldn't see the entity.
+     * @param entityID Entity ID
+     * @see #hideEntity(Player, Entity)
+     */
+    public void hideEntity(Player viewer, int entityID) {
+        EntityVisibilityFilter filter = entityVisibilityMap.computeIfAbsent(viewer.getUniqueId(), uuid -> new EntityVisibilityFilter());
+        if (filter.hide(entityID)) {
+            queueEntityDestroy(viewer, entityID);
+        }
+    }
+
+    /**
+     * Show a hidden entity to a player again, the server spawns it for the player right away.
+     * Players are always spawned again. Other entities aren't spawned again on 1.7.10 and 1.17,
+     * they only reappear once they leave and re-enter the player's tracking range.
+     * Call this on the main thread.
+     *
+     * @param viewer Player who should see the entity again.
+     * @param entity Hidden entity.
+     */
+    public void showEntity(Player viewer, Entity entity) {
+        if (showEntity(viewer, entity.getEntityId())) {
+            EntityVisibilityFilter.respawn(viewer, entity);
+        }
+    }
+
+    /**
+     * Stop dropping the packets of a hidden entity.
+     * The entity isn't spawned again, use this for entities that only exist on the client and spawn them yourself.
+     *
+     * @param viewer   Player who should see the entity again.
+     * @param entityID Entity ID
+     * @return Has the entity been hidden?
+     * @see #showEntity(Player, Entity)
+     */
+    public boolean showEntity(Player viewer, int entityID) {
+        EntityVisibilityFilter filter = entityVisibilityMap.get(viewer.getUniqueId());
+        if (filter == null || !filter.show(entityID)) {
+            return false;
+        }
+        //The destroy packet has to reach the client before the entity spawns again
+        flushEntityDestroys(viewer);
+        return true;
+    }
+
+    public boolean isEntityHidden(Player viewer, int entityID) {
+        EntityVisibilityFilter filter = entityVisibilityMap.get(viewer.getUniqueId());
+        return filter != null && filter.isHidden(entityID);
+    }
+
+    /**
+     * Get the tablist entries we have sent to a player.
+     *
+     * @param player Target player.
+     * @return Tablist of the player.
+     */
+    public Tablist getTablist(Player player) {
+        return tablistMap.computeIfAbsent(player.getUniqueId(), uuid -> new Tablist());
+    }
+
+    /**
+     * Show exactly these tablist entries to a player.
+     * Only the entries that changed since the last update are sent.
+     *
+     * @param player  Target player.
+     * @param entries Every entry the player should see.
+     * @see Tablist#update(Collection)
+     */
+    public void updateTablist(Player player, Collection<TablistEntry> entries) {
+        List<WrappedPacketOutPlayerInfo> packets = getTablist(player).update(entries);
+        if (packets.isEmpty()) {
+            return;
+        }
+        for (WrappedPacketOutPlayerInfo packet : packets) {
+            writePacket(player, packet);
+        }
+        flushPackets(player);
+    }
+
+    /**
+     * Get the effect budget of a player, it counts the particles and sounds we have culled.
+     *
+     * @param player Target player.
+     * @return Effect budget, null if the effect policy hasn't seen an effect for the player yet.
+     * @see io.github.retrooper.packetevents.utils.effect.EffectPolicy
+     */
+    @Nullable
+    public EffectBudget getEffectBudget(Player player) {
+        return effectBudgetMap.get(player.getUniqueId());
+    }
+
     public WrappedGameProfile getGameProfile(Player player) {
         Object gameProfile = GameProfileUtil.getGameProfile(player.getUniqueId(), player.getName());
         return GameProfileUtil.getWrappedGameProfile(gameProfile);
@@ -0,0 +1,218 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.server;
+
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the server list status response, to absorb server list ping floods.
+ * The first status request of a protocol version is answered by the server as usual,
+ * we record the encoded response on its way out and keep it for the cache time.
+ * Later status requests with the same protocol version in their handshake are answered with the recorded bytes right away,
+ * neither the server, Bukkit's ServerListPingEvent nor the status listeners see those requests.
+ * Responses are kept per raw protocol number, as the server answers every protocol number differently.
+ * <p>
+ * Modifications listeners make to the response are recorded with it.
+ * Call {@link #invalidate()} to make the next request build a fresh response, for example after changing the MOTD.
+ * The cache isn't available on 1.7.10 servers.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#statusResponseCacheTime(int)
+ */
+public final class StatusResponseCache {
+    private static final String RECORDER_NAME = "packetevents-status-recorder";
+    //Clients pick the protocol number, so we don't let them fill the cache with made up ones
+    private static final int MAX_ENTRIES = 64;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    //Protocol number of the handshake, per channel until it closes
+    private final Map<Object, Integer> handshakeProtocols = new ConcurrentHashMap<>();
+    private volatile long cacheTime;
+
+    /**
+     * Change how long a response is reused.
+     *
+     * @param millis Cache time in milliseconds, zero disables the cache.
+     */
+    public void setCacheTime(int millis) {
+        cacheTime = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+        if (millis <= 0) {
+            invalidate();
+        }
+    }
+
+    public boolean isEnabled() {
+        return cacheTime > 0 && !NMSUtils.legacyNettyImportMode;
+    }
+
+    /**
+     * Remember the protocol number a client sent in its handshake, until its channel closes.
+     *
+     * @param channel         Netty channel of the client
+     * @param protocolVersion Protocol number from the handshake
+     */
+    public void onHandshake(Object channel, int protocolVersion) {
+        if (handshakeProtocols.put(channel, protocolVersion) == null) {
+            ((Channel) channel).closeFuture().addListener(future -> handshakeProtocols.remove(channel));
+        }
+    }
+
+    /**
+     * Answer a status request from the cache.
+     *
+     * @param channel Netty channel of the client
+     * @return Was the request answered?
+     */
+    public boolean answer(Object channel) {
+        Integer protocolVersion = handshakeProtocols.get(channel);
+        if (protocolVersion == null) {
+            return false;
+        }
+        ByteBuf response;
+        synchronized (this) {
+            Entry entry = entries.get(protocolVersion);
+            if (entry == null || System.nanoTime() - entry.expiry >= 0) {
+                return false;
+            }
+            response = entry.response.retainedDuplicate();
+        }
+        //The vanilla encoder lets buffers pass, the prepender adds the length
+        ((Channel) channel).writeAndFlush(response);
+        return true;
+    }
+
+    /**
+     * Record the status response the server is about to send.
+     * Has to be called on the event loop of the channel, right before the response is written.
+     *
+     * @param channel Netty channel of the client
+     */
+    public void record(Object channel) {
+        Integer protocolVersion = handshakeProtocols.get(channel);
+        if (protocolVersion == null) {
+            return;
+        }
+        ChannelPipeline pipeline = ((Channel) channel).pipeline();
+        if (pipeline.get("encoder") != null && pipeline.get(RECORDER_NAME) == null) {
+            pipeline.addBefore("encoder", RECORDER_NAME, new Recorder(protocolVersion));
+        }
+    }
+
+    /**
+     * Drop all cached responses.
+     */
+    public synchronized void invalidate() {
+        for (Entry entry : entries.values()) {
+            entry.response.release();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Drop the cached response of a protocol version.
+     *
+     * @param protocolVersion Protocol number
+     */
+    public synchronized void invalidate(int protocolVersion) {
+        Entry entry = entries.remove(protocolVersion);
+        if (entry != null) {
+            entry.response.release();
+        }
+    }
+
+    private void put(int protocolVersion, ByteBuf response) {
+        long cacheTime = this.cacheTime;
+        if (cacheTime <= 0) {
+            response.release();
+            return;
+        }
+        long now = System.nanoTime();
+        Entry entry = new Entry(response, now + cacheTime);
+        synchronized (this) {
+            if (entries.size() >= MAX_ENTRIES && !entries.containsKey(protocolVersion)) {
+                removeExpired(now);
+                if (entries.size() >= MAX_ENTRIES) {
+                    response.release();
+                    return;
+                }
+            }
+            Entry previous = entries.put(protocolVersion, entry);
+            if (previous != null) {
+                previous.response.release();
+            }
+        }
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.expiry >= 0) {
+                entry.response.release();
+                iterator.remove();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ByteBuf response;
+        private final long expiry;
+
+        private Entry(ByteBuf response, long expiry) {
+            this.response = response;
+            this.expiry = expiry;
+        }
+    }
+
+    /**
+     * Copies the first encoded packet and removes itself again.
+     */
+    private final class Recorder extends ChannelOutboundHandlerAdapter {
+        private final int protocolVersion;
+
+        private Recorder(int protocolVersion) {
+            this.protocolVersion = protocolVersion;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            if (msg instanceof ByteBuf) {
+                ByteBuf buf = (ByteBuf) msg;
+                ctx.pipeline().remove(this);
+                //The server info packet has the ID 0 in every version
+                if (buf.isReadable() && buf.getByte(buf.readerIndex()) == 0) {
+                    put(protocolVersion, Unpooled.directBuffer(buf.readableBytes()).writeBytes(buf, buf.readerIndex(), buf.readableBytes()));
+                }
+            }
+            super.write(ctx, msg, promise);
+        }
+    }
+}
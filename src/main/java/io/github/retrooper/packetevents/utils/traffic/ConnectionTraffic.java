@@ -0,0 +1,191 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Traffic of one connection, kept by its channel handler.
+ * Only the event loop of the channel writes the counters, so they are plain primitives without any map lookups.
+ * The totals are volatile, the per packet type counters may be read slightly out of date from other threads.
+ * Sizes are the frame sizes on the wire, so after compression and without the length prefix.
+ * <p>
+ * The rates are updated by {@link TopTalkers#sample()} once a second.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class ConnectionTraffic {
+    private static final TrafficCounter[] COUNTERS = TrafficCounter.values();
+    private final Supplier<Player> player;
+    private volatile long receivedPackets;
+    private volatile long receivedBytes;
+    private volatile long sentPackets;
+    private volatile long sentBytes;
+    private final long[] receivedTypePackets = new long[256];
+    private final long[] receivedTypeBytes = new long[256];
+    private final long[] sentTypePackets = new long[256];
+    private final long[] sentTypeBytes = new long[256];
+    //Owned by the sampler
+    private final long[] lastTotals = new long[COUNTERS.length];
+    private final long[] rates = new long[COUNTERS.length];
+    final boolean[] exceeded = new boolean[COUNTERS.length];
+
+    /**
+     * @param player Supplies the player of the connection, null until the player is injected.
+     */
+    public ConnectionTraffic(Supplier<Player> player) {
+        this.player = player;
+    }
+
+    @Nullable
+    public Player getPlayer() {
+        return player.get();
+    }
+
+    public void onReceive(byte packetID, int bytes) {
+        receivedPackets++;
+        receivedBytes += bytes;
+        receivedTypePackets[packetID & 0xFF]++;
+        receivedTypeBytes[packetID & 0xFF] += bytes;
+    }
+
+    public void onSend(byte packetID) {
+        sentPackets++;
+        sentTypePackets[packetID & 0xFF]++;
+    }
+
+    public void onSendBytes(byte packetID, int bytes) {
+        sentBytes += bytes;
+        sentTypeBytes[packetID & 0xFF] += bytes;
+    }
+
+    /**
+     * Total of a counter since the connection was opened.
+     * We don't track cancelled packets per connection, those counters are always zero.
+     *
+     * @param counter Counter
+     * @return Count
+     */
+    public long getCount(TrafficCounter counter) {
+        switch (counter) {
+            case RECEIVED:
+                return receivedPackets;
+            case RECEIVED_BYTES:
+                return receivedBytes;
+            case SENT:
+                return sentPackets;
+            case SENT_BYTES:
+                return sentBytes;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Total of a counter for one packet type since the connection was opened.
+     *
+     * @param counter  Counter
+     * @param packetID Packet ID
+     * @return Count
+     */
+    public long getCount(TrafficCounter counter, byte packetID) {
+        long[] counts = getTypeCounts(counter);
+        return counts != null ? counts[packetID & 0xFF] : 0;
+    }
+
+    /**
+     * Rate of a counter per second, measured over the last second.
+     *
+     * @param counter Counter
+     * @return Rate per second
+     */
+    public long getRate(TrafficCounter counter) {
+        synchronized (rates) {
+            return rates[counter.ordinal()];
+        }
+    }
+
+    /**
+     * Packet types with the highest counts on this connection.
+     *
+     * @param counter Counter to sort by
+     * @param limit   Maximum amount of packet types
+     * @return Packet IDs, highest count first. Packet types without traffic are left out.
+     */
+    public byte[] getTopPacketTypes(TrafficCounter counter, int limit) {
+        long[] counts = getTypeCounts(counter);
+        if (counts == null || limit <= 0) {
+            return new byte[0];
+        }
+        //Selection over a copy, limit is small
+        long[] copy = counts.clone();
+        byte[] top = new byte[Math.min(limit, copy.length)];
+        int size = 0;
+        while (size < top.length) {
+            int best = -1;
+            for (int i = 0; i < copy.length; i++) {
+                if (copy[i] > 0 && (best == -1 || copy[i] > copy[best])) {
+                    best = i;
+                }
+            }
+            if (best == -1) {
+                break;
+            }
+            top[size++] = (byte) best;
+            copy[best] = 0;
+        }
+        return size == top.length ? top : Arrays.copyOf(top, size);
+    }
+
+    /**
+     * Update the rates, called once per sample.
+     *
+     * @param elapsedNanos Time since the last sample
+     */
+    void sample(long elapsedNanos) {
+        synchronized (rates) {
+            for (TrafficCounter counter : COUNTERS) {
+                int i = counter.ordinal();
+                long total = getCount(counter);
+                rates[i] = elapsedNanos > 0 ? (total - lastTotals[i]) * 1_000_000_000L / elapsedNanos : 0;
+                lastTotals[i] = total;
+            }
+        }
+    }
+
+    @Nullable
+    private long[] getTypeCounts(TrafficCounter counter) {
+        switch (counter) {
+            case RECEIVED:
+                return receivedTypePackets;
+            case RECEIVED_BYTES:
+                return receivedTypeBytes;
+            case SENT:
+                return sentTypePackets;
+            case SENT_BYTES:
+                return sentTypeBytes;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+import io.github.retrooper.packetevents.packettype.PacketType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Names of the packet type IDs, resolved from the constants in {@link PacketType}.
+ * Client and server packet IDs may overlap, so there is one table per direction.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class PacketTypeNames {
+    private static final String[] INBOUND = new String[256];
+    private static final String[] OUTBOUND = new String[256];
+
+    static {
+        insert(INBOUND, "handshaking", PacketType.Handshaking.Client.class);
+        insert(INBOUND, "status", PacketType.Status.Client.class);
+        insert(INBOUND, "login", PacketType.Login.Client.class);
+        insert(INBOUND, "play", PacketType.Play.Client.class);
+        insert(OUTBOUND, "status", PacketType.Status.Server.class);
+        insert(OUTBOUND, "login", PacketType.Login.Server.class);
+        insert(OUTBOUND, "play", PacketType.Play.Server.class);
+    }
+
+    private PacketTypeNames() {
+    }
+
+    private static void insert(String[] names, String state, Class<?> cls) {
+        for (Field field : cls.getDeclaredFields()) {
+            if (field.getType() == byte.class && Modifier.isStatic(field.getModifiers()) && Modifier.isPublic(field.getModifiers())) {
+                try {
+                    names[field.getByte(null) & 0xFF] = state + "/" + field.getName();
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * State and name of a packet type.
+     *
+     * @param inbound  Sent by the client?
+     * @param packetID Packet ID
+     * @return State and name separated by a slash, for example play/CHAT.
+     */
+    static String getName(boolean inbound, int packetID) {
+        String name = (inbound ? INBOUND : OUTBOUND)[packetID & 0xFF];
+        return name != null ? name : "unknown/" + packetID;
+    }
+}
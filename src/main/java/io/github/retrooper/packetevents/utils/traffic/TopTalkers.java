@@ -0,0 +1,175 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.event.impl.TrafficThresholdEvent;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the connections with the most traffic.
+ * Once a second {@link #sample()} updates the rates of every connection and keeps the connections with the highest rates
+ * per counter in a heap bounded by {@link #getSize()}, the result can be queried with {@link #getTopTalkers(TrafficCounter)}.
+ * A {@link TrafficThresholdEvent} is called when a rate crosses its threshold, on the thread that calls {@link #sample()}.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class TopTalkers {
+    private static final TrafficCounter[] COUNTERS = TrafficCounter.values();
+    //Netty channel to the traffic of the connection
+    private final Map<Object, ConnectionTraffic> connections = new ConcurrentHashMap<>();
+    private final long[] thresholds = new long[COUNTERS.length];
+    private final List<List<ConnectionTraffic>> topTalkers = new ArrayList<>(COUNTERS.length);
+    private volatile int size = 10;
+    private long lastSample;
+
+    public TopTalkers() {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            topTalkers.add(Collections.emptyList());
+        }
+    }
+
+    public void register(Object channel, ConnectionTraffic traffic) {
+        connections.put(channel, traffic);
+    }
+
+    public void unregister(Object channel) {
+        connections.remove(channel);
+    }
+
+    /**
+     * Traffic of a player's connection.
+     *
+     * @param player Player
+     * @return Connection traffic, null if the player isn't injected or the traffic statistics are disabled.
+     */
+    @Nullable
+    public ConnectionTraffic getTraffic(Player player) {
+        Object channel = PacketEvents.get().getPlayerUtils().getChannel(player);
+        return channel == null ? null : connections.get(channel);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Change how many connections we keep per counter.
+     *
+     * @param size Amount of connections
+     */
+    public void setSize(int size) {
+        this.size = Math.max(1, size);
+    }
+
+    /**
+     * Call a {@link TrafficThresholdEvent} when the rate of a counter on a connection rises above a threshold.
+     *
+     * @param counter   Counter
+     * @param perSecond Threshold per second, zero to disable it.
+     */
+    public void setThreshold(TrafficCounter counter, long perSecond) {
+        synchronized (thresholds) {
+            thresholds[counter.ordinal()] = Math.max(0, perSecond);
+        }
+    }
+
+    public long getThreshold(TrafficCounter counter) {
+        synchronized (thresholds) {
+            return thresholds[counter.ordinal()];
+        }
+    }
+
+    /**
+     * Connections of injected players with the highest rates of a counter.
+     *
+     * @param counter Counter
+     * @return Connections, highest rate first.
+     */
+    public List<ConnectionTraffic> getTopTalkers(TrafficCounter counter) {
+        synchronized (topTalkers) {
+            return topTalkers.get(counter.ordinal());
+        }
+    }
+
+    /**
+     * Update the rates and the top talkers.
+     * PacketEvents calls this once a second.
+     */
+    public void sample() {
+        long now = System.nanoTime();
+        long elapsed = lastSample == 0 ? 0 : now - lastSample;
+        lastSample = now;
+        long[] thresholds;
+        synchronized (this.thresholds) {
+            thresholds = this.thresholds.clone();
+        }
+        int size = this.size;
+        List<PriorityQueue<ConnectionTraffic>> heaps = new ArrayList<>(COUNTERS.length);
+        for (TrafficCounter counter : COUNTERS) {
+            //Min-heap, the head is the connection we drop first
+            heaps.add(new PriorityQueue<>(size + 1, Comparator.comparingLong(traffic -> traffic.getRate(counter))));
+        }
+        List<TrafficThresholdEvent> events = new ArrayList<>();
+        for (ConnectionTraffic traffic : connections.values()) {
+            traffic.sample(elapsed);
+            Player player = traffic.getPlayer();
+            if (player == null) {
+                continue;
+            }
+            for (TrafficCounter counter : COUNTERS) {
+                int i = counter.ordinal();
+                long rate = traffic.getRate(counter);
+                if (rate == 0) {
+                    traffic.exceeded[i] = false;
+                    continue;
+                }
+                PriorityQueue<ConnectionTraffic> heap = heaps.get(i);
+                heap.add(traffic);
+                if (heap.size() > size) {
+                    heap.poll();
+                }
+                boolean exceeded = thresholds[i] > 0 && rate > thresholds[i];
+                if (exceeded && !traffic.exceeded[i]) {
+                    events.add(new TrafficThresholdEvent(player, traffic, counter, rate, thresholds[i]));
+                }
+                traffic.exceeded[i] = exceeded;
+            }
+        }
+        synchronized (topTalkers) {
+            for (TrafficCounter counter : COUNTERS) {
+                List<ConnectionTraffic> top = new ArrayList<>(heaps.get(counter.ordinal()));
+                top.sort(Comparator.comparingLong((ConnectionTraffic traffic) -> traffic.getRate(counter)).reversed());
+                topTalkers.set(counter.ordinal(), Collections.unmodifiableList(top));
+            }
+        }
+        for (TrafficThresholdEvent event : events) {
+            PacketEvents.get().getEventManager().callEvent(event);
+        }
+    }
+}
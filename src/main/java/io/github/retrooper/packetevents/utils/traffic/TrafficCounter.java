@@ -0,0 +1,60 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+/**
+ * Counters we keep per packet type.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public enum TrafficCounter {
+    RECEIVED(true, "packets_received_total", "Packets received from clients."),
+    RECEIVED_CANCELLED(true, "packets_received_cancelled_total", "Received packets the listeners cancelled."),
+    RECEIVED_BYTES(true, "bytes_received_total", "Wire bytes of received packets, after compression and without the length prefix."),
+    SENT(false, "packets_sent_total", "Packets sent to clients."),
+    SENT_CANCELLED(false, "packets_sent_cancelled_total", "Sent packets the listeners cancelled."),
+    SENT_BYTES(false, "bytes_sent_total", "Wire bytes of sent packets, after compression and without the length prefix.");
+
+    private final boolean inbound;
+    private final String metricName;
+    private final String description;
+
+    TrafficCounter(boolean inbound, String metricName, String description) {
+        this.inbound = inbound;
+        this.metricName = metricName;
+        this.description = description;
+    }
+
+    /**
+     * Does this counter count packets sent by the client?
+     *
+     * @return Is this an inbound counter?
+     */
+    public boolean isInbound() {
+        return inbound;
+    }
+
+    String getMetricName() {
+        return metricName;
+    }
+
+    String getDescription() {
+        return description;
+    }
+}
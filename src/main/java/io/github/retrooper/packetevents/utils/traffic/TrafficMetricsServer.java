@@ -0,0 +1,142 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small HTTP endpoint serving the {@link TrafficStatistics} in the Prometheus text format on /metrics.
+ * The server only binds to the loopback address, put a reverse proxy in front of it to scrape from elsewhere.
+ * Every counter is exported with a state and packet label, together with a gauge of its rate over the last minute.
+ * Packet types without traffic are left out.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#trafficMetricsPort(int)
+ */
+public final class TrafficMetricsServer {
+    private static final String PREFIX = "packetevents_";
+    private final TrafficStatistics statistics;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public TrafficMetricsServer(TrafficStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Start listening.
+     *
+     * @param port Local port
+     * @throws IOException If the port couldn't be bound.
+     */
+    public synchronized void start(int port) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "packetevents-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            executor = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return server != null;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Write all counters in the Prometheus text format.
+     *
+     * @return Metrics
+     */
+    public String scrape() {
+        StringBuilder builder = new StringBuilder(8192);
+        for (TrafficCounter counter : TrafficCounter.values()) {
+            String name = PREFIX + counter.getMetricName();
+            builder.append("# HELP ").append(name).append(' ').append(counter.getDescription()).append('\n');
+            builder.append("# TYPE ").append(name).append(" counter\n");
+            for (int i = 0; i < 256; i++) {
+                long count = statistics.getCount(counter, (byte) i);
+                if (count != 0) {
+                    appendLabels(builder.append(name), counter, i).append(' ').append(count).append('\n');
+                }
+            }
+            //foo_total -> foo_per_second
+            String rateName = name.substring(0, name.length() - "_total".length()) + "_per_second";
+            builder.append("# HELP ").append(rateName).append(" Rate of ").append(name)
+                    .append(" over the last ").append(TrafficStatistics.MAX_WINDOW_SECONDS).append(" seconds.\n");
+            builder.append("# TYPE ").append(rateName).append(" gauge\n");
+            for (int i = 0; i < 256; i++) {
+                if (statistics.getCount(counter, (byte) i) != 0) {
+                    double rate = statistics.getRate(counter, (byte) i, TrafficStatistics.MAX_WINDOW_SECONDS);
+                    appendLabels(builder.append(rateName), counter, i).append(' ').append(rate).append('\n');
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static StringBuilder appendLabels(StringBuilder builder, TrafficCounter counter, int packetID) {
+        String name = PacketTypeNames.getName(counter.isInbound(), packetID);
+        int separator = name.indexOf('/');
+        return builder.append("{direction=\"").append(counter.isInbound() ? "inbound" : "outbound")
+                .append("\",state=\"").append(name, 0, separator)
+                .append("\",packet=\"").append(name, separator + 1, name.length())
+                .append("\"}");
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.utils.traffic;
+
+import io.github.retrooper.packetevents.packettype.PacketType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters per packet type, indexed by the {@link PacketType} ID of the packet.
+ * The counters are {@link LongAdder}s, so netty threads updating the same packet type don't contend on one cache line.
+ * Packets without a known packet type are counted under {@link PacketType#INVALID}.
+ * Client and server packet IDs may overlap, inbound and outbound counters are kept apart by {@link TrafficCounter}.
+ * <p>
+ * Rates are computed over a sliding window from snapshots taken by {@link #sample()} once a second,
+ * the last {@link #MAX_WINDOW_SECONDS} seconds are kept.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.settings.PacketEventsSettings#trafficStatistics(boolean)
+ */
+public final class TrafficStatistics {
+    public static final int MAX_WINDOW_SECONDS = 60;
+    private static final TrafficCounter[] COUNTERS = TrafficCounter.values();
+    private final LongAdder[][] counters = new LongAdder[COUNTERS.length][256];
+    private final TopTalkers topTalkers = new TopTalkers();
+    private final long[][] snapshots = new long[MAX_WINDOW_SECONDS + 1][];
+    private final long[] snapshotTimes = new long[MAX_WINDOW_SECONDS + 1];
+    private int snapshotIndex;
+    private int snapshotCount;
+    private volatile boolean enabled;
+
+    public TrafficStatistics() {
+        for (LongAdder[] adders : counters) {
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Traffic per connection.
+     *
+     * @return Top talkers
+     */
+    public TopTalkers getTopTalkers() {
+        return topTalkers;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Count a packet received from a client.
+     *
+     * @param packetID  Packet ID
+     * @param cancelled Did a listener cancel the packet?
+     */
+    public void onReceive(byte packetID, boolean cancelled) {
+        if (enabled) {
+            counters[TrafficCounter.RECEIVED.ordinal()][packetID & 0xFF].increment();
+            if (cancelled) {
+                counters[TrafficCounter.RECEIVED_CANCELLED.ordinal()][packetID & 0xFF].increment();
+            }
+        }
+    }
+
+    /**
+     * Count a packet sent to a client.
+     *
+     * @param packetID  Packet ID
+     * @param cancelled Did a listener cancel the packet?
+     */
+    public void onSend(byte packetID, boolean cancelled) {
+        if (enabled) {
+            counters[TrafficCounter.SENT.ordinal()][packetID & 0xFF].increment();
+            if (cancelled) {
+                counters[TrafficCounter.SENT_CANCELLED.ordinal()][packetID & 0xFF].increment();
+            }
+        }
+    }
+
+    public void onReceiveBytes(byte packetID, int bytes) {
+        if (enabled) {
+            counters[TrafficCounter.RECEIVED_BYTES.ordinal()][packetID & 0xFF].add(bytes);
+        }
+    }
+
+    public void onSendBytes(byte packetID, int bytes) {
+        if (enabled) {
+            counters[TrafficCounter.SENT_BYTES.ordinal()][packetID & 0xFF].add(bytes);
+        }
+    }
+
+    /**
+     * Total of a counter since the server started.
+     *
+     * @param counter  Counter
+     * @param packetID Packet ID
+     * @return Count
+     */
+    public long getCount(TrafficCounter counter, byte packetID) {
+        return counters[counter.ordinal()][packetID & 0xFF].sum();
+    }
+
+    /**
+     * Total of a counter over all packet types.
+     *
+     * @param counter Counter
+     * @return Count
+     */
+    public long getCount(TrafficCounter counter) {
+        long sum = 0;
+        for (LongAdder adder : counters[counter.ordinal()]) {
+            sum += adder.sum();
+        }
+        return sum;
+    }
+
+    /**
+     * Average rate of a counter per second over the last seconds.
+     * The window is shortened if we don't have enough samples yet.
+     *
+     * @param counter       Counter
+     * @param packetID      Packet ID
+     * @param windowSeconds Length of the window, from 1 to {@link #MAX_WINDOW_SECONDS}.
+     * @return Rate per second, zero if we have no samples yet.
+     */
+    public double getRate(TrafficCounter counter, byte packetID, int windowSeconds) {
+        int index = counter.ordinal() * 256 + (packetID & 0xFF);
+        long current;
+        long currentTime;
+        long past;
+        long pastTime;
+        synchronized (snapshots) {
+            if (snapshotCount < 2) {
+                return 0;
+            }
+            int back = Math.min(Math.max(windowSeconds, 1), snapshotCount - 1);
+            int newest = (snapshotIndex - 1 + snapshots.length) % snapshots.length;
+            int oldest = (newest - back + snapshots.length) % snapshots.length;
+            current = snapshots[newest][index];
+            currentTime = snapshotTimes[newest];
+            past = snapshots[oldest][index];
+            pastTime = snapshotTimes[oldest];
+        }
+        long elapsed = currentTime - pastTime;
+        return elapsed > 0 ? (current - past) * 1_000_000_000.0D / elapsed : 0;
+    }
+
+    /**
+     * Take a snapshot of all counters for the sliding window rates and update the top talkers.
+     * PacketEvents calls this once a second.
+     */
+    public void sample() {
+        long[] snapshot = new long[COUNTERS.length * 256];
+        for (int c = 0; c < COUNTERS.length; c++) {
+            LongAdder[] adders = counters[c];
+            for (int i = 0; i < 256; i++) {
+                snapshot[c * 256 + i] = adders[i].sum();
+            }
+        }
+        long time = System.nanoTime();
+        synchronized (snapshots) {
+            snapshots[snapshotIndex] = snapshot;
+            snapshotTimes[snapshotIndex] = time;
+            snapshotIndex = (snapshotIndex + 1) % snapshots.length;
+            if (snapshotCount < snapshots.length) {
+                snapshotCount++;
+            }
+        }
+        topTalkers.sample();
+    }
+
+    /**
+     * State and name of a packet type, for display.
+     *
+     * @param inbound  Sent by the client?
+     * @param packetID Packet ID
+     * @return State and name separated by a slash, for example play/CHAT.
+     */
+    public static String getPacketName(boolean inbound, byte packetID) {
+        return PacketTypeNames.getName(inbound, packetID);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.visibility;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.packetwrappers.WrappedPacket;
+import io.github.retrooper.packetevents.utils.nms.NMSUtils;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Makes the server send the spawn packets of an entity to a player again.
+ * Players are hidden and shown with the Bukkit API.
+ * Other entities use the Bukkit API on 1.18+ and the entity tracker of the server on 1.8 - 1.16,
+ * on 1.7.10 and 1.17 they only reappear once the server tracks them for the player again.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class EntityRespawner {
+    private static boolean loaded;
+    private static Method hideEntityMethod, showEntityMethod;
+    //1.8 - 1.13: WorldServer#tracker#trackedEntities, 1.14 - 1.16: WorldServer#getChunkProvider()#playerChunkMap#trackedEntities
+    private static Field entityTrackerField, playerChunkMapField, trackedEntitiesField, trackedPlayersField;
+    private static Method getChunkProviderMethod, updatePlayerMethod;
+
+    private EntityRespawner() {
+    }
+
+    private static void load() {
+        hideEntityMethod = Reflection.getMethod(Player.class, "hideEntity", null, Plugin.class, Entity.class);
+        showEntityMethod = Reflection.getMethod(Player.class, "showEntity", null, Plugin.class, Entity.class);
+        if (showEntityMethod != null) {
+            return;
+        }
+        ServerVersion version = WrappedPacket.version;
+        if (version.isOlderThan(ServerVersion.v_1_8)) {
+            return;
+        }
+        Class<?> trackerEntryClass;
+        if (version.isOlderThan(ServerVersion.v_1_14)) {
+            Class<?> entityTrackerClass = NMSUtils.getNMSClassWithoutException("EntityTracker");
+            trackerEntryClass = NMSUtils.getNMSClassWithoutException("EntityTrackerEntry");
+            entityTrackerField = Reflection.getField(NMSUtils.worldServerClass, entityTrackerClass, 0);
+            trackedEntitiesField = Reflection.getField(entityTrackerClass, "trackedEntities");
+        } else if (version.isOlderThan(ServerVersion.v_1_17)) {
+            Class<?> playerChunkMapClass = NMSUtils.getNMSClassWithoutException("PlayerChunkMap");
+            trackerEntryClass = NMSUtils.getNMSClassWithoutException("PlayerChunkMap$EntityTracker");
+            getChunkProviderMethod = Reflection.getMethod(NMSUtils.worldServerClass, "getChunkProvider", 0);
+            playerChunkMapField = Reflection.getField(getChunkProviderMethod.getReturnType(), playerChunkMapClass, 0);
+            trackedEntitiesField = Reflection.getField(playerChunkMapClass, "trackedEntities");
+        } else {
+            return;
+        }
+        trackedPlayersField = Reflection.getField(trackerEntryClass, "trackedPlayers");
+        updatePlayerMethod = Reflection.getMethod(trackerEntryClass, "updatePlayer", null, NMSUtils.entityPlayerClass);
+    }
+
+    /**
+     * Make the server spawn an entity for a player again.
+     * Call this on the main thread, after the entity has been removed from the visibility filter.
+     *
+     * @param viewer Player who should see the entity.
+     * @param entity Entity
+     */
+    static void respawn(Player viewer, Entity entity) {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        if (entity instanceof Player) {
+            Player target = (Player) entity;
+            //Don't show players another plugin has hidden
+            if (viewer.canSee(target)) {
+                viewer.hidePlayer(target);
+                viewer.showPlayer(target);
+            }
+            return;
+        }
+        try {
+            if (showEntityMethod != null) {
+                Plugin plugin = PacketEvents.get().getPlugin();
+                hideEntityMethod.invoke(viewer, plugin, entity);
+                showEntityMethod.invoke(viewer, plugin, entity);
+            } else if (updatePlayerMethod != null && trackedPlayersField != null) {
+                Object trackerEntry = getTrackerEntry(entity);
+                if (trackerEntry != null) {
+                    Object entityPlayer = NMSUtils.getEntityPlayer(viewer);
+                    //The tracker only spawns the entity for players it doesn't track yet
+                    ((Set<?>) trackedPlayersField.get(trackerEntry)).remove(entityPlayer);
+                    updatePlayerMethod.invoke(trackerEntry, entityPlayer);
+                }
+            }
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static Object getTrackerEntry(Entity entity) throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        Object worldServer = NMSUtils.convertBukkitWorldToWorldServer(entity.getWorld());
+        Object trackedEntities;
+        if (entityTrackerField != null) {
+            trackedEntities = trackedEntitiesField.get(entityTrackerField.get(worldServer));
+        } else {
+            Object chunkProvider = getChunkProviderMethod.invoke(worldServer);
+            trackedEntities = trackedEntitiesField.get(playerChunkMapField.get(chunkProvider));
+        }
+        //IntHashMap on 1.8 - 1.13, Int2ObjectMap on 1.14 - 1.16
+        return trackedEntities.getClass().getMethod("get", int.class).invoke(trackedEntities, entity.getEntityId());
+    }
+}
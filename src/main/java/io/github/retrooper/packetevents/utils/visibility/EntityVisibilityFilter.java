@@ -0,0 +1,197 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package io.github.retrooper.packetevents.utils.visibility;
+
+import io.github.retrooper.packetevents.packettype.PacketType;
+import io.github.retrooper.packetevents.utils.collection.IntSet;
+import io.github.retrooper.packetevents.utils.reflection.Reflection;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entities hidden from one player.
+ * The channel handler of the player drops the spawn, movement, metadata, equipment, effect and animation packets
+ * of hidden entities before any packet event is created.
+ * The entity ID is read straight from the NMS packet with {@link PacketType#entityIdOf(Object)}.
+ * On 1.19.4+ the server bundles the spawn packets of an entity, we filter the packets inside of a bundle one by one.
+ * Hiding and showing is rare compared to the lookups on the netty thread, so the set is copied on every change
+ * and the lookups don't need a lock.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.utils.player.PlayerUtils#hideEntity(Player, Entity)
+ */
+public final class EntityVisibilityFilter {
+    private static final boolean[] FILTERED_PACKETS = new boolean[256];
+    private volatile IntSet hiddenEntities = new IntSet();
+
+    static {
+        byte[] packetIDs = {PacketType.Play.Server.SPAWN_ENTITY, PacketType.Play.Server.SPAWN_ENTITY_EXPERIENCE_ORB,
+                PacketType.Play.Server.SPAWN_ENTITY_WEATHER, PacketType.Play.Server.SPAWN_ENTITY_LIVING,
+                PacketType.Play.Server.SPAWN_ENTITY_PAINTING, PacketType.Play.Server.NAMED_ENTITY_SPAWN,
+                PacketType.Play.Server.ENTITY, PacketType.Play.Server.REL_ENTITY_MOVE,
+                PacketType.Play.Server.REL_ENTITY_MOVE_LOOK, PacketType.Play.Server.ENTITY_LOOK,
+                PacketType.Play.Server.ENTITY_TELEPORT, PacketType.Play.Server.ENTITY_HEAD_ROTATION,
+                PacketType.Play.Server.ENTITY_VELOCITY, PacketType.Play.Server.ENTITY_METADATA,
+                PacketType.Play.Server.ENTITY_EQUIPMENT, PacketType.Play.Server.ENTITY_EFFECT,
+                PacketType.Play.Server.REMOVE_ENTITY_EFFECT, PacketType.Play.Server.ENTITY_STATUS,
+                PacketType.Play.Server.ANIMATION};
+        for (byte packetID : packetIDs) {
+            FILTERED_PACKETS[packetID & 0xFF] = true;
+        }
+    }
+
+    public boolean isHidden(int entityID) {
+        return hiddenEntities.contains(entityID);
+    }
+
+    public boolean isEmpty() {
+        return hiddenEntities.isEmpty();
+    }
+
+    public int[] getHiddenEntities() {
+        return hiddenEntities.toArray();
+    }
+
+    /**
+     * Hide an entity.
+     * This only changes the filter, the caller has to destroy the entity on the client.
+     *
+     * @param entityID Entity ID
+     * @return Has the entity been visible until now?
+     */
+    public synchronized boolean hide(int entityID) {
+        if (hiddenEntities.contains(entityID)) {
+            return false;
+        }
+        IntSet copy = new IntSet(hiddenEntities);
+        copy.add(entityID);
+        hiddenEntities = copy;
+        return true;
+    }
+
+    /**
+     * Show an entity again.
+     * This only changes the filter, the caller has to spawn the entity on the client.
+     *
+     * @param entityID Entity ID
+     * @return Has the entity been hidden until now?
+     */
+    public synchronized boolean show(int entityID) {
+        if (!hiddenEntities.contains(entityID)) {
+            return false;
+        }
+        IntSet copy = new IntSet(hiddenEntities);
+        copy.remove(entityID);
+        hiddenEntities = copy;
+        return true;
+    }
+
+    /**
+     * Drop an outbound packet if it belongs to a hidden entity.
+     * Bundles lose the packets of hidden entities, they are dropped if no packet is left.
+     *
+     * @param packet NMS packet
+     * @return Packet to send, null if it should be dropped.
+     */
+    public Object filter(Object packet) {
+        IntSet hiddenEntities = this.hiddenEntities;
+        if (hiddenEntities.isEmpty()) {
+            return packet;
+        }
+        if (packet.getClass() == Bundles.BUNDLE_CLASS && Bundles.CONSTRUCTOR != null) {
+            return filterBundle(packet, hiddenEntities);
+        }
+        return isHidden(packet, hiddenEntities) ? null : packet;
+    }
+
+    private static boolean isHidden(Object packet, IntSet hiddenEntities) {
+        byte packetID = PacketType.packetIDMap.getOrDefault(packet.getClass(), PacketType.INVALID);
+        if (!FILTERED_PACKETS[packetID & 0xFF]) {
+            return false;
+        }
+        int entityID = PacketType.entityIdOf(packet);
+        return entityID != -1 && hiddenEntities.contains(entityID);
+    }
+
+    private static Object filterBundle(Object bundle, IntSet hiddenEntities) {
+        try {
+            //Bundles are only sent when entities start being tracked, so we don't mind the list.
+            List<Object> visiblePackets = new ArrayList<>();
+            boolean dropped = false;
+            for (Object packet : (Iterable<?>) Bundles.PACKETS_FIELD.get(bundle)) {
+                if (isHidden(packet, hiddenEntities)) {
+                    dropped = true;
+                } else {
+                    visiblePackets.add(packet);
+                }
+            }
+            if (!dropped) {
+                return bundle;
+            }
+            return visiblePackets.isEmpty() ? null : Bundles.CONSTRUCTOR.newInstance(visiblePackets);
+        } catch (IllegalAccessException | InstantiationException | InvocationTargetException e) {
+            e.printStackTrace();
+            return bundle;
+        }
+    }
+
+    /**
+     * Respawn an entity for a player, after it has been shown again.
+     * Call this on the main thread.
+     *
+     * @param viewer Player
+     * @param entity Entity
+     */
+    public static void respawn(Player viewer, Entity entity) {
+        EntityRespawner.respawn(viewer, entity);
+    }
+
+    /**
+     * The bundle packet of 1.19.4+, its class is null on older versions.
+     * The JVM initializes the class once, so every thread sees the resolved fields.
+     */
+    private static final class Bundles {
+        private static final Class<?> BUNDLE_CLASS = Reflection.getClassByNameWithoutException("net.minecraft.network.protocol.game.ClientboundBundlePacket");
+        private static final Field PACKETS_FIELD;
+        private static final Constructor<?> CONSTRUCTOR;
+
+        static {
+            Field packetsField = null;
+            Constructor<?> constructor = null;
+            if (BUNDLE_CLASS != null) {
+                //Declared by the BundlePacket superclass
+                packetsField = Reflection.getField(BUNDLE_CLASS, Iterable.class, 0);
+                try {
+                    constructor = BUNDLE_CLASS.getConstructor(Iterable.class);
+                } catch (NoSuchMethodException e) {
+                    e.printStackTrace();
+                }
+            }
+            PACKETS_FIELD = packetsField;
+            CONSTRUCTOR = constructor;
+        }
+    }
+}
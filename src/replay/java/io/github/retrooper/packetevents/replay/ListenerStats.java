@@ -0,0 +1,94 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call statistics of one listener.
+ * Latencies are counted in power of two buckets, so percentiles are rounded up to the next power of two.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class ListenerStats {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    ListenerStats(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos) {
+        calls.increment();
+        totalNanos.add(nanos);
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1L, nanos)));
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getAverageNanos() {
+        long calls = getCalls();
+        return calls == 0 ? 0 : (double) getTotalNanos() / calls;
+    }
+
+    /**
+     * Latency percentile.
+     *
+     * @param percentile Percentile between 0 and 100.
+     * @return Upper bound of the latency in nanoseconds.
+     */
+    public long getPercentileNanos(double percentile) {
+        long calls = getCalls();
+        if (calls == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(calls * percentile / 100.0);
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+            if (count >= target) {
+                return i == 63 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return getMaxNanos();
+    }
+}
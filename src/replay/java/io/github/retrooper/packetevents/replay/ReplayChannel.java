@@ -0,0 +1,52 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Embedded channel of a simulated connection.
+ * PacketEvents expects the remote address of a player channel to be an {@link InetSocketAddress}.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class ReplayChannel extends EmbeddedChannel {
+    private volatile InetSocketAddress address;
+
+    ReplayChannel(int port) {
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return address;
+    }
+
+    /**
+     * Forget the packets that made it through the handlers.
+     */
+    void discardMessages() {
+        inboundMessages().clear();
+        outboundMessages().clear();
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import io.github.retrooper.packetevents.PacketEvents;
+import io.github.retrooper.packetevents.capture.CaptureDirection;
+import io.github.retrooper.packetevents.capture.CaptureRecord;
+import io.github.retrooper.packetevents.capture.PacketCaptureReader;
+import io.github.retrooper.packetevents.event.PacketListenerAbstract;
+import io.github.retrooper.packetevents.injector.modern.PlayerChannelHandlerModern;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Replays captured packets through the packet listeners, for benchmarking them without a Minecraft server.
+ * Every simulated connection is an embedded channel with a {@link PlayerChannelHandlerModern},
+ * so the packets take the same path through {@link io.github.retrooper.packetevents.processor.PacketProcessorInternal}
+ * as on a live server. The packets are stand-ins ({@link ReplayPacket} by default), wrappers can't read them.
+ * <p>
+ * Without a running server, Bukkit stand-ins are installed and a PacketEvents instance is created.
+ * PacketEvents isn't loaded, so features that need NMS classes have to stay disabled in the settings.
+ * Register the listeners you want to measure with {@link PacketEvents#registerListener(PacketListenerAbstract)}
+ * after {@link #prepare()}, then call {@link #run()}.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see io.github.retrooper.packetevents.capture.PacketCapture
+ */
+public final class ReplayHarness {
+    private final List<CaptureRecord> records;
+    private final int protocolVersion;
+    private int connections = 1;
+    private int threads = 1;
+    private double speed;
+    private Function<CaptureRecord, Object> packetFactory = ReplayPacket::new;
+
+    public ReplayHarness(List<CaptureRecord> records, int protocolVersion) {
+        this.records = records;
+        this.protocolVersion = protocolVersion;
+    }
+
+    /**
+     * Load capture files.
+     *
+     * @param files Capture files or capture directories, in the order they should be replayed.
+     * @return Replay harness
+     * @throws IOException A file isn't a capture file.
+     */
+    public static ReplayHarness load(File... files) throws IOException {
+        List<File> captureFiles = new ArrayList<>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                captureFiles.addAll(PacketCaptureReader.listFiles(file));
+            } else {
+                captureFiles.add(file);
+            }
+        }
+        List<CaptureRecord> records = new ArrayList<>();
+        int protocolVersion = -1;
+        for (File file : captureFiles) {
+            try (PacketCaptureReader reader = new PacketCaptureReader(file)) {
+                protocolVersion = reader.getProtocolVersion();
+                records.addAll(reader.readAll());
+            }
+        }
+        return new ReplayHarness(records, protocolVersion);
+    }
+
+    /**
+     * Amount of simulated connections, every connection receives all captured packets.
+     *
+     * @param connections Connections
+     * @return This harness
+     */
+    public ReplayHarness connections(int connections) {
+        this.connections = Math.max(1, connections);
+        return this;
+    }
+
+    /**
+     * Amount of threads the connections are spread across.
+     *
+     * @param threads Threads
+     * @return This harness
+     */
+    public ReplayHarness threads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Replay speed relative to the capture.
+     *
+     * @param speed 1 for the recorded speed, 2 for twice as fast, 0 for as fast as possible.
+     * @return This harness
+     */
+    public ReplayHarness speed(double speed) {
+        this.speed = Math.max(0, speed);
+        return this;
+    }
+
+    /**
+     * Create the packet objects we pass to PacketEvents.
+     * It is called for every packet and connection, so listeners can modify the packets.
+     *
+     * @param packetFactory Packet factory
+     * @return This harness
+     */
+    public ReplayHarness packetFactory(Function<CaptureRecord, Object> packetFactory) {
+        this.packetFactory = packetFactory;
+        return this;
+    }
+
+    public List<CaptureRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * Make sure there is a PacketEvents instance to register listeners on.
+     *
+     * @return PacketEvents instance
+     */
+    public PacketEvents prepare() {
+        StandIns.installServer(protocolVersion);
+        if (PacketEvents.get() == null) {
+            return PacketEvents.create(StandIns.plugin());
+        }
+        return PacketEvents.get();
+    }
+
+    /**
+     * Replay the packets on all connections and wait until they are done.
+     *
+     * @return Report
+     * @throws InterruptedException We were interrupted while waiting.
+     */
+    public ReplayReport run() throws InterruptedException {
+        PacketEvents packetEvents = prepare();
+        Map<PacketListenerAbstract, ListenerStats> listenerStats = new ConcurrentHashMap<>();
+        ListenerStats pipeline = new ListenerStats("(PacketEvents)");
+        packetEvents.setListenerProfiler((listener, event, nanos) ->
+                listenerStats.computeIfAbsent(listener, l -> new ListenerStats(l.getClass().getName())).record(nanos));
+        List<List<ReplayChannel>> channelsPerThread = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            channelsPerThread.add(new ArrayList<>());
+        }
+        for (int i = 0; i < connections; i++) {
+            ReplayChannel channel = new ReplayChannel(1024 + i);
+            PlayerChannelHandlerModern handler = new PlayerChannelHandlerModern();
+            handler.player = StandIns.player(new UUID(0L, i), "replay-" + i);
+            channel.pipeline().addLast(handler);
+            channelsPerThread.get(i % threads).add(channel);
+        }
+        AtomicLong packets = new AtomicLong();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < threads; i++) {
+                List<ReplayChannel> channels = channelsPerThread.get(i);
+                Thread thread = new Thread(() -> {
+                    try {
+                        packets.addAndGet(replay(channels, pipeline));
+                    } catch (Throwable throwable) {
+                        failure.compareAndSet(null, throwable);
+                    } finally {
+                        done.countDown();
+                    }
+                }, "packetevents-replay-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            done.await();
+        } finally {
+            packetEvents.setListenerProfiler(null);
+        }
+        long elapsed = System.nanoTime() - start;
+        for (List<ReplayChannel> channels : channelsPerThread) {
+            for (ReplayChannel channel : channels) {
+                channel.finishAndReleaseAll();
+            }
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Replay failed", failure.get());
+        }
+        return new ReplayReport(packets.get(), elapsed, pipeline, listenerStats.values());
+    }
+
+    private long replay(List<ReplayChannel> channels, ListenerStats pipeline) {
+        if (records.isEmpty() || channels.isEmpty()) {
+            return 0;
+        }
+        long packets = 0;
+        long firstNanoTime = records.get(0).getNanoTime();
+        long start = System.nanoTime();
+        for (CaptureRecord record : records) {
+            if (speed > 0) {
+                long due = start + (long) ((record.getNanoTime() - firstNanoTime) / speed);
+                long delay;
+                while ((delay = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(Math.min(delay, TimeUnit.MILLISECONDS.toNanos(1)));
+                }
+            }
+            for (ReplayChannel channel : channels) {
+                Object packet = packetFactory.apply(record);
+                long packetStart = System.nanoTime();
+                if (record.getDirection() == CaptureDirection.INBOUND) {
+                    channel.writeInbound(packet);
+                } else {
+                    channel.writeOutbound(packet);
+                }
+                pipeline.record(System.nanoTime() - packetStart);
+                channel.discardMessages();
+                packets++;
+            }
+        }
+        return packets;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import io.github.retrooper.packetevents.capture.CaptureRecord;
+
+/**
+ * Stand-in for an NMS packet during a replay.
+ * It carries the captured record, so listeners can look at the raw packet bytes.
+ * Wrappers can't read it, {@link io.github.retrooper.packetevents.packettype.PacketType#INVALID} is its packet ID
+ * unless you register the class in {@link io.github.retrooper.packetevents.packettype.PacketType#packetIDMap}.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ * @see ReplayHarness#packetFactory(java.util.function.Function)
+ */
+public final class ReplayPacket {
+    private final CaptureRecord record;
+
+    public ReplayPacket(CaptureRecord record) {
+        this.record = record;
+    }
+
+    public CaptureRecord getRecord() {
+        return record;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a replay.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+public final class ReplayReport {
+    private final long packets;
+    private final long elapsedNanos;
+    private final ListenerStats pipeline;
+    private final List<ListenerStats> listeners;
+
+    ReplayReport(long packets, long elapsedNanos, ListenerStats pipeline, Collection<ListenerStats> listeners) {
+        this.packets = packets;
+        this.elapsedNanos = elapsedNanos;
+        this.pipeline = pipeline;
+        this.listeners = new ArrayList<>(listeners);
+        this.listeners.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+    }
+
+    /**
+     * Amount of packets all connections together processed.
+     *
+     * @return Packets
+     */
+    public long getPackets() {
+        return packets;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getPacketsPerSecond() {
+        return elapsedNanos == 0 ? 0 : packets * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Time PacketEvents took per packet, including the listeners.
+     *
+     * @return Pipeline statistics
+     */
+    public ListenerStats getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Statistics of every listener, the most expensive listener first.
+     *
+     * @return Listener statistics
+     */
+    public List<ListenerStats> getListeners() {
+        return listeners;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Replayed %d packets in %.1f ms (%.0f packets/s)%n",
+                packets, elapsedNanos / 1000000.0, getPacketsPerSecond()));
+        builder.append(String.format("%-50s %12s %12s %10s %10s %10s%n", "Listener", "Calls", "Calls/s", "Avg ns", "P99 ns", "Max ns"));
+        append(builder, pipeline);
+        for (ListenerStats stats : listeners) {
+            append(builder, stats);
+        }
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder, ListenerStats stats) {
+        double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+        builder.append(String.format("%-50s %12d %12.0f %10.0f %10d %10d%n", stats.getName(), stats.getCalls(),
+                seconds == 0 ? 0 : stats.getCalls() / seconds, stats.getAverageNanos(),
+                stats.getPercentileNanos(99), stats.getMaxNanos()));
+    }
+}
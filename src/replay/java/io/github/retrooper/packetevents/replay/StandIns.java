@@ -0,0 +1,155 @@
+/*
+ * This file is part of packetevents - https://github.com/retrooper/packetevents
+ * Copyright (C) 2021 retrooper and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.github.retrooper.packetevents.replay;
+
+import io.github.retrooper.packetevents.utils.server.ServerVersion;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Stand-ins for the Bukkit objects PacketEvents needs, so a replay doesn't need a Minecraft server.
+ * Methods we don't answer return null, zero or false.
+ *
+ * @author retrooper
+ * @since 1.8.4
+ */
+final class StandIns {
+    private static final Logger LOGGER = Logger.getLogger("packetevents-replay");
+
+    private StandIns() {
+    }
+
+    /**
+     * Install a stand-in server, unless we are running on a real one.
+     *
+     * @param protocolVersion Protocol version of the captured server, the stand-in claims to be that version.
+     */
+    static void installServer(int protocolVersion) {
+        if (Bukkit.getServer() != null) {
+            return;
+        }
+        Bukkit.setServer(proxy(Server.class, (method, args) -> {
+            switch (method) {
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                    return "packetevents-replay";
+                case "getVersion":
+                    return "replay";
+                case "getBukkitVersion":
+                    return getBukkitVersion(protocolVersion);
+                default:
+                    return null;
+            }
+        }));
+    }
+
+    static Plugin plugin() {
+        return proxy(Plugin.class, (method, args) -> {
+            switch (method) {
+                case "getLogger":
+                    return LOGGER;
+                case "getName":
+                    return "packetevents-replay";
+                case "isEnabled":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    static Player player(UUID uuid, String name) {
+        return proxy(Player.class, (method, args) -> {
+            switch (method) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                case "getDisplayName":
+                case "getPlayerListName":
+                    return name;
+                case "isOnline":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static String getBukkitVersion(int protocolVersion) {
+        //The newest version with this protocol version, ServerVersion matches the name against the Bukkit version
+        ServerVersion[] versions = ServerVersion.values();
+        for (int i = versions.length - 1; i >= 0; i--) {
+            if (versions[i].getProtocolVersion() == protocolVersion) {
+                return versions[i].name().substring(2).replace("_", ".") + "-R0.1-SNAPSHOT";
+            }
+        }
+        return "unknown";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return (T) Proxy.newProxyInstance(StandIns.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "[replay]";
+            }
+            Object result = answer.answer(method.getName(), args);
+            if (result == null && method.getReturnType().isPrimitive()) {
+                return defaultValue(method.getReturnType());
+            }
+            return result;
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0.0F;
+        } else if (type == double.class) {
+            return 0.0D;
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface Answer {
+        Object answer(String method, Object[] args);
+    }
+}